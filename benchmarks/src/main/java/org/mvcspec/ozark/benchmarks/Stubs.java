@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal stand-ins for the servlet, JAX-RS and CDI objects the benchmarked components
+ * depend on, so benchmarks run without a container.
+ */
+public final class Stubs {
+
+    /**
+     * Returned by an {@link Answer} to use the default value of the return type.
+     */
+    public static final Object DEFAULT = new Object();
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap<>();
+
+    static {
+        PRIMITIVE_DEFAULTS.put(boolean.class, false);
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(char.class, (char) 0);
+        PRIMITIVE_DEFAULTS.put(int.class, 0);
+        PRIMITIVE_DEFAULTS.put(long.class, 0L);
+        PRIMITIVE_DEFAULTS.put(float.class, 0f);
+        PRIMITIVE_DEFAULTS.put(double.class, 0d);
+    }
+
+    private Stubs() {
+        // static methods only
+    }
+
+    /**
+     * Answers calls of a stub.
+     */
+    @FunctionalInterface
+    public interface Answer {
+
+        /**
+         * @param method the name of the called method.
+         * @param args   the arguments, never {@code null}.
+         * @return the result or {@link #DEFAULT}.
+         * @throws Throwable thrown by the stub.
+         */
+        Object answer(String method, Object[] args) throws Throwable;
+
+    }
+
+    /**
+     * Creates a stub which returns default values for all methods.
+     *
+     * @param type the interface to implement.
+     * @param <T>  the type.
+     * @return the stub.
+     */
+    public static <T> T stub(Class<T> type) {
+        return stub(type, (method, args) -> DEFAULT);
+    }
+
+    /**
+     * Creates a stub which delegates all calls to the given answer.
+     *
+     * @param type   the interface to implement.
+     * @param answer the answer.
+     * @param <T>    the type.
+     * @return the stub.
+     */
+    public static <T> T stub(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return handleObjectMethod(proxy, method, args, type);
+            }
+            final Object result = answer.answer(method.getName(), args != null ? args : new Object[0]);
+            return result != DEFAULT ? result : PRIMITIVE_DEFAULTS.get(method.getReturnType());
+        }));
+    }
+
+    /**
+     * Sets a field which is usually injected by the container.
+     *
+     * @param target the object.
+     * @param name   the name of the field, which may be declared by a superclass.
+     * @param value  the value.
+     */
+    public static void inject(Object target, String name, Object value) {
+        for (Class<?> clazz = target.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                final Field field = clazz.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) { // NOPMD ignore empty catch block
+                // try superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + target.getClass().getName());
+    }
+
+    /**
+     * Reads a field of an object.
+     *
+     * @param target the object.
+     * @param name   the name of the field declared by the class of the object.
+     * @param <T>    the type of the field.
+     * @return the value.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T field(Object target, String name) {
+        try {
+            final Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            return (T) field.get(target);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method method, Object[] args, Class<?> type) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "Stub[" + type.getName() + "]";
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.binding.convert;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and conversion of form parameters as done for every bound controller parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertersBenchmark {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final ConverterRegistry registry = new ConverterRegistry();
+
+    @Setup
+    public void setup() {
+        registry.init();
+    }
+
+    @Benchmark
+    public MvcConverter<Boolean> lookup() {
+        // the last registered converter
+        return registry.lookup(Boolean.class, NO_ANNOTATIONS);
+    }
+
+    @Benchmark
+    public ConverterResult<Integer> convertInteger() {
+        return registry.lookup(Integer.class, NO_ANNOTATIONS).convert("12345", Integer.class, Locale.US);
+    }
+
+    @Benchmark
+    public ConverterResult<Double> convertDouble() {
+        return registry.lookup(Double.class, NO_ANNOTATIONS).convert("1.234,5", Double.class, Locale.GERMANY);
+    }
+
+    @Benchmark
+    public ConverterResult<Integer> convertInvalid() {
+        return registry.lookup(Integer.class, NO_ANNOTATIONS).convert("12a", Integer.class, Locale.US);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.binding.validate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import javax.ws.rs.FormParam;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the metadata of constraint violations, which is done for every violation of
+ * a validated controller parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintViolationsBenchmark {
+
+    private ValidatorFactory factory;
+
+    private ConstraintViolation<?> propertyViolation;
+
+    private ConstraintViolation<?> parameterViolation;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        factory = Validation.buildDefaultValidatorFactory();
+        propertyViolation = factory.getValidator().validate(new Form()).iterator().next();
+        final Method method = Controller.class.getMethod("save", String.class);
+        parameterViolation = factory.getValidator().forExecutables()
+                .validateParameters(new Controller(), method, new Object[]{null}).iterator().next();
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public ConstraintViolationMetadata property() {
+        return ConstraintViolations.getMetadata(propertyViolation);
+    }
+
+    @Benchmark
+    public ConstraintViolationMetadata parameter() {
+        return ConstraintViolations.getMetadata(parameterViolation);
+    }
+
+    public static class Form {
+
+        @FormParam("name")
+        @Size(min = 3)
+        private String name = "a";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+    public static class Controller {
+
+        public void save(@FormParam("name") @NotNull String name) {
+            // nothing to do
+        }
+
+    }
+
+}
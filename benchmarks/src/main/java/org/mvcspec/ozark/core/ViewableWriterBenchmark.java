@@ -0,0 +1,148 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.core;
+
+import org.mvcspec.ozark.engine.ViewEngineFinder;
+import org.mvcspec.ozark.engine.Viewable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mvc.MvcContext;
+import javax.mvc.engine.ViewEngine;
+import javax.mvc.engine.ViewEngineContext;
+import javax.mvc.engine.ViewEngineException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mvcspec.ozark.benchmarks.Stubs.field;
+import static org.mvcspec.ozark.benchmarks.Stubs.inject;
+import static org.mvcspec.ozark.benchmarks.Stubs.stub;
+
+/**
+ * Rendering a view through {@link ViewableWriter} with an engine which writes a page of
+ * the given size to the response writer, so the benchmark measures the overhead of the
+ * writer and its output stream wrappers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewableWriterBenchmark {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    @Param({"1024", "65536"})
+    public int pageSize;
+
+    private final ViewableWriter writer = new ViewableWriter();
+
+    private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+            // discard
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discard
+        }
+    };
+
+    private Viewable viewable;
+
+    @Setup
+    public void setup() {
+
+        final StringBuilder page = new StringBuilder(pageSize);
+        while (page.length() < pageSize) {
+            page.append("<p>Hello World, this is line ").append(page.length()).append(".</p>\n");
+        }
+        page.setLength(pageSize);
+
+        final ViewEngineFinder finder = new ViewEngineFinder();
+        final Map<String, ViewEngine> cache = field(finder, "cache");
+        cache.put("page.jsp", new PageViewEngine(page.toString()));
+
+        viewable = new Viewable("page.jsp", new ModelsImpl());
+        headers.putSingle(ViewableWriter.CONTENT_TYPE, MediaType.TEXT_HTML_TYPE);
+
+        inject(writer, "engineFinder", finder);
+        inject(writer, "injectedRequest", stub(HttpServletRequest.class));
+        inject(writer, "injectedResponse", stub(HttpServletResponse.class));
+        inject(writer, "config", stub(Configuration.class));
+        inject(writer, "mvc", stub(MvcContext.class));
+
+    }
+
+    @Benchmark
+    public OutputStream render() throws IOException {
+        writer.writeTo(viewable, Viewable.class, Viewable.class, NO_ANNOTATIONS,
+                MediaType.TEXT_HTML_TYPE, headers, out);
+        return out;
+    }
+
+    /**
+     * Writes a fixed page like a template engine writing to the servlet response.
+     */
+    public static class PageViewEngine implements ViewEngine {
+
+        private final String page;
+
+        PageViewEngine(String page) {
+            this.page = page;
+        }
+
+        @Override
+        public boolean supports(String view) {
+            return true;
+        }
+
+        @Override
+        public void processView(ViewEngineContext context) throws ViewEngineException {
+            try {
+                final PrintWriter writer = context.getResponse(HttpServletResponse.class).getWriter();
+                writer.write(page);
+            } catch (IOException e) {
+                throw new ViewEngineException(e);
+            }
+        }
+
+    }
+
+}
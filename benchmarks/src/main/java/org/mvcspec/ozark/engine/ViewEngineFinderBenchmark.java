@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mvc.engine.ViewEngine;
+import javax.mvc.engine.ViewEngineContext;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mvcspec.ozark.benchmarks.Stubs.field;
+
+/**
+ * Engine lookup for views which were resolved before, which is the case for all requests
+ * but the first one per view. Resolving an unknown view queries all engine beans and
+ * requires a CDI container, so it isn't covered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewEngineFinderBenchmark {
+
+    private final ViewEngineFinder finder = new ViewEngineFinder();
+
+    private final Viewable viewable = new Viewable("greeting.jsp");
+
+    @Setup
+    public void setup() {
+        final Map<String, ViewEngine> cache = field(finder, "cache");
+        for (int i = 0; i < 100; i++) {
+            cache.put("view" + i + ".jsp", new NoopViewEngine());
+        }
+        cache.put(viewable.getView(), new NoopViewEngine());
+    }
+
+    @Benchmark
+    public ViewEngine find() {
+        return finder.find(viewable);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ViewEngine findConcurrently() {
+        return finder.find(viewable);
+    }
+
+    /**
+     * View engine stand-in.
+     */
+    public static class NoopViewEngine implements ViewEngine {
+
+        @Override
+        public boolean supports(String view) {
+            return true;
+        }
+
+        @Override
+        public void processView(ViewEngineContext context) {
+            // nothing to do
+        }
+
+    }
+
+}
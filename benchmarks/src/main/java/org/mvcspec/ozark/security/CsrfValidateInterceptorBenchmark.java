@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.core.ControllerMetadataRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mvc.security.Csrf;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Validation;
+import javax.ws.rs.POST;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mvcspec.ozark.benchmarks.Stubs.DEFAULT;
+import static org.mvcspec.ozark.benchmarks.Stubs.inject;
+import static org.mvcspec.ozark.benchmarks.Stubs.stub;
+
+/**
+ * CSRF validation of form posts, including reading the entity by the next interceptor.
+ * The url-encoded forms carry the token in the last field, the multipart form carries it
+ * in the first part followed by an upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsrfValidateInterceptorBenchmark {
+
+    private static final String TOKEN = "0b7f4c3e-6d1a-4f8e-9a2b-3c5d7e9f1a2b";
+
+    private static final String BOUNDARY = "----OzarkBenchmarkBoundary";
+
+    @Param({"10", "1000"})
+    public int fields;
+
+    private final CsrfValidateInterceptor interceptor = new CsrfValidateInterceptor();
+
+    private final byte[] drain = new byte[8192];
+
+    private byte[] form;
+
+    private byte[] multipart;
+
+    private final MediaType multipartType =
+            new MediaType("multipart", "form-data", Collections.singletonMap("boundary", BOUNDARY));
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields; i++) {
+            sb.append("field").append(i).append("=some+value+").append(i).append('&');
+        }
+        sb.append("_csrf=").append(TOKEN);
+        form = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        final StringBuilder upload = new StringBuilder();
+        upload.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"_csrf\"\r\n\r\n")
+                .append(TOKEN).append("\r\n")
+                .append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"data.txt\"\r\n\r\n");
+        for (int i = 0; i < fields; i++) {
+            upload.append("line ").append(i).append(" of the uploaded file\r\n");
+        }
+        upload.append("--").append(BOUNDARY).append("--\r\n");
+        multipart = upload.toString().getBytes(StandardCharsets.US_ASCII);
+
+        final Configuration config = stub(Configuration.class,
+                (method, args) -> Csrf.CSRF_PROTECTION.equals(args.length > 0 ? args[0] : null)
+                        ? Csrf.CsrfOptions.IMPLICIT : DEFAULT);
+        final OzarkConfig ozarkConfig = new OzarkConfig();
+        inject(ozarkConfig, "config", config);
+
+        final Cookie cookie = new Cookie("XSRF-TOKEN", TOKEN);
+        final HttpServletRequest request = stub(HttpServletRequest.class,
+                (method, args) -> "getCookies".equals(method) ? new Cookie[]{cookie} : DEFAULT);
+        final CsrfTokenManager tokenManager = new CsrfTokenManager();
+        inject(tokenManager, "tokenStrategy", new CookieCsrfTokenStrategy.Builder().build());
+        inject(tokenManager, "request", request);
+        inject(tokenManager, "response", stub(HttpServletResponse.class));
+        inject(tokenManager, "ozarkConfig", ozarkConfig);
+
+        final ResourceInfo resourceInfo = stub(ResourceInfo.class, (method, args) -> {
+            switch (method) {
+                case "getResourceMethod":
+                    return Controller.class.getMethod("save");
+                case "getResourceClass":
+                    return Controller.class;
+                default:
+                    return DEFAULT;
+            }
+        });
+        final ControllerMetadataRegistry controllerMetadata = new ControllerMetadataRegistry();
+        inject(controllerMetadata, "validatorFactory", Validation.buildDefaultValidatorFactory());
+        inject(interceptor, "csrfTokenManager", tokenManager);
+        inject(interceptor, "ozarkConfig", ozarkConfig);
+        inject(interceptor, "resourceInfo", resourceInfo);
+        inject(interceptor, "controllerMetadata", controllerMetadata);
+
+    }
+
+    @Benchmark
+    public Object form() throws IOException {
+        return interceptor.aroundReadFrom(context(form, MediaType.APPLICATION_FORM_URLENCODED_TYPE));
+    }
+
+    @Benchmark
+    public Object multipart() throws IOException {
+        return interceptor.aroundReadFrom(context(multipart, multipartType));
+    }
+
+    /**
+     * Creates a context whose {@code proceed()} reads the entity like a message body reader.
+     */
+    private ReaderInterceptorContext context(byte[] entity, MediaType mediaType) {
+        final InputStream[] stream = {new ByteArrayInputStream(entity)};
+        return stub(ReaderInterceptorContext.class, (method, args) -> {
+            switch (method) {
+                case "getHeaders":
+                    return new MultivaluedHashMap<String, String>();
+                case "getMediaType":
+                    return mediaType;
+                case "getInputStream":
+                    return stream[0];
+                case "setInputStream":
+                    stream[0] = (InputStream) args[0];
+                    return null;
+                case "proceed":
+                    int total = 0;
+                    int n;
+                    while ((n = stream[0].read(drain)) >= 0) {
+                        total += n;
+                    }
+                    return total;
+                default:
+                    return DEFAULT;
+            }
+        });
+    }
+
+    public static class Controller {
+
+        @POST
+        public void save() {
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of typical template values, which mostly need no escaping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodersImplBenchmark {
+
+    @Param({"clean", "dirty"})
+    public String input;
+
+    private final EncodersImpl encoders = new EncodersImpl();
+
+    private final StringWriter writer = new StringWriter(1024);
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        value = "clean".equals(input)
+                ? "Jane Doe lives in Springfield and has 42 unread messages"
+                : "<b>Jane & John</b> said \"it's 1 < 2\" / see https://example.com/?a=1&b=2";
+    }
+
+    @Benchmark
+    public String html() {
+        return encoders.html(value);
+    }
+
+    @Benchmark
+    public StringWriter htmlToWriter() throws IOException {
+        writer.getBuffer().setLength(0);
+        encoders.html(value, writer);
+        return writer;
+    }
+
+    @Benchmark
+    public String js() {
+        return encoders.js(value);
+    }
+
+    @Benchmark
+    public String attr() {
+        return encoders.attr(value);
+    }
+
+    @Benchmark
+    public String css() {
+        return encoders.css(value);
+    }
+
+    @Benchmark
+    public String url() {
+        return encoders.url(value);
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.uri;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.mvc.Controller;
+import javax.mvc.MvcContext;
+import javax.mvc.UriRef;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mvcspec.ozark.benchmarks.Stubs.DEFAULT;
+import static org.mvcspec.ozark.benchmarks.Stubs.inject;
+import static org.mvcspec.ozark.benchmarks.Stubs.stub;
+
+/**
+ * URI generation as done by {@code mvc.uri()} in templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationUrisBenchmark {
+
+    private final Map<String, Object> params = new HashMap<>();
+
+    private ApplicationUris uris;
+
+    @Setup
+    public void setup() {
+        final UriTemplateParser parser = new UriTemplateParser();
+        inject(parser, "mvcContext", stub(MvcContext.class,
+                (method, args) -> "getBasePath".equals(method) ? "/app/mvc" : DEFAULT));
+        uris = parser.init(new HashSet<>(Arrays.asList(BookController.class)));
+        params.put("id", 42);
+        params.put("format", "pdf");
+    }
+
+    @Benchmark
+    public URI withoutParameters() {
+        return uris.get("books");
+    }
+
+    @Benchmark
+    public URI withParameters() {
+        return uris.get("BookController#show", params);
+    }
+
+    @Controller
+    @Path("books")
+    public static class BookController {
+
+        @GET
+        @UriRef("books")
+        public String list() {
+            return "books.jsp";
+        }
+
+        @GET
+        @Path("{id}")
+        public String show(@PathParam("id") long id, @QueryParam("format") String format) {
+            return "book.jsp";
+        }
+
+    }
+
+}
@@ -15,13 +15,21 @@
  */
 package org.mvcspec.ozark;
 
+import org.mvcspec.ozark.cdi.RedirectScopeStore;
 import org.mvcspec.ozark.jaxrs.JaxRsContext;
 import org.mvcspec.ozark.security.CsrfTokenStrategy;
 import org.mvcspec.ozark.security.SessionCsrfTokenStrategy;
+import org.mvcspec.ozark.util.PropertyUtils;
 
 import javax.inject.Inject;
 import javax.mvc.security.Csrf;
 import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * This class encapsulates the effective runtime configuration. All methods
@@ -61,6 +69,47 @@ public class OzarkConfig {
 
     }
 
+    public List<MediaType> getCsrfHeaderMediaTypes() {
+
+        Object value = config.getProperty(Properties.CSRF_HEADER_MEDIA_TYPES);
+        Collection<?> values = value instanceof String ? Arrays.asList(((String) value).split(","))
+                : value instanceof Collection ? (Collection<?>) value : Collections.emptyList();
+
+        List<MediaType> mediaTypes = new ArrayList<>(values.size());
+        for (Object mediaType : values) {
+            if (mediaType instanceof MediaType) {
+                mediaTypes.add((MediaType) mediaType);
+            } else if (mediaType != null && !mediaType.toString().trim().isEmpty()) {
+                mediaTypes.add(MediaType.valueOf(mediaType.toString().trim()));
+            }
+        }
+        return mediaTypes;
+
+    }
+
+    public boolean isCsrfViewTokens() {
+        return PropertyUtils.getProperty(config, Properties.CSRF_VIEW_TOKENS, true);
+    }
+
+    /**
+     * @return the configured store, or null if the default store of the
+     * {@link org.mvcspec.ozark.cdi.RedirectScopeManager} is used.
+     */
+    public RedirectScopeStore getRedirectScopeStore() {
+
+        Object value = config.getProperty(Properties.REDIRECT_SCOPE_STORE);
+        if (value instanceof RedirectScopeStore) {
+            return (RedirectScopeStore) value;
+        }
+
+        return null;
+
+    }
+
+    public boolean isAsyncEvents() {
+        return PropertyUtils.getProperty(config, Properties.ASYNC_EVENTS, false);
+    }
+
     public String getDefaultViewFileExtension() {
         Object value = config.getProperty(Properties.DEFAULT_VIEW_FILE_EXTENSION);
         if (value instanceof String) {
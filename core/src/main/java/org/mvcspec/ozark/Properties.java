@@ -29,15 +29,77 @@ public interface Properties {
      */
     String REDIRECT_SCOPE_COOKIES = "org.mvcspec.ozark.redirectScopeCookies";
 
+    /**
+     * The implementation of {@link org.mvcspec.ozark.cdi.RedirectScopeStore}
+     * to use for storing redirect scopes. Defaults to the HTTP session.
+     */
+    String REDIRECT_SCOPE_STORE = "org.mvcspec.ozark.redirectScopeStore";
+
     /**
      * The implementation of {@link org.mvcspec.ozark.security.CsrfTokenStrategy}
      * to use for storing tokens.
      */
     String CSRF_TOKEN_STRATEGY = "org.mvcspec.ozark.csrfTokenStrategy";
 
+    /**
+     * Media types of controller responses which always get the CSRF header, either as
+     * comma-separated string or as collection of {@link javax.ws.rs.core.MediaType} or
+     * strings. Error responses and redirects only get the header if a token already
+     * exists. Defaults to none.
+     *
+     * @see #CSRF_VIEW_TOKENS
+     */
+    String CSRF_HEADER_MEDIA_TYPES = "org.mvcspec.ozark.csrfHeaderMediaTypes";
+
+    /**
+     * Boolean property that when set to {@code true} creates the CSRF token of every
+     * successful response rendering a view before the view is processed, even if the view
+     * doesn't use it. With the default {@link org.mvcspec.ozark.security.CsrfTokenStrategy}
+     * this creates an HTTP session for every rendered page. When set to {@code false}, the
+     * token is only created when the view reads {@code mvc.csrf}, which fails if the view
+     * has already committed the response and the token must be stored in a new session or
+     * cookie. Defaults to {@code true}.
+     */
+    String CSRF_VIEW_TOKENS = "org.mvcspec.ozark.csrfViewTokens";
+
     /**
      * Property for defining default file extension for usage in views
      */
     String DEFAULT_VIEW_FILE_EXTENSION = "org.mvcspec.ozark.defaultViewFileExtension";
 
+    /**
+     * Boolean property that when set to {@code true} enables the development mode
+     * for templates. The view folder is watched for changes and changed templates,
+     * including all views using them, are removed from the template caches. Requires
+     * an exploded deployment.
+     */
+    String TEMPLATE_WATCH = "org.mvcspec.ozark.templateWatch";
+
+    /**
+     * Boolean property that when set to {@code true} records the durations of locale
+     * resolution, binding, validation, controller and view processing for each request.
+     * The phases up to the controller are sent in a {@code Server-Timing} response header,
+     * all phases are logged by {@link org.mvcspec.ozark.instrumentation.RequestTiming}.
+     * Defaults to {@code false}.
+     */
+    String REQUEST_TIMING = "org.mvcspec.ozark.requestTiming";
+
+    /**
+     * Boolean property that when set to {@code true} records request counts, error counts
+     * and latency percentiles per controller method, view and view engine, and exposes them
+     * as MBeans registered by {@link org.mvcspec.ozark.instrumentation.MvcMetrics}, along
+     * with the counters of the redirect scope store.
+     * Defaults to {@code false}.
+     */
+    String JMX_METRICS = "org.mvcspec.ozark.jmxMetrics";
+
+    /**
+     * Boolean property that when set to {@code true} fires {@link javax.mvc.event.AfterControllerEvent},
+     * {@link javax.mvc.event.ControllerRedirectEvent} and {@link javax.mvc.event.AfterProcessViewEvent}
+     * to observers declared with {@code @ObservesAsync}, using a copy of the event which is safe
+     * to use after the request. Requires CDI 2.0. Synchronous observers are notified as before.
+     * Defaults to {@code false}.
+     */
+    String ASYNC_EVENTS = "org.mvcspec.ozark.asyncEvents";
+
 }
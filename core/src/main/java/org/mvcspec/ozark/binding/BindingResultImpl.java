@@ -81,6 +81,20 @@ public class BindingResultImpl implements BindingResult {
         this.bindingErrors.add(bindingError);
     }
 
+    /**
+     * @return the number of binding errors, without marking the errors as consumed.
+     */
+    public int getBindingErrorCount() {
+        return bindingErrors.size();
+    }
+
+    /**
+     * @return the number of validation errors, without marking the errors as consumed.
+     */
+    public int getValidationErrorCount() {
+        return validationErrors.size();
+    }
+
     public boolean hasUnconsumedErrors() {
         return !consumed && (!bindingErrors.isEmpty() || !validationErrors.isEmpty());
     }
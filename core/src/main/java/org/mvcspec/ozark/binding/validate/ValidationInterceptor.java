@@ -19,6 +19,10 @@ import org.mvcspec.ozark.binding.BindingResultImpl;
 import org.mvcspec.ozark.binding.ConstraintViolationTranslator;
 import org.mvcspec.ozark.binding.ValidationErrorImpl;
 import org.mvcspec.ozark.cdi.OzarkInternal;
+import org.mvcspec.ozark.core.ControllerMetadata;
+import org.mvcspec.ozark.core.ControllerMetadataRegistry;
+import org.mvcspec.ozark.instrumentation.FlightRecorderEvents;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -28,6 +32,7 @@ import javax.interceptor.InvocationContext;
 import javax.mvc.MvcContext;
 import javax.mvc.binding.MvcBinding;
 import javax.mvc.binding.ValidationError;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
@@ -68,11 +73,25 @@ public class ValidationInterceptor implements Serializable {
     @Inject
     private BindingResultImpl bindingResult;
 
+    @Inject
+    private HttpServletRequest request;
+
+    @Inject
+    private ControllerMetadataRegistry controllerMetadata;
+
     @AroundInvoke
     public Object validateMethodInvocation(InvocationContext ctx) throws Exception {
 
         Object resource = ctx.getTarget();
         Method method = ctx.getMethod();
+        ControllerMetadata metadata = controllerMetadata.get(method.getDeclaringClass(), method);
+
+        // only the outermost controller invocation is timed
+        RequestTiming timing = RequestTiming.get(request);
+        if (timing != null && !timing.invocationStarted()) {
+            timing = null;
+        }
+        long start = System.nanoTime();
 
         log.log(Level.FINE, "Starting validation for controller method: {0}#{1}", new Object[]{
                 resource.getClass().getName(), method.getName()
@@ -87,17 +106,44 @@ public class ValidationInterceptor implements Serializable {
         );
 
         // validate controller method parameters
-        processViolations(ctx,
-                executableValidator.validateParameters(resource, method, ctx.getParameters())
-        );
+        if (metadata.isParameterValidationRequired()) {
+            processViolations(ctx,
+                    executableValidator.validateParameters(resource, method, ctx.getParameters())
+            );
+        }
+
+        final int bindingErrors = bindingResult.getBindingErrorCount();
+        final int validationErrors = bindingResult.getValidationErrorCount();
+        if (bindingErrors > 0 || validationErrors > 0) {
+            FlightRecorderEvents.bindingFailed(method, bindingErrors, validationErrors);
+        }
+
+        if (timing != null) {
+            timing.record(RequestTiming.Phase.VALIDATION, start);
+            start = System.nanoTime();
+        }
 
         // execute method
-        Object result = ctx.proceed();
+        Object result;
+        try {
+            result = ctx.proceed();
+        } finally {
+            if (timing != null) {
+                timing.record(RequestTiming.Phase.CONTROLLER, start);
+                start = System.nanoTime();
+            }
+        }
 
         // TODO: Does this make sense? Nobody will be able to handle these. Remove?
-        processViolations(ctx,
-                executableValidator.validateReturnValue(resource, method, result)
-        );
+        if (metadata.isReturnValueValidationRequired()) {
+            processViolations(ctx,
+                    executableValidator.validateReturnValue(resource, method, result)
+            );
+        }
+
+        if (timing != null) {
+            timing.record(RequestTiming.Phase.VALIDATION, start);
+        }
 
         return result;
 
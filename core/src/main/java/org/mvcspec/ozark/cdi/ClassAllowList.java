@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import javax.mvc.RedirectScoped;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * <p>The classes which may be deserialized when reading redirect scopes from an untrusted
+ * location. Patterns are class names, package names followed by {@code .*} for the
+ * classes of that package, or followed by {@code .**} to include sub-packages as well.</p>
+ *
+ * <p>Classes annotated with {@link RedirectScoped} are always allowed. Their superclasses
+ * and the types of their fields must be matched by a pattern, unless they are one of the
+ * JDK and CDI implementation classes allowed by default.</p>
+ */
+final class ClassAllowList implements Predicate<Class<?>> {
+
+    /**
+     * Collections and values of the JDK, the classes of the scope itself and the creational
+     * contexts of Weld and OpenWebBeans.
+     */
+    static final List<String> DEFAULT_PATTERNS = Arrays.asList(
+            "java.lang.*", "java.math.*", "java.time.*", "java.util.*", "java.util.concurrent.**",
+            RedirectScope.class.getName(), "org.jboss.weld.**", "org.apache.webbeans.**");
+
+    private final Set<String> classes = new HashSet<>();
+
+    private final Set<String> packages = new HashSet<>();
+
+    private final List<String> packagePrefixes = new ArrayList<>();
+
+    ClassAllowList(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            if (pattern.endsWith(".**")) {
+                packagePrefixes.add(pattern.substring(0, pattern.length() - 2));
+            } else if (pattern.endsWith(".*")) {
+                packages.add(pattern.substring(0, pattern.length() - 2));
+            } else {
+                classes.add(pattern);
+            }
+        }
+    }
+
+    @Override
+    public boolean test(Class<?> clazz) {
+        Class<?> type = clazz;
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || type.isAnnotationPresent(RedirectScoped.class)) {
+            return true;
+        }
+        final String name = type.getName();
+        if (classes.contains(name)) {
+            return true;
+        }
+        final int dot = name.lastIndexOf('.');
+        final String packageName = dot < 0 ? "" : name.substring(0, dot);
+        if (packages.contains(packageName)) {
+            return true;
+        }
+        for (String prefix : packagePrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.function.Predicate;
+
+/**
+ * Resolves classes using the context class loader, so bean classes of the
+ * web application are found when reading redirect scopes. Streams from untrusted
+ * locations are restricted to the classes accepted by a filter.
+ */
+class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+    private final Predicate<Class<?>> filter;
+
+    ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+        this(in, clazz -> true);
+    }
+
+    ContextClassLoaderObjectInputStream(InputStream in, Predicate<Class<?>> filter) throws IOException {
+        super(in);
+        this.filter = filter;
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        // classes are loaded without being initialized, so checking them afterwards is safe
+        return check(load(desc));
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+        final Class<?> proxyClass = super.resolveProxyClass(interfaces);
+        for (Class<?> type : proxyClass.getInterfaces()) {
+            check(type);
+        }
+        return proxyClass;
+    }
+
+    private Class<?> check(Class<?> clazz) throws InvalidClassException {
+        if (!filter.test(clazz)) {
+            throw new InvalidClassException(clazz.getName(), "Class is not allowed in redirect scopes");
+        }
+        return clazz;
+    }
+
+    private Class<?> load(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader != null) {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (ClassNotFoundException e) { // NOPMD ignore empty catch block
+                // fall back to the default behavior
+            }
+        }
+        return super.resolveClass(desc);
+    }
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Implementation of {@link RedirectScopeStore} which serializes each scope into a file
+ * in a local directory. Unlike {@link InMemoryRedirectScopeStore}, scopes survive a restart
+ * of the application and can be shared by nodes mounting the same directory. All bean
+ * instances of the scope must be serializable. Expired files are deleted when new scopes
+ * are created. The instances they contain are copies of beans which no longer exist, so
+ * they are not destroyed.</p>
+ *
+ * <p>The directory must be configured explicitly and must not be writable by other users,
+ * as anyone who can place a file in it can make the application deserialize it. If the
+ * directory doesn't exist, it is created with permissions for its owner only. Reading a
+ * scope is restricted to the classes allowed by {@link Builder#allowedClasses(String...)},
+ * the JDK collections and values, and the CDI implementation.</p>
+ */
+public class FileRedirectScopeStore implements RedirectScopeStore {
+
+    private static final String SUFFIX = ".scope";
+
+    /**
+     * Scope IDs are used as file names, so only the characters of generated IDs are accepted.
+     */
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path directory;
+
+    private final long ttlMillis;
+
+    private final ClassAllowList allowedClasses;
+
+    private final AtomicLong nextPurge;
+
+    private final RedirectScopeMetrics metrics = new RedirectScopeMetrics();
+
+    private FileRedirectScopeStore(Builder builder) {
+        directory = builder.directory;
+        ttlMillis = builder.ttl.toMillis();
+        allowedClasses = new ClassAllowList(builder.allowedClasses);
+        try {
+            createDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create redirect scope directory " + directory, e);
+        }
+        nextPurge = new AtomicLong(System.currentTimeMillis() + ttlMillis);
+    }
+
+    @Override
+    public boolean create(HttpServletRequest request, RedirectScope scope) {
+        purgeExpired(System.currentTimeMillis());
+        try {
+            createDirectory();
+            try (OutputStream out = Files.newOutputStream(getFile(scope.getId()), StandardOpenOption.CREATE_NEW)) {
+                write(out, scope);
+            }
+            metrics.scopeCreated();
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create redirect scope", e);
+        }
+    }
+
+    @Override
+    public Optional<RedirectScope> find(HttpServletRequest request, String scopeId) {
+        if (!VALID_ID.matcher(scopeId).matches()) {
+            return Optional.empty();
+        }
+        Path file = getFile(scopeId);
+        try {
+            if (isExpired(file, System.currentTimeMillis())) {
+                if (Files.deleteIfExists(file)) {
+                    metrics.scopeExpired();
+                }
+                return Optional.empty();
+            }
+            try (InputStream in = Files.newInputStream(file)) {
+                return Optional.of(read(in));
+            }
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to read redirect scope " + scopeId, e);
+        }
+    }
+
+    @Override
+    public String update(HttpServletRequest request, RedirectScope scope) {
+        Path file = getFile(scope.getId());
+        try {
+            // write to a temporary file first, so readers never see a partially written scope
+            Path temp = Files.createTempFile(directory, scope.getId(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    write(out, scope);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update redirect scope", e);
+        }
+        return scope.getId();
+    }
+
+    @Override
+    public Optional<RedirectScope> remove(HttpServletRequest request, String scopeId) {
+        Optional<RedirectScope> scope = find(request, scopeId);
+        if (scope.isPresent()) {
+            try {
+                if (Files.deleteIfExists(getFile(scopeId))) {
+                    metrics.scopeCompleted();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to remove redirect scope", e);
+            }
+        }
+        return scope;
+    }
+
+    @Override
+    public Optional<RedirectScopeMetrics> getMetrics() {
+        return Optional.of(metrics);
+    }
+
+    private void createDirectory() throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    private Path getFile(String scopeId) {
+        return directory.resolve(scopeId + SUFFIX);
+    }
+
+    private boolean isExpired(Path file, long now) throws IOException {
+        return Files.getLastModifiedTime(file).toMillis() + ttlMillis <= now;
+    }
+
+    /**
+     * Removes expired scopes, at most once per time to live and by one thread only.
+     */
+    private void purgeExpired(long now) {
+        final long due = nextPurge.get();
+        if (now < due || !nextPurge.compareAndSet(due, now + ttlMillis) || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    if (isExpired(file, now) && Files.deleteIfExists(file)) {
+                        metrics.scopeExpired();
+                    }
+                } catch (NoSuchFileException e) { // NOPMD ignore empty catch block
+                    // removed concurrently
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove expired redirect scopes", e);
+        }
+    }
+
+    private static void write(OutputStream out, RedirectScope scope) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(scope);
+        }
+    }
+
+    private RedirectScope read(InputStream in) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ContextClassLoaderObjectInputStream(in, allowedClasses)) {
+            return (RedirectScope) ois.readObject();
+        }
+    }
+
+    public static final class Builder {
+
+        private Path directory;
+        private Duration ttl = Duration.ofMinutes(10);
+        private final List<String> allowedClasses = new ArrayList<>(ClassAllowList.DEFAULT_PATTERNS);
+
+        /**
+         * @param directory the directory to store the scopes in, required. It must not be
+         *                  writable by other users.
+         * @return this builder
+         */
+        public Builder directory(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "directory must not be null");
+            return this;
+        }
+
+        /**
+         * @param ttl the time after which a scope expires if the follow-up request doesn't arrive
+         * @return this builder
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = Objects.requireNonNull(ttl, "ttl must not be null");
+            return this;
+        }
+
+        /**
+         * Allows classes to be read from the stored scopes, in addition to classes annotated
+         * with {@link javax.mvc.RedirectScoped}. This is required for superclasses of the beans
+         * and the types of their fields, unless they are JDK collections or values.
+         *
+         * @param patterns class names, or package names followed by {@code .*} or by
+         *                 {@code .**} to include sub-packages, e.g. {@code com.example.model.*}
+         * @return this builder
+         */
+        public Builder allowedClasses(String... patterns) {
+            allowedClasses.addAll(Arrays.asList(patterns));
+            return this;
+        }
+
+        /**
+         * @return the store
+         * @throws IllegalStateException if no directory is configured
+         * @throws UncheckedIOException  if the directory cannot be created
+         */
+        public FileRedirectScopeStore build() {
+            if (directory == null) {
+                throw new IllegalStateException("The directory of the redirect scope store must be configured");
+            }
+            return new FileRedirectScopeStore(this);
+        }
+
+    }
+
+}
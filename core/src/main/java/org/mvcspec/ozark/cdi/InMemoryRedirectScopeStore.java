@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application-wide, in-memory implementation of {@link RedirectScopeStore}. Scopes are
+ * kept in a concurrent map keyed by scope ID and expire after a configurable time, so
+ * post/redirect/get works without an HTTP session. Scopes are only visible on the node
+ * which created them, so clustered deployments require sticky sessions or a shared store.
+ * Expired scopes are destroyed when new scopes are created. If the store is full, the
+ * oldest scope is destroyed to make room for a new one. The scope IDs are kept in order of
+ * creation as well, so finding the oldest scope doesn't depend on the number of scopes.
+ */
+public class InMemoryRedirectScopeStore implements RedirectScopeStore {
+
+    private final Map<String, Entry> scopes = new ConcurrentHashMap<>();
+
+    /**
+     * Scope IDs keyed by the sequence number of their entry, i.e. in order of creation.
+     */
+    private final ConcurrentNavigableMap<Long, String> creationOrder = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final long ttlNanos;
+
+    private final int maxScopes;
+
+    private final AtomicLong nextPurge;
+
+    private final RedirectScopeMetrics metrics = new RedirectScopeMetrics();
+
+    private InMemoryRedirectScopeStore(Builder builder) {
+        ttlNanos = builder.ttl.toNanos();
+        maxScopes = builder.maxScopes;
+        nextPurge = new AtomicLong(System.nanoTime() + ttlNanos);
+    }
+
+    @Override
+    public boolean create(HttpServletRequest request, RedirectScope scope) {
+        final long now = System.nanoTime();
+        purgeExpired(now);
+        if (scopes.size() >= maxScopes) {
+            evictOldest();
+        }
+        final Entry entry = new Entry(scope, now + ttlNanos, sequence.incrementAndGet());
+        if (scopes.putIfAbsent(scope.getId(), entry) != null) {
+            return false;
+        }
+        creationOrder.put(entry.sequence, scope.getId());
+        metrics.scopeCreated();
+        return true;
+    }
+
+    @Override
+    public Optional<RedirectScope> find(HttpServletRequest request, String scopeId) {
+        final Entry entry = scopes.get(scopeId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            expire(scopeId, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.scope);
+    }
+
+    @Override
+    public String update(HttpServletRequest request, RedirectScope scope) {
+        // the redirect is sent now, so the follow-up request gets the full time to live
+        scopes.computeIfPresent(scope.getId(), (id, entry) -> new Entry(scope, System.nanoTime() + ttlNanos, entry.sequence));
+        return scope.getId();
+    }
+
+    @Override
+    public Optional<RedirectScope> remove(HttpServletRequest request, String scopeId) {
+        final Entry entry = scopes.get(scopeId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            expire(scopeId, entry);
+            return Optional.empty();
+        }
+        if (!scopes.remove(scopeId, entry)) {
+            return Optional.empty();
+        }
+        creationOrder.remove(entry.sequence, scopeId);
+        metrics.scopeCompleted();
+        return Optional.of(entry.scope);
+    }
+
+    @Override
+    public Optional<RedirectScopeMetrics> getMetrics() {
+        return Optional.of(metrics);
+    }
+
+    /**
+     * Removes expired scopes, at most once per time to live and by one thread only.
+     */
+    private void purgeExpired(long now) {
+        final long due = nextPurge.get();
+        if (now - due >= 0 && nextPurge.compareAndSet(due, now + ttlNanos)) {
+            scopes.forEach((id, entry) -> {
+                if (entry.isExpired(now)) {
+                    expire(id, entry);
+                }
+            });
+        }
+    }
+
+    private void expire(String scopeId, Entry entry) {
+        if (scopes.remove(scopeId, entry)) {
+            creationOrder.remove(entry.sequence, scopeId);
+            entry.scope.destroy();
+            metrics.scopeExpired();
+        }
+    }
+
+    /**
+     * Takes scope IDs in order of creation until one of them is removed. IDs whose scope was
+     * replaced or removed concurrently are skipped.
+     */
+    private void evictOldest() {
+        Map.Entry<Long, String> oldest;
+        while ((oldest = creationOrder.pollFirstEntry()) != null) {
+            final Entry entry = scopes.get(oldest.getValue());
+            if (entry != null && entry.sequence == oldest.getKey() && scopes.remove(oldest.getValue(), entry)) {
+                entry.scope.destroy();
+                metrics.scopeEvicted();
+                return;
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final RedirectScope scope;
+
+        private final long expires;
+
+        private final long sequence;
+
+        Entry(RedirectScope scope, long expires, long sequence) {
+            this.scope = scope;
+            this.expires = expires;
+            this.sequence = sequence;
+        }
+
+        boolean isExpired(long now) {
+            return now - expires >= 0;
+        }
+
+    }
+
+    public static final class Builder {
+
+        private Duration ttl = Duration.ofMinutes(10);
+        private int maxScopes = 10000;
+
+        /**
+         * @param ttl the time after which a scope expires if the follow-up request doesn't arrive
+         * @return this builder
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = Objects.requireNonNull(ttl, "ttl must not be null");
+            return this;
+        }
+
+        /**
+         * @param maxScopes the maximum number of live scopes
+         * @return this builder
+         */
+        public Builder maxScopes(int maxScopes) {
+            if (maxScopes < 1) {
+                throw new IllegalArgumentException("maxScopes must be positive");
+            }
+            this.maxScopes = maxScopes;
+            return this;
+        }
+
+        public InMemoryRedirectScopeStore build() {
+            return new InMemoryRedirectScopeStore(this);
+        }
+
+    }
+
+}
@@ -26,8 +26,11 @@ import org.mvcspec.ozark.cdi.types.AnnotatedTypeProcessor;
 import org.mvcspec.ozark.core.*;
 import org.mvcspec.ozark.engine.FaceletsViewEngine;
 import org.mvcspec.ozark.engine.JspViewEngine;
+import org.mvcspec.ozark.engine.ServletNameResolver;
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineFinder;
 import org.mvcspec.ozark.event.*;
+import org.mvcspec.ozark.instrumentation.MvcMetrics;
 import org.mvcspec.ozark.jaxrs.JaxRsContextProducer;
 import org.mvcspec.ozark.locale.DefaultLocaleResolver;
 import org.mvcspec.ozark.locale.LocaleRequestFilter;
@@ -50,6 +53,7 @@ import javax.mvc.Controller;
 import javax.mvc.RedirectScoped;
 import javax.mvc.event.MvcEvent;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.logging.Level;
@@ -69,7 +73,16 @@ public class OzarkCdiExtension implements Extension {
 
     private static final Logger log = Logger.getLogger(OzarkCdiExtension.class.getName());
 
-    private static Set<Class<? extends MvcEvent>> observedEvents;
+    /**
+     * Immutable snapshot of the observed event types. It's replaced on each registration,
+     * which only happens during bootstrap, so reads on request threads need no lock.
+     */
+    private static volatile Set<Class<? extends MvcEvent>> observedEvents = Collections.emptySet();
+
+    /**
+     * Immutable snapshot of the event types with observers declared with {@code @ObservesAsync}.
+     */
+    private static volatile Set<Class<? extends MvcEvent>> asyncObservedEvents = Collections.emptySet();
 
     private final AnnotatedTypeProcessor annotatedTypeProcessor = new AnnotatedTypeProcessor();
 
@@ -99,6 +112,7 @@ public class OzarkCdiExtension implements Extension {
                 MvcConverterProvider.class,
 
                 // core
+                ControllerMetadataRegistry.class,
                 Messages.class,
                 ModelsImpl.class,
                 ViewableWriter.class,
@@ -108,7 +122,9 @@ public class OzarkCdiExtension implements Extension {
                 // engine
                 FaceletsViewEngine.class,
                 JspViewEngine.class,
+                ServletNameResolver.class,
                 ViewEngineFinder.class,
+                TemplateRepository.class,
 
                 // security
                 CsrfImpl.class,
@@ -131,6 +147,11 @@ public class OzarkCdiExtension implements Extension {
                 BeforeProcessViewEventImpl.class,
                 ControllerRedirectEventImpl.class,
 
+                AsyncEventDispatcher.class,
+
+                // instrumentation
+                MvcMetrics.class,
+
                 //locale
                 LocaleRequestFilter.class,
                 LocaleResolverChain.class,
@@ -186,7 +207,11 @@ public class OzarkCdiExtension implements Extension {
         if (type instanceof Class<?>) {
             final Class<?> clazz = (Class<?>) type;
             if (MvcEvent.class.isAssignableFrom(clazz)) {
-                addObservedEvent((Class<? extends MvcEvent>) type);
+                if (isAsync(pom.getObserverMethod())) {
+                    addAsyncObservedEvent((Class<? extends MvcEvent>) type);
+                } else {
+                    addObservedEvent((Class<? extends MvcEvent>) type);
+                }
             }
         }
     }
@@ -197,10 +222,24 @@ public class OzarkCdiExtension implements Extension {
      * @param eventType event type.
      */
     public static synchronized void addObservedEvent(Class<? extends MvcEvent> eventType) {
-        if (observedEvents == null) {
-            observedEvents = new HashSet<>();
+        if (!observedEvents.contains(eventType)) {
+            final Set<Class<? extends MvcEvent>> events = new HashSet<>(observedEvents);
+            events.add(eventType);
+            observedEvents = Collections.unmodifiableSet(events);
+        }
+    }
+
+    /**
+     * Add MVC event type to set of events observed asynchronously.
+     *
+     * @param eventType event type.
+     */
+    public static synchronized void addAsyncObservedEvent(Class<? extends MvcEvent> eventType) {
+        if (!asyncObservedEvents.contains(eventType)) {
+            final Set<Class<? extends MvcEvent>> events = new HashSet<>(asyncObservedEvents);
+            events.add(eventType);
+            asyncObservedEvents = Collections.unmodifiableSet(events);
         }
-        observedEvents.add(eventType);
     }
 
     /**
@@ -209,7 +248,28 @@ public class OzarkCdiExtension implements Extension {
      * @param eventType event type.
      * @return outcome of test.
      */
-    public static synchronized boolean isEventObserved(Class<? extends MvcEvent> eventType) {
-        return observedEvents == null ? false : observedEvents.contains(eventType);
+    public static boolean isEventObserved(Class<? extends MvcEvent> eventType) {
+        return observedEvents.contains(eventType);
+    }
+
+    /**
+     * Determine if an event type is being observed asynchronously.
+     *
+     * @param eventType event type.
+     * @return outcome of test.
+     */
+    public static boolean isEventObservedAsync(Class<? extends MvcEvent> eventType) {
+        return asyncObservedEvents.contains(eventType);
+    }
+
+    /**
+     * Observers are only asynchronous with CDI 2.0 or newer.
+     */
+    private static boolean isAsync(ObserverMethod<?> observerMethod) {
+        try {
+            return observerMethod.isAsync();
+        } catch (LinkageError e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import org.mvcspec.ozark.util.CdiUtils;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The bean instances of one redirect scope, together with the beans and creational
+ * contexts required to destroy them. Instances are keyed by the passivation ID of their
+ * bean. The beans themselves aren't serialized, so after a scope was restored they are
+ * looked up by passivation ID.
+ *
+ * @see RedirectScopeStore
+ */
+public class RedirectScope implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = Logger.getLogger(RedirectScope.class.getName());
+
+    private final String id;
+
+    private final long createdAt;
+
+    private final Map<String, Object> instances = new ConcurrentHashMap<>();
+
+    private final Map<String, CreationalContext<?>> creationalContexts = new ConcurrentHashMap<>();
+
+    private transient Map<String, Contextual<?>> contextuals = new ConcurrentHashMap<>();
+
+    public RedirectScope(String id) {
+        this(id, System.currentTimeMillis());
+    }
+
+    RedirectScope(String id, long createdAt) {
+        this.id = Objects.requireNonNull(id, "id must not be null");
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return the scope ID used to correlate the follow-up request.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the time the scope was created in milliseconds since the epoch.
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @param now       the current time in milliseconds since the epoch.
+     * @param ttlMillis the time to live in milliseconds.
+     * @return whether the scope is older than the given time to live.
+     */
+    public boolean isExpired(long now, long ttlMillis) {
+        return now - createdAt >= ttlMillis;
+    }
+
+    /**
+     * @param beanId the passivation ID of the bean.
+     * @return the instance or {@code null} if there is none.
+     */
+    public Object getInstance(String beanId) {
+        return instances.get(beanId);
+    }
+
+    /**
+     * @param beanId the passivation ID of the bean.
+     * @return the creational context of the instance or {@code null} if there is none.
+     */
+    public CreationalContext<?> getCreationalContext(String beanId) {
+        return creationalContexts.get(beanId);
+    }
+
+    /**
+     * @param beanId the passivation ID of the bean.
+     * @return the bean of the instance or {@code null} if it isn't known, e.g. because the
+     * scope was serialized.
+     */
+    public Contextual<?> getContextual(String beanId) {
+        return contextuals.get(beanId);
+    }
+
+    /**
+     * @param beanId     the passivation ID of the bean.
+     * @param instance   the bean instance.
+     * @param creational the creational context the instance was created with.
+     */
+    public void put(String beanId, Object instance, CreationalContext<?> creational) {
+        creationalContexts.put(beanId, creational);
+        instances.put(beanId, instance);
+    }
+
+    /**
+     * @param beanId     the passivation ID of the bean.
+     * @param contextual the bean the instance was created by.
+     * @param instance   the bean instance.
+     * @param creational the creational context the instance was created with.
+     */
+    public void put(String beanId, Contextual<?> contextual, Object instance, CreationalContext<?> creational) {
+        contextuals.put(beanId, contextual);
+        put(beanId, instance, creational);
+    }
+
+    /**
+     * Adds an instance which was restored from its serialized form. Such instances have no
+     * creational context, a new one is created when they are destroyed.
+     *
+     * @param beanId   the passivation ID of the bean.
+     * @param instance the bean instance.
+     */
+    void restore(String beanId, Object instance) {
+        instances.put(beanId, instance);
+    }
+
+    /**
+     * @return all bean instances of this scope.
+     */
+    public Collection<Object> getInstances() {
+        return instances.values();
+    }
+
+    /**
+     * @return a copy of the bean instances of this scope keyed by passivation ID.
+     */
+    Map<String, Object> getInstancesById() {
+        return new HashMap<>(instances);
+    }
+
+    /**
+     * Destroys all instances of an abandoned scope using the creational context they were
+     * created with and removes them from the scope.
+     */
+    public void destroy() {
+        if (!instances.isEmpty()) {
+            destroy(beanId -> CdiUtils.getApplicationBeanManager().getPassivationCapableBean(beanId));
+        }
+    }
+
+    /**
+     * Destroys all instances using the creational context they were created with and
+     * removes them from the scope.
+     *
+     * @param resolver looks up beans by passivation ID if they aren't known to this scope.
+     */
+    @SuppressWarnings("unchecked")
+    public void destroy(Function<String, Contextual<?>> resolver) {
+        instances.forEach((beanId, instance) -> {
+            CreationalContext<Object> creational = (CreationalContext<Object>) creationalContexts.get(beanId);
+            try {
+                Contextual<Object> contextual = (Contextual<Object>) contextuals.get(beanId);
+                if (contextual == null) {
+                    contextual = (Contextual<Object>) resolver.apply(beanId);
+                }
+                if (contextual != null) {
+                    if (creational == null) {
+                        // restored instance
+                        creational = CdiUtils.getApplicationBeanManager().createCreationalContext(contextual);
+                    }
+                    contextual.destroy(instance, creational);
+                }
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed to destroy redirect scoped bean " + beanId, e);
+            } finally {
+                if (creational != null) {
+                    creational.release();
+                }
+            }
+        });
+        clear();
+    }
+
+    /**
+     * Removes all instances without destroying them.
+     */
+    public void clear() {
+        instances.clear();
+        creationalContexts.clear();
+        contextuals.clear();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        contextuals = new ConcurrentHashMap<>();
+    }
+
+}
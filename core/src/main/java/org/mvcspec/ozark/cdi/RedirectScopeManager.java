@@ -15,8 +15,11 @@
  */
 package org.mvcspec.ozark.cdi;
 
+import org.mvcspec.ozark.OzarkConfig;
 import org.mvcspec.ozark.Properties;
 import org.mvcspec.ozark.event.ControllerRedirectEventImpl;
+import org.mvcspec.ozark.instrumentation.FlightRecorderEvents;
+import org.mvcspec.ozark.instrumentation.MvcMetrics;
 import org.mvcspec.ozark.jaxrs.JaxRsContext;
 import org.mvcspec.ozark.util.CdiUtils;
 import org.mvcspec.ozark.util.PropertyUtils;
@@ -26,8 +29,6 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.spi.Contextual;
 import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.event.Observes;
-import javax.enterprise.inject.spi.Bean;
-import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.PassivationCapable;
 import javax.inject.Inject;
 import javax.mvc.MvcContext;
@@ -37,14 +38,12 @@ import javax.mvc.event.ControllerRedirectEvent;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.core.Configuration;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.UriBuilder;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The ApplicationScoped redirect scope manager.
@@ -58,9 +57,20 @@ public class RedirectScopeManager {
 
     private static final String PREFIX = "org.mvcspec.ozark.redirect.";
     private static final String SCOPE_ID = PREFIX + "ScopeId";
-    private static final String INSTANCE = "Instance-";
-    private static final String CREATIONAL = "Creational-";
+    private static final String SCOPE = PREFIX + "Scope";
     private static final String COOKIE_NAME = PREFIX + "Cookie";
+    private static final int COOKIE_MAX_AGE = 600;
+
+    /**
+     * Beans of restored scope instances by passivation ID.
+     */
+    private final Map<String, Contextual<?>> contextuals = new ConcurrentHashMap<>();
+
+    /**
+     * Store used unless {@link Properties#REDIRECT_SCOPE_STORE} is set, one per application
+     * so that its metrics cover the requests of this application only.
+     */
+    private final RedirectScopeStore defaultStore = new SessionRedirectScopeStore.Builder().build();
 
     /**
      * Stores the HTTP servlet request we are working for.
@@ -82,12 +92,21 @@ public class RedirectScopeManager {
     @JaxRsContext
     private Configuration config;
 
+    /**
+     * Effective Ozark configuration.
+     */
+    @Inject
+    private OzarkConfig ozarkConfig;
+
     /**
      * Stores the MVC context.
      */
     @Inject
     private MvcContext mvc;
 
+    @Inject
+    private MvcMetrics metrics;
+
     /**
      * Check that {@literal @}Context injection worked correctly
      */
@@ -99,6 +118,10 @@ public class RedirectScopeManager {
                 "make sure you are using a recent version of Jersey.");
         }
 
+        if (PropertyUtils.getProperty(config, Properties.JMX_METRICS, false)) {
+            metrics.registerRedirectScopeStore(getStore());
+        }
+
     }
 
     /**
@@ -107,22 +130,21 @@ public class RedirectScopeManager {
      * @param contextual the contextual.
      */
     public void destroy(Contextual contextual) {
-        String scopeId = (String) request.getAttribute(SCOPE_ID);
-        if (null != scopeId) {
-            HttpSession session = request.getSession();
+        RedirectScope scope = getCurrentScope();
+        if (null != scope) {
             if (contextual instanceof PassivationCapable == false) {
                 throw new RuntimeException("Unexpected type for contextual");
             }
             PassivationCapable pc = (PassivationCapable) contextual;
-            final String sessionKey = SCOPE_ID + "-" + scopeId;
-            Map<String, Object> scopeMap = (Map<String, Object>) session.getAttribute(sessionKey);
-            if (null != scopeMap) {
-                Object instance = scopeMap.get(INSTANCE + pc.getId());
-                CreationalContext<?> creational = (CreationalContext<?>) scopeMap.get(CREATIONAL + pc.getId());
-                if (null != instance && null != creational) {
-                    contextual.destroy(instance, creational);
-                    creational.release();
+            Object instance = scope.getInstance(pc.getId());
+            CreationalContext creational = scope.getCreationalContext(pc.getId());
+            if (null != instance) {
+                if (null == creational) {
+                    // instance restored from a signed token
+                    creational = CdiUtils.getApplicationBeanManager().createCreationalContext(contextual);
                 }
+                contextual.destroy(instance, creational);
+                creational.release();
             }
         }
     }
@@ -137,20 +159,15 @@ public class RedirectScopeManager {
     public <T> T get(Contextual<T> contextual) {
         T result = null;
 
-        String scopeId = (String) request.getAttribute(SCOPE_ID);
-        if (null != scopeId) {
-            HttpSession session = request.getSession();
+        RedirectScope scope = getCurrentScope();
+        if (null != scope) {
             if (contextual instanceof PassivationCapable == false) {
                 throw new RuntimeException("Unexpected type for contextual");
             }
             PassivationCapable pc = (PassivationCapable) contextual;
-            final String sessionKey = SCOPE_ID + "-" + scopeId;
-            Map<String, Object> scopeMap = (Map<String, Object>) session.getAttribute(sessionKey);
-            if (null != scopeMap) {
-                result = (T) scopeMap.get(INSTANCE + pc.getId());
-            } else {
-                request.setAttribute(SCOPE_ID, null);       // old cookie, force new scope generation
-            }
+            result = (T) scope.getInstance(pc.getId());
+        } else {
+            request.setAttribute(SCOPE_ID, null);       // old cookie, force new scope generation
         }
 
         return result;
@@ -168,23 +185,16 @@ public class RedirectScopeManager {
         T result = get(contextual);
 
         if (result == null) {
-            String scopeId = (String) request.getAttribute(SCOPE_ID);
-            if (null == scopeId) {
-                scopeId = generateScopeId();
+            RedirectScope scope = getCurrentScope();
+            if (null == scope) {
+                scope = createScope();
             }
-            HttpSession session = request.getSession();
             result = contextual.create(creational);
             if (contextual instanceof PassivationCapable == false) {
                 throw new RuntimeException("Unexpected type for contextual");
             }
             PassivationCapable pc = (PassivationCapable) contextual;
-            final String sessionKey = SCOPE_ID + "-" + scopeId;
-            Map<String, Object> scopeMap = (Map<String, Object>) session.getAttribute(sessionKey);
-            if (null != scopeMap) {
-                session.setAttribute(sessionKey, scopeMap);
-                scopeMap.put(INSTANCE + pc.getId(), result);
-                scopeMap.put(CREATIONAL + pc.getId(), creational);
-            }
+            scope.put(pc.getId(), contextual, result, creational);
         }
 
         return result;
@@ -192,7 +202,10 @@ public class RedirectScopeManager {
 
     /**
      * Update SCOPE_ID request attribute based on either cookie or URL query param
-     * information received in the request.
+     * information received in the request. The scope lives for this request only, so a
+     * cookie is expired right away, before the response is committed. Stores like
+     * {@link SignedRedirectScopeStore} can't remove a scope, so the browser must not send
+     * the cookie again. If the controller redirects again, a new cookie replaces it.
      *
      * @param event the event.
      */
@@ -203,6 +216,7 @@ public class RedirectScopeManager {
                 for (Cookie cookie : cookies) {
                     if (cookie.getName().equals(COOKIE_NAME)) {
                         request.setAttribute(SCOPE_ID, cookie.getValue());
+                        addCookie("", 0);
                         return;     // we're done
                     }
                 }
@@ -221,24 +235,13 @@ public class RedirectScopeManager {
      * @param event the event.
      */
     public void afterProcessViewEvent(@Observes AfterProcessViewEvent event) {
-        if (request.getAttribute(SCOPE_ID) != null) {
-            String scopeId = (String) request.getAttribute(SCOPE_ID);
-            HttpSession session = request.getSession();
-            final String sessionKey = SCOPE_ID + "-" + scopeId;
-            Map<String, Object> scopeMap = (Map<String, Object>) session.getAttribute(sessionKey);
-            if (null != scopeMap) {
-                scopeMap.entrySet().stream().forEach((entrySet) -> {
-                    String key = entrySet.getKey();
-                    Object value = entrySet.getValue();
-                    if (key.startsWith(INSTANCE)) {
-                        BeanManager beanManager = CdiUtils.getApplicationBeanManager();
-                        Bean<?> bean = beanManager.resolve(beanManager.getBeans(value.getClass()));
-                        destroy(bean);
-                    }
-                });
-                scopeMap.clear();
-                session.removeAttribute(sessionKey);
-            }
+        RedirectScope scope = getCurrentScope();
+        if (null != scope) {
+            final int beans = scope.getInstances().size();
+            scope.destroy(this::getContextual);
+            getStore().remove(request, scope.getId());
+            FlightRecorderEvents.redirectScopeDestroyed(getStore().getClass(), beans);
+            request.removeAttribute(SCOPE);
         }
     }
 
@@ -250,39 +253,78 @@ public class RedirectScopeManager {
      */
     public void controllerRedirectEvent(@Observes ControllerRedirectEvent event) {
         if (request.getAttribute(SCOPE_ID) != null) {
+            RedirectScope scope = getCurrentScope();
+            String reference = null != scope ? getStore().update(request, scope) : request.getAttribute(SCOPE_ID).toString();
             if (usingCookies()) {
-                Cookie cookie = new Cookie(COOKIE_NAME, request.getAttribute(SCOPE_ID).toString());
-                cookie.setPath(request.getContextPath());
-                cookie.setMaxAge(600);
-                cookie.setHttpOnly(true);
-                response.addCookie(cookie);
+                addCookie(reference, COOKIE_MAX_AGE);
             } else {
                 final ContainerResponseContext crc = ((ControllerRedirectEventImpl) event).getContainerResponseContext();
                 final UriBuilder builder = UriBuilder.fromUri(crc.getStringHeaders().getFirst(HttpHeaders.LOCATION));
-                builder.queryParam(SCOPE_ID, request.getAttribute(SCOPE_ID).toString());
+                builder.queryParam(SCOPE_ID, reference);
                 crc.getHeaders().putSingle(HttpHeaders.LOCATION, builder.build());
             }
         }
     }
 
+    private void addCookie(String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath(request.getContextPath());
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        response.addCookie(cookie);
+    }
+
     /**
-     * Generate the scope id.
+     * Get the scope of the current request. The scope is looked up in the store only
+     * once per request.
      *
-     * @return the scope id.
+     * @return the scope, or null if there is none.
      */
-    private String generateScopeId() {
-        HttpSession session = request.getSession();
-        String scopeId = UUID.randomUUID().toString();
-        String sessionKey = SCOPE_ID + "-" + scopeId;
-        synchronized (this) {
-            while (session.getAttribute(sessionKey) != null) {
-                scopeId = UUID.randomUUID().toString();
-                sessionKey = SCOPE_ID + "-" + scopeId;
-            }
-            session.setAttribute(sessionKey, new HashMap<>());
-            request.setAttribute(SCOPE_ID, scopeId);
+    private RedirectScope getCurrentScope() {
+        String scopeId = (String) request.getAttribute(SCOPE_ID);
+        if (null == scopeId) {
+            return null;
+        }
+        Object cached = request.getAttribute(SCOPE);
+        if (cached instanceof RedirectScope && ((RedirectScope) cached).getId().equals(scopeId)) {
+            return (RedirectScope) cached;
+        }
+        RedirectScope scope = getStore().find(request, scopeId).orElse(null);
+        request.setAttribute(SCOPE, scope);
+        return scope;
+    }
+
+    /**
+     * Create a new scope with a unique id.
+     *
+     * @return the scope.
+     */
+    private RedirectScope createScope() {
+        RedirectScopeStore store = getStore();
+        RedirectScope scope = new RedirectScope(ScopeIdGenerator.next());
+        while (!store.create(request, scope)) {
+            scope = new RedirectScope(ScopeIdGenerator.next());
         }
-        return scopeId;
+        request.setAttribute(SCOPE_ID, scope.getId());
+        request.setAttribute(SCOPE, scope);
+        FlightRecorderEvents.redirectScopeCreated(store.getClass());
+        return scope;
+    }
+
+    /**
+     * Look up a bean by its passivation ID. Only needed for instances of scopes which
+     * were serialized.
+     *
+     * @param beanId the passivation ID.
+     * @return the bean, or null.
+     */
+    private Contextual<?> getContextual(String beanId) {
+        return contextuals.computeIfAbsent(beanId, id -> CdiUtils.getApplicationBeanManager().getPassivationCapableBean(id));
+    }
+
+    private RedirectScopeStore getStore() {
+        final RedirectScopeStore store = ozarkConfig.getRedirectScopeStore();
+        return store != null ? store : defaultStore;
     }
 
     /**
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link RedirectScopeStore}. Scopes stored in HTTP sessions which expire
+ * before the scope is used or swept are still counted as live.
+ */
+public class RedirectScopeMetrics implements RedirectScopeMetricsMXBean {
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder expired = new LongAdder();
+
+    private final LongAdder evicted = new LongAdder();
+
+    void scopeCreated() {
+        created.increment();
+    }
+
+    void scopeCompleted() {
+        completed.increment();
+    }
+
+    void scopeExpired() {
+        expired.increment();
+    }
+
+    void scopeEvicted() {
+        evicted.increment();
+    }
+
+    /**
+     * @return the number of scopes which were created but not yet used, expired or evicted.
+     */
+    @Override
+    public long getLive() {
+        return Math.max(0L, getCreated() - getCompleted() - getExpired() - getEvicted());
+    }
+
+    /**
+     * @return the number of scopes created.
+     */
+    @Override
+    public long getCreated() {
+        return created.sum();
+    }
+
+    /**
+     * @return the number of scopes removed after the follow-up request.
+     */
+    @Override
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of scopes removed because the follow-up request didn't arrive in time.
+     */
+    @Override
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * @return the number of scopes removed because too many scopes were live.
+     */
+    @Override
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+}
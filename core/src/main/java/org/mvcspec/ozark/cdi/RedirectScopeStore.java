@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Optional;
+
+/**
+ * SPI to support different ways to store redirect scopes between the request
+ * issuing the redirect and the follow-up request. Stores which are not bound to the
+ * HTTP session rely on the scope ID being unguessable, which is the case for the IDs
+ * generated by Ozark.
+ *
+ * @see org.mvcspec.ozark.Properties#REDIRECT_SCOPE_STORE
+ */
+public interface RedirectScopeStore {
+
+    /**
+     * Stores a new, empty scope.
+     *
+     * @param request the current request
+     * @param scope   the scope
+     * @return {@code false} if a scope with the same ID already exists, {@code true} otherwise
+     */
+    boolean create(HttpServletRequest request, RedirectScope scope);
+
+    /**
+     * @param request the current request
+     * @param scopeId the value identifying the scope, as returned by {@link #update(HttpServletRequest, RedirectScope)}
+     * @return the scope or an empty optional if there is no such scope
+     */
+    Optional<RedirectScope> find(HttpServletRequest request, String scopeId);
+
+    /**
+     * Stores the current state of a scope. Called when the redirect is sent,
+     * after all instances of the scope have been created and modified.
+     *
+     * @param request the current request
+     * @param scope   the scope
+     * @return the value sent to the client to identify the scope in the follow-up
+     * request, usually the scope ID
+     */
+    String update(HttpServletRequest request, RedirectScope scope);
+
+    /**
+     * @param request the current request
+     * @param scopeId the scope ID
+     * @return the removed scope or an empty optional if there is no such scope
+     */
+    Optional<RedirectScope> remove(HttpServletRequest request, String scopeId);
+
+    /**
+     * The counters are registered as MBean if {@link org.mvcspec.ozark.Properties#JMX_METRICS}
+     * is enabled.
+     *
+     * @return the counters of this store or an empty optional if the store doesn't collect metrics
+     */
+    default Optional<RedirectScopeMetrics> getMetrics() {
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * <p>Generates random, URL-safe scope IDs. Each thread uses its own DRBG or, before Java 9,
+ * SHA1PRNG generator. These are pure Java algorithms, unlike the default NativePRNG on
+ * Linux, whose instances all share a lock on {@code /dev/urandom}.</p>
+ *
+ * <p>The generators are seeded once from the shared default {@link SecureRandom}, which
+ * is only used when a thread generates its first ID.</p>
+ */
+final class ScopeIdGenerator {
+
+    private static final int ID_BYTES = 16;
+
+    private static final int SEED_BYTES = 32;
+
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(ScopeIdGenerator::newRandom);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private ScopeIdGenerator() {
+    }
+
+    /**
+     * @return a new scope ID with 128 random bits.
+     */
+    static String next() {
+        final byte[] bytes = new byte[ID_BYTES];
+        RANDOM.get().nextBytes(bytes);
+        return ENCODER.encodeToString(bytes);
+    }
+
+    static SecureRandom newRandom() {
+        SecureRandom random;
+        try {
+            random = SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            try {
+                random = SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("No SHA1PRNG generator available", ex);
+            }
+        }
+        // replaces the self-seeding of SHA1PRNG, DRBG adds it to its own entropy
+        final byte[] seed = new byte[SEED_BYTES];
+        SEED_SOURCE.nextBytes(seed);
+        random.setSeed(seed);
+        return random;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Session-based implementation of {@link RedirectScopeStore}. This is the default store.
+ * Whenever a scope is created, expired scopes of the session are destroyed and, if the
+ * session already holds the maximum number of scopes, the oldest ones are destroyed.
+ */
+public class SessionRedirectScopeStore implements RedirectScopeStore {
+
+    private static final String SESSION_KEY_PREFIX = "org.mvcspec.ozark.redirect.ScopeId-";
+
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Locks for the per session collision check, selected by session ID.
+     */
+    private static final Object[] LOCKS = IntStream.range(0, LOCK_STRIPES).mapToObj(i -> new Object()).toArray();
+
+    private final long ttlMillis;
+
+    private final int maxScopesPerSession;
+
+    private final RedirectScopeMetrics metrics = new RedirectScopeMetrics();
+
+    private SessionRedirectScopeStore(Builder builder) {
+        ttlMillis = builder.ttl.toMillis();
+        maxScopesPerSession = builder.maxScopesPerSession;
+    }
+
+    @Override
+    public boolean create(HttpServletRequest request, RedirectScope scope) {
+        HttpSession session = request.getSession();
+        String sessionKey = SESSION_KEY_PREFIX + scope.getId();
+        // collisions only matter within a session, so only requests of the same session contend
+        synchronized (LOCKS[(session.getId().hashCode() & Integer.MAX_VALUE) % LOCKS.length]) {
+            if (session.getAttribute(sessionKey) != null) {
+                return false;
+            }
+            sweep(session);
+            session.setAttribute(sessionKey, scope);
+            metrics.scopeCreated();
+            return true;
+        }
+    }
+
+    @Override
+    public Optional<RedirectScope> find(HttpServletRequest request, String scopeId) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            Object value = session.getAttribute(SESSION_KEY_PREFIX + scopeId);
+            if (value instanceof RedirectScope) {
+                RedirectScope scope = (RedirectScope) value;
+                if (!scope.isExpired(System.currentTimeMillis(), ttlMillis)) {
+                    return Optional.of(scope);
+                }
+                session.removeAttribute(SESSION_KEY_PREFIX + scopeId);
+                scope.destroy();
+                metrics.scopeExpired();
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String update(HttpServletRequest request, RedirectScope scope) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            // set again so replicated sessions pick up the changes
+            session.setAttribute(SESSION_KEY_PREFIX + scope.getId(), scope);
+        }
+        return scope.getId();
+    }
+
+    @Override
+    public Optional<RedirectScope> remove(HttpServletRequest request, String scopeId) {
+        Optional<RedirectScope> scope = find(request, scopeId);
+        if (scope.isPresent()) {
+            request.getSession().removeAttribute(SESSION_KEY_PREFIX + scopeId);
+            metrics.scopeCompleted();
+        }
+        return scope;
+    }
+
+    @Override
+    public Optional<RedirectScopeMetrics> getMetrics() {
+        return Optional.of(metrics);
+    }
+
+    /**
+     * Destroys expired scopes and the oldest scopes exceeding the limit, leaving room for one new scope.
+     */
+    private void sweep(HttpSession session) {
+
+        long now = System.currentTimeMillis();
+        List<String> names = Collections.list(session.getAttributeNames());
+        List<RedirectScope> live = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(SESSION_KEY_PREFIX)) {
+                Object value = session.getAttribute(name);
+                if (value instanceof RedirectScope) {
+                    RedirectScope scope = (RedirectScope) value;
+                    if (scope.isExpired(now, ttlMillis)) {
+                        session.removeAttribute(name);
+                        scope.destroy();
+                        metrics.scopeExpired();
+                    } else {
+                        live.add(scope);
+                    }
+                }
+            }
+        }
+
+        if (live.size() >= maxScopesPerSession) {
+            live.sort(Comparator.comparingLong(RedirectScope::getCreatedAt));
+            for (RedirectScope scope : live.subList(0, live.size() - maxScopesPerSession + 1)) {
+                session.removeAttribute(SESSION_KEY_PREFIX + scope.getId());
+                scope.destroy();
+                metrics.scopeEvicted();
+            }
+        }
+
+    }
+
+    public static final class Builder {
+
+        private Duration ttl = Duration.ofMinutes(10);
+        private int maxScopesPerSession = 16;
+
+        /**
+         * @param ttl the time after which a scope expires if the follow-up request doesn't arrive
+         * @return this builder
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = Objects.requireNonNull(ttl, "ttl must not be null");
+            return this;
+        }
+
+        /**
+         * @param maxScopesPerSession the maximum number of live scopes per session
+         * @return this builder
+         */
+        public Builder maxScopesPerSession(int maxScopesPerSession) {
+            if (maxScopesPerSession < 1) {
+                throw new IllegalArgumentException("maxScopesPerSession must be positive");
+            }
+            this.maxScopesPerSession = maxScopesPerSession;
+            return this;
+        }
+
+        public SessionRedirectScopeStore build() {
+            return new SessionRedirectScopeStore(this);
+        }
+
+    }
+
+}
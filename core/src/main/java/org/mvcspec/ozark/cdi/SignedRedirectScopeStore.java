@@ -0,0 +1,313 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>Stateless implementation of {@link RedirectScopeStore}. Instead of storing the scope on
+ * the server, the bean instances are serialized into a token which is sent to the client as
+ * cookie or query parameter and restored in the follow-up request. The token is signed with
+ * HMAC-SHA256 and can optionally be encrypted with AES-GCM. Tokens are verified before they
+ * are deserialized, so clients can neither forge nor modify the beans, but a token can be
+ * replayed until it expires.</p>
+ *
+ * <p>If a token would exceed the configured maximum length, the scope is stored in the
+ * fallback store instead, which is the session store by default.</p>
+ *
+ * <p>All nodes of a cluster must be configured with the same secret. Without an explicit
+ * secret, a random one is generated and tokens are only valid on the node which issued
+ * them.</p>
+ */
+public class SignedRedirectScopeStore implements RedirectScopeStore {
+
+    private static final Logger log = Logger.getLogger(SignedRedirectScopeStore.class.getName());
+
+    /**
+     * Separates payload and signature. Scope IDs never contain it, so it tells tokens
+     * and IDs of the fallback store apart.
+     */
+    private static final char SEPARATOR = '.';
+
+    private static final byte VERSION = 1;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int TAG_LENGTH = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec macKey;
+
+    private final SecretKeySpec encryptionKey;
+
+    private final int maxLength;
+
+    private final long ttlMillis;
+
+    private final RedirectScopeStore fallback;
+
+    private SignedRedirectScopeStore(Builder builder) {
+        final byte[] secret = builder.secret != null ? builder.secret : randomBytes(32);
+        macKey = new SecretKeySpec(derive(secret, "mac"), MAC_ALGORITHM);
+        encryptionKey = builder.encrypt ? new SecretKeySpec(Arrays.copyOf(derive(secret, "enc"), 16), "AES") : null;
+        maxLength = builder.maxLength;
+        ttlMillis = builder.ttl.toMillis();
+        fallback = builder.fallback != null ? builder.fallback : new SessionRedirectScopeStore.Builder().ttl(builder.ttl).build();
+    }
+
+    @Override
+    public boolean create(HttpServletRequest request, RedirectScope scope) {
+        // nothing is stored until the redirect is sent
+        return true;
+    }
+
+    @Override
+    public Optional<RedirectScope> find(HttpServletRequest request, String scopeId) {
+        if (!isToken(scopeId)) {
+            return fallback.find(request, scopeId);
+        }
+        try {
+            return decode(scopeId);
+        } catch (IOException | ClassNotFoundException | GeneralSecurityException | RuntimeException e) {
+            log.log(Level.FINE, "Ignoring invalid redirect scope token", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String update(HttpServletRequest request, RedirectScope scope) {
+        final String token;
+        try {
+            token = encode(scope);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize redirect scope", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign redirect scope", e);
+        }
+        if (token.length() <= maxLength) {
+            return token;
+        }
+        if (!fallback.create(request, scope)) {
+            throw new IllegalStateException("Redirect scope " + scope.getId() + " already exists in fallback store");
+        }
+        return fallback.update(request, scope);
+    }
+
+    @Override
+    public Optional<RedirectScope> remove(HttpServletRequest request, String scopeId) {
+        // tokens aren't stored, so there is nothing to remove
+        return isToken(scopeId) ? Optional.empty() : fallback.remove(request, scopeId);
+    }
+
+    @Override
+    public Optional<RedirectScopeMetrics> getMetrics() {
+        return fallback.getMetrics();
+    }
+
+    private static boolean isToken(String value) {
+        return value.indexOf(SEPARATOR) >= 0;
+    }
+
+    private String encode(RedirectScope scope) throws IOException, GeneralSecurityException {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(body))) {
+            out.writeObject(scope.getInstancesById());
+        }
+
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream(body.size() + 32);
+        final DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(VERSION);
+        out.writeLong(scope.getCreatedAt());
+        if (encryptionKey != null) {
+            final byte[] iv = randomBytes(IV_LENGTH);
+            final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH, iv));
+            out.write(iv);
+            out.write(cipher.doFinal(body.toByteArray()));
+        } else {
+            body.writeTo(out);
+        }
+        out.flush();
+
+        final byte[] bytes = payload.toByteArray();
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(bytes) + SEPARATOR + encoder.encodeToString(sign(bytes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<RedirectScope> decode(String token)
+            throws IOException, ClassNotFoundException, GeneralSecurityException {
+
+        final int separator = token.lastIndexOf(SEPARATOR);
+        final Base64.Decoder decoder = Base64.getUrlDecoder();
+        final byte[] bytes = decoder.decode(token.substring(0, separator));
+        final byte[] signature = decoder.decode(token.substring(separator + 1));
+        if (!MessageDigest.isEqual(sign(bytes), signature)) {
+            log.fine("Ignoring redirect scope token with invalid signature");
+            return Optional.empty();
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readByte() != VERSION) {
+            return Optional.empty();
+        }
+        final RedirectScope scope = new RedirectScope(token, in.readLong());
+        if (scope.isExpired(System.currentTimeMillis(), ttlMillis)) {
+            return Optional.empty();
+        }
+
+        InputStream body = in;
+        if (encryptionKey != null) {
+            final byte[] iv = new byte[IV_LENGTH];
+            in.readFully(iv);
+            final byte[] encrypted = new byte[in.available()];
+            in.readFully(encrypted);
+            final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_LENGTH, iv));
+            body = new ByteArrayInputStream(cipher.doFinal(encrypted));
+        }
+        try (ObjectInputStream objects = new ContextClassLoaderObjectInputStream(new InflaterInputStream(body))) {
+            ((Map<String, Object>) objects.readObject()).forEach(scope::restore);
+        }
+        return Optional.of(scope);
+    }
+
+    private byte[] sign(byte[] bytes) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(macKey);
+        return mac.doFinal(bytes);
+    }
+
+    /**
+     * Derives independent keys for signing and encryption from the configured secret.
+     */
+    private static byte[] derive(byte[] secret, String purpose) {
+        try {
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+            return mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot derive redirect scope keys", e);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static final class Builder {
+
+        private byte[] secret;
+        private boolean encrypt;
+        private int maxLength = 2048;
+        private Duration ttl = Duration.ofMinutes(10);
+        private RedirectScopeStore fallback;
+
+        /**
+         * @param secret the secret used to sign and encrypt tokens, at least 16 bytes
+         * @return this builder
+         */
+        public Builder secret(byte[] secret) {
+            Objects.requireNonNull(secret, "secret must not be null");
+            if (secret.length < 16) {
+                throw new IllegalArgumentException("secret must have at least 16 bytes");
+            }
+            this.secret = secret.clone();
+            return this;
+        }
+
+        /**
+         * @param encrypt whether tokens are encrypted, so clients can't read the bean state
+         * @return this builder
+         */
+        public Builder encrypt(boolean encrypt) {
+            this.encrypt = encrypt;
+            return this;
+        }
+
+        /**
+         * @param maxLength the maximum length of a token, larger scopes are stored in the fallback store
+         * @return this builder
+         */
+        public Builder maxLength(int maxLength) {
+            if (maxLength < 1) {
+                throw new IllegalArgumentException("maxLength must be positive");
+            }
+            this.maxLength = maxLength;
+            return this;
+        }
+
+        /**
+         * @param ttl the time after which a token expires
+         * @return this builder
+         */
+        public Builder ttl(Duration ttl) {
+            this.ttl = Objects.requireNonNull(ttl, "ttl must not be null");
+            return this;
+        }
+
+        /**
+         * @param fallback the store for scopes which are too large for a token
+         * @return this builder
+         */
+        public Builder fallback(RedirectScopeStore fallback) {
+            this.fallback = Objects.requireNonNull(fallback, "fallback must not be null");
+            return this;
+        }
+
+        public SignedRedirectScopeStore build() {
+            return new SignedRedirectScopeStore(this);
+        }
+
+    }
+
+}
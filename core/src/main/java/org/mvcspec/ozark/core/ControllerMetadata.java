@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.core;
+
+import javax.ws.rs.core.Variant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>The annotations of a controller method which are needed to process a request,
+ * resolved once by {@link ControllerMetadataRegistry} following the inheritance rules
+ * of the JAX-RS and MVC specifications. Instances are immutable.</p>
+ *
+ * @see ControllerMetadataRegistry
+ */
+public final class ControllerMetadata {
+
+    private final String view;
+
+    private final List<Variant> variants;
+
+    private final boolean post;
+
+    private final boolean csrfProtected;
+
+    private final boolean parameterValidation;
+
+    private final boolean returnValueValidation;
+
+    ControllerMetadata(String view, List<Variant> variants, boolean post, boolean csrfProtected,
+                       boolean parameterValidation, boolean returnValueValidation) {
+        this.view = view;
+        this.variants = Collections.unmodifiableList(variants);
+        this.post = post;
+        this.csrfProtected = csrfProtected;
+        this.parameterValidation = parameterValidation;
+        this.returnValueValidation = returnValueValidation;
+    }
+
+    /**
+     * @return the value of {@code @View} on the method or else on the controller class,
+     * or {@code null} if neither is annotated.
+     */
+    public String getView() {
+        return view;
+    }
+
+    /**
+     * @return the variants of {@code @Produces} on the method or else on the controller
+     * class, or an empty list if neither is annotated.
+     */
+    public List<Variant> getVariants() {
+        return variants;
+    }
+
+    /**
+     * @return whether the method handles {@code POST} requests.
+     */
+    public boolean isPost() {
+        return post;
+    }
+
+    /**
+     * @return whether the method or its declaring class is annotated with
+     * {@code @CsrfProtected}.
+     */
+    public boolean isCsrfProtected() {
+        return csrfProtected;
+    }
+
+    /**
+     * @return whether the parameters of the method carry constraints, including cascaded
+     * and cross-parameter constraints.
+     */
+    public boolean isParameterValidationRequired() {
+        return parameterValidation;
+    }
+
+    /**
+     * @return whether the return value of the method carries constraints.
+     */
+    public boolean isReturnValueValidationRequired() {
+        return returnValueValidation;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.core;
+
+import org.mvcspec.ozark.cdi.OzarkInternal;
+import org.mvcspec.ozark.index.ControllerIndex;
+import org.mvcspec.ozark.servlet.OzarkContainerInitializer;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.mvc.View;
+import javax.mvc.security.CsrfProtected;
+import javax.servlet.ServletContext;
+import javax.validation.ValidatorFactory;
+import javax.validation.metadata.MethodDescriptor;
+import javax.ws.rs.POST;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Variant;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import static org.mvcspec.ozark.util.AnnotationUtils.getAnnotation;
+import static org.mvcspec.ozark.util.AnnotationUtils.hasAnnotation;
+
+/**
+ * <p>Registry of {@link ControllerMetadata} for all controller methods. The metadata of
+ * the controllers found by {@link OzarkContainerInitializer} is resolved when the registry
+ * is created, so filters and interceptors don't have to walk the class hierarchy on every
+ * request.</p>
+ *
+ * <p>Methods which weren't known at startup, e.g. because the container didn't report the
+ * controller class, are resolved on first access and cached as well.</p>
+ */
+@ApplicationScoped
+public class ControllerMetadataRegistry {
+
+    @Inject
+    private ServletContext servletContext;
+
+    @Inject
+    @OzarkInternal
+    ValidatorFactory validatorFactory;
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, ControllerMetadata>> metadata =
+            new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+
+        Set<Class<?>> controllerClasses =
+                (Set<Class<?>>) servletContext.getAttribute(OzarkContainerInitializer.CONTROLLER_CLASSES);
+
+        ControllerIndex controllerIndex =
+                (ControllerIndex) servletContext.getAttribute(OzarkContainerInitializer.CONTROLLER_INDEX);
+
+        init(controllerClasses != null ? controllerClasses : Collections.emptySet(),
+                controllerIndex != null ? controllerIndex : ControllerIndex.empty());
+
+    }
+
+    void init(Set<Class<?>> controllers, ControllerIndex controllerIndex) {
+        controllers.forEach(controller ->
+                controllerIndex.getControllerMethods(controller).forEach(method -> get(controller, method))
+        );
+    }
+
+    /**
+     * Returns the metadata of a controller method.
+     *
+     * @param resourceClass the controller class, which may differ from the declaring class
+     *                      of inherited methods.
+     * @param method        the controller method.
+     * @return the metadata, never {@code null}.
+     */
+    public ControllerMetadata get(Class<?> resourceClass, Method method) {
+        ConcurrentMap<Method, ControllerMetadata> methods = metadata.get(resourceClass);
+        if (methods == null) {
+            methods = metadata.computeIfAbsent(resourceClass, c -> new ConcurrentHashMap<>());
+        }
+        // computeIfAbsent() locks even if the value is present
+        final ControllerMetadata result = methods.get(method);
+        return result != null ? result : methods.computeIfAbsent(method, m -> resolve(resourceClass, m));
+    }
+
+    private ControllerMetadata resolve(Class<?> resourceClass, Method method) {
+
+        View view = getAnnotation(method, View.class);
+        if (view == null) {
+            view = getAnnotation(resourceClass, View.class);
+        }
+
+        Produces produces = method.getAnnotation(Produces.class);
+        if (produces == null) {
+            produces = getAnnotation(resourceClass, Produces.class);
+        }
+        final List<Variant> variants = produces == null ? Collections.emptyList()
+                : Arrays.stream(produces.value())
+                .map((String mt) -> Variant.mediaTypes(MediaType.valueOf(mt)).build().get(0))
+                .collect(Collectors.toList());
+
+        final boolean csrfProtected = hasAnnotation(method, CsrfProtected.class)
+                || hasAnnotation(method.getDeclaringClass(), CsrfProtected.class);
+
+        final MethodDescriptor descriptor = validatorFactory.getValidator()
+                .getConstraintsForClass(method.getDeclaringClass())
+                .getConstraintsForMethod(method.getName(), method.getParameterTypes());
+
+        return new ControllerMetadata(
+                view != null ? view.value() : null,
+                variants,
+                hasAnnotation(method, POST.class),
+                csrfProtected,
+                descriptor != null && descriptor.hasConstrainedParameters(),
+                descriptor != null && descriptor.hasConstrainedReturnValue()
+        );
+    }
+
+}
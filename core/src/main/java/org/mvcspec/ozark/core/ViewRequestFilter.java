@@ -15,18 +15,25 @@
  */
 package org.mvcspec.ozark.core;
 
+import org.mvcspec.ozark.Properties;
 import org.mvcspec.ozark.event.BeforeControllerEventImpl;
 import org.mvcspec.ozark.cdi.OzarkCdiExtension;
+import org.mvcspec.ozark.instrumentation.FlightRecorderEvents;
+import org.mvcspec.ozark.instrumentation.MvcMetrics;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
+import org.mvcspec.ozark.util.PropertyUtils;
 
 import javax.annotation.Priority;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.mvc.Controller;
 import javax.mvc.event.BeforeControllerEvent;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Configuration;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
@@ -46,12 +53,23 @@ import java.io.IOException;
 @Priority(Priorities.ENTITY_CODER)
 public class ViewRequestFilter implements ContainerRequestFilter {
 
+    /**
+     * Name of the request property holding the controller invoked flight recorder event.
+     */
+    static final String CONTROLLER_EVENT = ViewRequestFilter.class.getName() + ".controllerEvent";
+
     @Context
     private UriInfo uriInfo;
 
     @Context
     private ResourceInfo resourceInfo;
 
+    @Context
+    private HttpServletRequest request;
+
+    @Context
+    private Configuration config;
+
     @Inject
     private Event<BeforeControllerEvent> dispatcher;
 
@@ -65,5 +83,17 @@ public class ViewRequestFilter implements ContainerRequestFilter {
             event.setContainerRequestContext(requestContext);
             dispatcher.fire(event);
         }
+
+        final RequestTiming timing = RequestTiming.get(request);
+        if (timing != null) {
+            timing.controllerMatched();
+        }
+        if (PropertyUtils.getProperty(config, Properties.JMX_METRICS, false)) {
+            requestContext.setProperty(MvcMetrics.CONTROLLER_START, System.nanoTime());
+        }
+        final Object controllerEvent = FlightRecorderEvents.beginControllerInvoked();
+        if (controllerEvent != null) {
+            requestContext.setProperty(CONTROLLER_EVENT, controllerEvent);
+        }
     }
 }
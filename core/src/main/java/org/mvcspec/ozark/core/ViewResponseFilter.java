@@ -17,20 +17,23 @@ package org.mvcspec.ozark.core;
 
 import org.mvcspec.ozark.OzarkConfig;
 import org.mvcspec.ozark.event.AfterControllerEventImpl;
+import org.mvcspec.ozark.event.AsyncEventDispatcher;
 import org.mvcspec.ozark.event.ControllerRedirectEventImpl;
+import org.mvcspec.ozark.event.EventSnapshots;
+import org.mvcspec.ozark.instrumentation.FlightRecorderEvents;
+import org.mvcspec.ozark.instrumentation.MvcMetrics;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
 
 import javax.annotation.Priority;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import org.mvcspec.ozark.engine.Viewable;
 import javax.mvc.Controller;
-import javax.mvc.View;
 import javax.mvc.event.AfterControllerEvent;
 import javax.mvc.event.ControllerRedirectEvent;
 import javax.mvc.event.MvcEvent;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Priorities;
-import javax.ws.rs.Produces;
 import javax.ws.rs.ServerErrorException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
@@ -47,13 +50,10 @@ import javax.ws.rs.core.Variant;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import static javax.ws.rs.core.Response.Status.*;
 import static org.mvcspec.ozark.cdi.OzarkCdiExtension.isEventObserved;
-import static org.mvcspec.ozark.util.AnnotationUtils.getAnnotation;
+import static org.mvcspec.ozark.cdi.OzarkCdiExtension.isEventObservedAsync;
 import static org.mvcspec.ozark.util.PathUtils.*;
 
 /**
@@ -100,9 +100,30 @@ public class ViewResponseFilter implements ContainerResponseFilter {
     @Inject
     private OzarkConfig ozarkConfig;
 
+    @Inject
+    private MvcMetrics metrics;
+
+    @Inject
+    private AsyncEventDispatcher asyncDispatcher;
+
+    @Inject
+    private ControllerMetadataRegistry controllerMetadata;
+
     @Override
     public void filter(ContainerRequestContext requestContext,
                        ContainerResponseContext responseContext) throws IOException {
+        final RequestTiming timing = RequestTiming.get(request);
+        if (timing != null) {
+            timing.controllerReturned(resourceInfo);
+        }
+        final Object controllerStart = requestContext.getProperty(MvcMetrics.CONTROLLER_START);
+        if (controllerStart instanceof Long) {
+            metrics.recordController(resourceInfo.getResourceMethod(), System.nanoTime() - (Long) controllerStart,
+                    responseContext.getStatus() >= INTERNAL_SERVER_ERROR.getStatusCode());
+        }
+        FlightRecorderEvents.commitControllerInvoked(requestContext.getProperty(ViewRequestFilter.CONTROLLER_EVENT),
+                resourceInfo.getResourceMethod(), responseContext.getStatus());
+
         // Fire AfterControllerEvent event
         if (isEventObserved(AfterControllerEvent.class)) {
             final AfterControllerEventImpl event = new AfterControllerEventImpl();
@@ -112,24 +133,26 @@ public class ViewResponseFilter implements ContainerResponseFilter {
             event.setContainerResponseContext(responseContext);
             dispatcher.fire(event);
         }
+        final boolean asyncEvents = ozarkConfig.isAsyncEvents();
+        if (asyncEvents && isEventObservedAsync(AfterControllerEvent.class)) {
+            asyncDispatcher.fire(EventSnapshots.afterController(uriInfo, resourceInfo));
+        }
 
         final Method method = resourceInfo.getResourceMethod();
         final Class<?> returnType = method.getReturnType();
+        final ControllerMetadata metadata = controllerMetadata.get(resourceInfo.getResourceClass(), method);
 
         // Wrap entity type into Viewable, possibly looking at @View
         Object entity = responseContext.getEntity();
         final Class<?> entityType = entity != null ? entity.getClass() : null;
         if (entityType == null) {       // NO_CONTENT
-            View an = getAnnotation(method, View.class);
-            if (an == null) {
-                an = getAnnotation(resourceInfo.getResourceClass(), View.class);
-            }
-            if (an != null) {
-                MediaType contentType = selectVariant(requestContext.getRequest(), resourceInfo);
+            final String view = metadata.getView();
+            if (view != null) {
+                MediaType contentType = selectVariant(requestContext.getRequest(), metadata);
                 if (contentType == null) {
                     contentType = MediaType.TEXT_HTML_TYPE;     // default
                 }
-                responseContext.setEntity(new Viewable(appendExtensionIfRequired(an.value())), null, contentType);
+                responseContext.setEntity(new Viewable(appendExtensionIfRequired(view)), null, contentType);
                 // If the entity is null the status will be set to 204 by Jersey. For void methods we need to
                 // set the status to 200 unless no other status was set by e.g. throwing an Exception.
 
@@ -151,7 +174,7 @@ public class ViewResponseFilter implements ContainerResponseFilter {
 
         // Redirect logic, entity must be a Viewable if not null
         entity = responseContext.getEntity();
-        if (entity != null) {
+        if (entity instanceof Viewable) {
             final String view = appendExtensionIfRequired(((Viewable) entity).getView());
             final String uri = uriInfo.getBaseUri() + noStartingSlash(noPrefix(view, REDIRECT));
             if (view.startsWith(REDIRECT)) {
@@ -162,17 +185,35 @@ public class ViewResponseFilter implements ContainerResponseFilter {
         }
 
         // Fire ControllerRedirectEvent event
-        if (isEventObserved(ControllerRedirectEvent.class)) {
+        final boolean observed = isEventObserved(ControllerRedirectEvent.class);
+        final boolean observedAsync = asyncEvents && isEventObservedAsync(ControllerRedirectEvent.class);
+        if (observed || observedAsync) {
             final int status = responseContext.getStatus();
             if (status == SEE_OTHER.getStatusCode() || status == MOVED_PERMANENTLY.getStatusCode()
                     || status == FOUND.getStatusCode() || status == TEMPORARY_REDIRECT.getStatusCode()) {
-                final ControllerRedirectEventImpl event = new ControllerRedirectEventImpl();
-                event.setUriInfo(uriInfo);
-                event.setResourceInfo(resourceInfo);
-                event.setLocation(URI.create(responseContext.getHeaderString(HttpHeaders.LOCATION)));
-                event.setContainerRequestContext(requestContext);
-                event.setContainerResponseContext(responseContext);
-                dispatcher.fire(event);
+                final URI location = URI.create(responseContext.getHeaderString(HttpHeaders.LOCATION));
+                if (observed) {
+                    final ControllerRedirectEventImpl event = new ControllerRedirectEventImpl();
+                    event.setUriInfo(uriInfo);
+                    event.setResourceInfo(resourceInfo);
+                    event.setLocation(location);
+                    event.setContainerRequestContext(requestContext);
+                    event.setContainerResponseContext(responseContext);
+                    dispatcher.fire(event);
+                }
+                if (observedAsync) {
+                    asyncDispatcher.fire(EventSnapshots.controllerRedirect(uriInfo, resourceInfo, location));
+                }
+            }
+        }
+
+        // Send the phases so far, a view is only logged by ViewableWriter as it's processed after the headers
+        // are written. Everything else, e.g. a redirect, is logged right away.
+        if (timing != null) {
+            timing.setStatus(responseContext.getStatus());
+            responseContext.getHeaders().putSingle(RequestTiming.SERVER_TIMING, timing.getServerTiming());
+            if (!(responseContext.getEntity() instanceof Viewable)) {
+                timing.log();
             }
         }
     }
@@ -197,20 +238,11 @@ public class ViewResponseFilter implements ContainerResponseFilter {
         return resultView;
     }
 
-    private static MediaType selectVariant(Request request, ResourceInfo resourceInfo) {
-
-        Produces produces = resourceInfo.getResourceMethod().getAnnotation(Produces.class);
-        if (produces == null) {
-            produces = getAnnotation(resourceInfo.getResourceClass(), Produces.class);
-        }
-
-        if (produces != null) {
+    private static MediaType selectVariant(Request request, ControllerMetadata metadata) {
 
-            List<Variant> variants = Arrays.stream(produces.value())
-                .map((String mt) -> Variant.mediaTypes(MediaType.valueOf(mt)).build().get(0))
-                .collect(Collectors.toList());
+        if (!metadata.getVariants().isEmpty()) {
 
-            Variant variant = request.selectVariant(variants);
+            Variant variant = request.selectVariant(metadata.getVariants());
             if (variant != null) {
                 return variant.getMediaType();
             }
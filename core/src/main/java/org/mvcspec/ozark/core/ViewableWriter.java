@@ -15,12 +15,22 @@
  */
 package org.mvcspec.ozark.core;
 
+import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.Properties;
 import org.mvcspec.ozark.cdi.OzarkCdiExtension;
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineContextImpl;
 import org.mvcspec.ozark.engine.ViewEngineFinder;
 import org.mvcspec.ozark.engine.Viewable;
 import org.mvcspec.ozark.event.AfterProcessViewEventImpl;
+import org.mvcspec.ozark.event.AsyncEventDispatcher;
 import org.mvcspec.ozark.event.BeforeProcessViewEventImpl;
+import org.mvcspec.ozark.event.EventSnapshots;
+import org.mvcspec.ozark.instrumentation.FlightRecorderEvents;
+import org.mvcspec.ozark.instrumentation.MvcMetrics;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
+import org.mvcspec.ozark.util.PathUtils;
+import org.mvcspec.ozark.util.PropertyUtils;
 
 import javax.enterprise.event.Event;
 import javax.enterprise.inject.Instance;
@@ -96,6 +106,9 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
     @Inject
     private ViewEngineFinder engineFinder;
 
+    @Inject
+    private TemplateRepository templateRepository;
+
     @Context
     private Configuration config;
 
@@ -108,6 +121,15 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
     @Inject
     private MvcContext mvc;
 
+    @Inject
+    private MvcMetrics metrics;
+
+    @Inject
+    private AsyncEventDispatcher asyncDispatcher;
+
+    @Inject
+    private OzarkConfig ozarkConfig;
+
     @Override
     public boolean isWriteable(Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType) {
         return aClass == Viewable.class;
@@ -128,8 +150,17 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
             throws IOException, WebApplicationException {
 
         // Find engine for this Viewable
+        final Object resolveEvent = FlightRecorderEvents.beginViewResolved();
         final ViewEngine engine = engineFinder.find(viewable);
+        FlightRecorderEvents.commitViewResolved(resolveEvent, viewable.getView(),
+                engine != null ? engine.getClass() : null);
         if (engine == null) {
+            // e.g. the body of a mapped exception, which ViewResponseFilter took for a view name
+            final RequestTiming timing = RequestTiming.get(injectedRequest);
+            if (timing != null) {
+                timing.setStatus(INTERNAL_SERVER_ERROR.getStatusCode());
+                timing.log();
+            }
             throw new ServerErrorException(messages.get("NoViewEngine", viewable), INTERNAL_SERVER_ERROR);
         }
 
@@ -138,11 +169,16 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
         HttpServletResponse response = unwrap(injectedResponse, HttpServletResponse.class);
         
         // Create wrapper for response
-        final ServletOutputStream responseStream = new DelegatingServletOutputStream(out);
+        final DelegatingServletOutputStream responseStream = new DelegatingServletOutputStream(out);
         final PrintWriter responseWriter = new PrintWriter(new OutputStreamWriter(responseStream, getCharset(headers)));
         final HttpServletResponse responseWrapper = new MvcHttpServletResponse(response, responseStream, responseWriter);
 
+        final RequestTiming timing = RequestTiming.get(request);
+        final boolean recordMetrics = PropertyUtils.getProperty(config, Properties.JMX_METRICS, false);
+
         // Pass request to view engine
+        Object renderEvent = null;
+        boolean processed = false;
         try {
             // If no models in viewable, inject via CDI
             Models models = viewable.getModels();
@@ -161,9 +197,34 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
                 dispatcher.fire(event);
             }
 
+            // Development mode: watch templates and record the ones used by this view
+            final boolean templateWatch = PropertyUtils.getProperty(config, Properties.TEMPLATE_WATCH, false);
+            if (templateWatch) {
+                final String viewFolder = PropertyUtils.getProperty(config, ViewEngine.VIEW_FOLDER,
+                        ViewEngine.DEFAULT_VIEW_FOLDER);
+                templateRepository.watch(viewFolder);
+                templateRepository.beginRender(resolveView(viewable.getView(), viewFolder));
+            }
+
             // Process view using selected engine
-            engine.processView(new ViewEngineContextImpl(viewable.getView(), models, request, responseWrapper,
-                    headers, responseStream, mediaType, uriInfo, resourceInfo, config, mvc.getLocale()));
+            renderEvent = FlightRecorderEvents.beginViewRendered();
+            final long start = System.nanoTime();
+            try {
+                engine.processView(new ViewEngineContextImpl(viewable.getView(), models, request, responseWrapper,
+                        headers, responseStream, mediaType, uriInfo, resourceInfo, config, mvc.getLocale()));
+                processed = true;
+            } finally {
+                FlightRecorderEvents.endViewRendered(renderEvent);
+                if (templateWatch) {
+                    templateRepository.endRender();
+                }
+                if (timing != null) {
+                    timing.viewProcessed(viewable.getView(), engine.getClass(), start, !processed);
+                }
+                if (recordMetrics) {
+                    metrics.recordView(viewable.getView(), engine.getClass(), System.nanoTime() - start, !processed);
+                }
+            }
 
             // Fire AfterProcessView event
             if (OzarkCdiExtension.isEventObserved(AfterProcessViewEvent.class)) {
@@ -172,13 +233,33 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
                 event.setView(viewable.getView());
                 dispatcher.fire(event);
             }
+            if (OzarkCdiExtension.isEventObservedAsync(AfterProcessViewEvent.class)
+                    && ozarkConfig.isAsyncEvents()) {
+                asyncDispatcher.fire(EventSnapshots.afterProcessView(viewable.getView(), engine.getClass()));
+            }
         } catch (ViewEngineException e) {
             throw new ServerErrorException(INTERNAL_SERVER_ERROR, e);
         } finally {
             responseWriter.flush();
+            // only committed now, flushing earlier would commit the response before the observers of the
+            // AfterProcessViewEvent run
+            if (renderEvent != null) {
+                FlightRecorderEvents.commitViewRendered(renderEvent, viewable.getView(), engine.getClass(),
+                        responseStream.getCount(), !processed);
+            }
+            if (timing != null) {
+                timing.log();
+            }
         }
     }
 
+    /**
+     * Resolves the view path the same way as {@link org.mvcspec.ozark.engine.ViewEngineBase}.
+     */
+    private static String resolveView(String view, String viewFolder) {
+        return PathUtils.hasStartingSlash(view) ? view : PathUtils.ensureEndingSlash(viewFolder) + view;
+    }
+
     /**
      * This method is basically a dirty hack to get Ozark work on WebSphere Liberty.
      * The primary use case is to unwrap the original request/response from the wrapper we get
@@ -242,12 +323,14 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
 
     /**
      * Implementation of {@link ServletOutputStream} which delegate all write operations
-     * to an underlying {@link OutputStream} provided by JAX-RS.
+     * to an underlying {@link OutputStream} provided by JAX-RS and counts the bytes written.
      */
     private static class DelegatingServletOutputStream extends ServletOutputStream {
         
         private final OutputStream out;
 
+        private long count;
+
         public DelegatingServletOutputStream(OutputStream out) {
             this.out = out;
         }
@@ -255,6 +338,17 @@ public class ViewableWriter implements MessageBodyWriter<Viewable> {
         @Override
         public void write(final int b) throws IOException {
             out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
         }
 
         @Override
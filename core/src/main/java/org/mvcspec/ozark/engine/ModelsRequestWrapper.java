@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import javax.mvc.Models;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * <p>Request which exposes the entries of {@link Models} as request attributes, without
+ * copying them into the wrapped request. The models are looked up when an attribute is
+ * read and take precedence over attributes of the wrapped request with the same name.</p>
+ *
+ * <p>Attributes which are set or removed through this request are written to the wrapped
+ * request and hide the model with the same name from then on, so the view sees the same
+ * values as if the models had been copied before the forward.</p>
+ */
+class ModelsRequestWrapper extends HttpServletRequestWrapper {
+
+    private final Models models;
+
+    private Set<String> hidden;
+
+    ModelsRequestWrapper(HttpServletRequest request, Models models) {
+        super(request);
+        this.models = models;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        if (name != null && !isHidden(name)) {
+            final Object model = models.get(name);
+            if (model != null) {
+                return model;
+            }
+        }
+        return super.getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        final Set<String> names = new LinkedHashSet<>();
+        for (String name : models) {
+            if (!isHidden(name) && models.get(name) != null) {
+                names.add(name);
+            }
+        }
+        names.addAll(Collections.list(super.getAttributeNames()));
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        hide(name);
+        super.setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        hide(name);
+        super.removeAttribute(name);
+    }
+
+    private boolean isHidden(String name) {
+        return hidden != null && hidden.contains(name);
+    }
+
+    private void hide(String name) {
+        if (hidden == null) {
+            hidden = new HashSet<>();
+        }
+        hidden.add(name);
+    }
+
+}
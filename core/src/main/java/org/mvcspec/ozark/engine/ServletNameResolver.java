@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRegistration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Finds the servlet which is mapped to a set of extensions, as used by
+ * {@link ServletViewEngine} to forward requests. The servlet registrations are searched
+ * once for each set of extensions and the result is cached, as servlets can't be
+ * registered once the servlet context is initialized.</p>
+ *
+ * <p>If the cached servlet has no dispatcher anymore, {@link #evict(String...)} removes
+ * the entry, so the registrations are searched again on the next request.</p>
+ */
+@ApplicationScoped
+public class ServletNameResolver {
+
+    @Inject
+    ServletContext servletContext;
+
+    private final ConcurrentMap<List<String>, Optional<String>> servletNames = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the name of the servlet whose mappings contain all given extensions.
+     *
+     * @param extensions the extensions, e.g. {@code *.jsp}.
+     * @return the servlet name or {@code null} if no servlet matches.
+     */
+    public String getServletName(String... extensions) {
+        final List<String> key = Arrays.asList(extensions);
+        Optional<String> servletName = servletNames.get(key);
+        if (servletName == null) {
+            servletName = servletNames.computeIfAbsent(key, this::findServletName);
+        }
+        return servletName.orElse(null);
+    }
+
+    /**
+     * Removes the cached servlet for the given extensions.
+     *
+     * @param extensions the extensions as passed to {@link #getServletName(String...)}.
+     */
+    public void evict(String... extensions) {
+        servletNames.remove(Arrays.asList(extensions));
+    }
+
+    private Optional<String> findServletName(List<String> extensions) {
+        for (Map.Entry<String, ? extends ServletRegistration> e : servletContext.getServletRegistrations().entrySet()) {
+            final Collection<String> mappings = e.getValue().getMappings();
+            // the 'mappings' collection may be null on Liberty (see #200)
+            if (mappings != null && mappings.containsAll(extensions)) {
+                return Optional.of(e.getKey());
+            }
+        }
+        return Optional.empty();
+    }
+
+}
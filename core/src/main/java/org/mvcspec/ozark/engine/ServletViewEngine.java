@@ -21,20 +21,16 @@ import javax.mvc.engine.ViewEngineContext;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
-import javax.servlet.ServletRegistration;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Map;
 
 /**
  * Base class for servlet-based view engines like JSPs and Facelets. Implements
  * a forward mechanism that attempts to avoid the standard servlet matching by
  * first looking at servlets that handle the specified extensions directly.
+ * The servlet for a set of extensions is looked up once by {@link ServletNameResolver}.
  *
  * @author Santiago Pericas-Geertsen
  */
@@ -43,6 +39,9 @@ public abstract class ServletViewEngine extends ViewEngineBase {
     @Inject
     protected ServletContext servletContext;
 
+    @Inject
+    private ServletNameResolver servletNameResolver;
+
     /**
      * <p>Forwards request to servlet container. Search for a servlet by matching
      * the supplied extensions; if that fails, execute a normal forward via
@@ -54,6 +53,9 @@ public abstract class ServletViewEngine extends ViewEngineBase {
      * (or JAX-RS). Thus, it is important to try to find the servlet using extensions
      * first instead of matching.</p>
      *
+     * <p>The models are not copied into the request. They are visible as attributes of
+     * the forwarded request only, see {@link ModelsRequestWrapper}.</p>
+     *
      * @param context view engine context.
      * @param extensions list of extensions that need to match.
      * @throws ServletException if there is an error with the forward.
@@ -61,61 +63,71 @@ public abstract class ServletViewEngine extends ViewEngineBase {
      */
     protected void forwardRequest(ViewEngineContext context, String... extensions)
             throws ServletException, IOException {
-        RequestDispatcher rd = null;
-        HttpServletRequest request = context.getRequest(HttpServletRequest.class);
+        final HttpServletRequest request = context.getRequest(HttpServletRequest.class);
         final HttpServletResponse response = context.getResponse(HttpServletResponse.class);
-
-        // Set attributes in request before forward
         final Models models = context.getModels();
-        for (String name : models) {
-            request.setAttribute(name, models.get(name));
-        }
+        final String view = resolveView(context);
 
         // Find request dispatcher based on extensions
-        for (Map.Entry<String, ? extends ServletRegistration> e : servletContext.getServletRegistrations().entrySet()) {
-            final Collection<String> mappings = e.getValue().getMappings();
-            // the 'mappings' collection may be null on Liberty (see #200)
-            if (mappings != null && mappings.containsAll(Arrays.asList(extensions))) {
-                rd = servletContext.getNamedDispatcher(e.getKey());     // by servlet name
-
-                // Need new request with updated URI and extension matching semantics
-                request = new HttpServletRequestWrapper(context.getRequest(HttpServletRequest.class)) {
-                    @Override
-                    public String getRequestURI() {
-                        return resolveView(context);
-                    }
-
-                    @Override
-                    public String getServletPath() {
-                        return resolveView(context);
-                    }
-
-                    @Override
-                    public String getPathInfo() {
-                        return null;
-                    }
-
-                    @Override
-                    public StringBuffer getRequestURL() {
-                        return new StringBuffer(getRequestURI());
-                    }
-                };
-                break;
+        RequestDispatcher rd = null;
+        final String servletName = servletNameResolver.getServletName(extensions);
+        if (servletName != null) {
+            rd = servletContext.getNamedDispatcher(servletName);     // by servlet name
+            if (rd == null) {
+                servletNameResolver.evict(extensions);
             }
         }
 
-        // If none found, go through servlet mapping
-        if (rd == null) {
-            rd = servletContext.getRequestDispatcher(resolveView(context));
-        }
-
         /*
          * The RequestDispatcher contract requires us to pass in the original request/response
          * instances or standard wrapper classes. As we get the request/response from JAX-RS,
          * we cannot assume that we get the "original" request/response. So we use wrapper classes
-         * for the forward.
+         * for the forward. The request wrapper also exposes the models as request attributes.
          */
-        rd.forward(new HttpServletRequestWrapper(request), new HttpServletResponseWrapper(response));
-        
+        final HttpServletRequest forwardedRequest;
+        if (rd != null) {
+            // Need new request with updated URI and extension matching semantics
+            forwardedRequest = new ForwardedRequest(request, models, view);
+        } else {
+            // If none found, go through servlet mapping
+            rd = servletContext.getRequestDispatcher(view);
+            forwardedRequest = new ModelsRequestWrapper(request, models);
+        }
+        rd.forward(forwardedRequest, new HttpServletResponseWrapper(response));
+
+    }
+
+    /**
+     * Request forwarded to a servlet by name, which looks like a request for the view.
+     */
+    private static class ForwardedRequest extends ModelsRequestWrapper {
+
+        private final String view;
+
+        ForwardedRequest(HttpServletRequest request, Models models, String view) {
+            super(request, models);
+            this.view = view;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return view;
+        }
+
+        @Override
+        public String getServletPath() {
+            return view;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return null;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            return new StringBuffer(view);
+        }
+
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+/**
+ * Listener notified by the {@link TemplateRepository} if a template has been modified
+ * or removed. View engines with their own template cache can use this to drop compiled
+ * templates.
+ *
+ * @see TemplateRepository#addChangeListener(TemplateChangeListener)
+ */
+@FunctionalInterface
+public interface TemplateChangeListener {
+
+    /**
+     * @param path the path of the changed template relative to the web application root.
+     */
+    void templateChanged(String path);
+
+}
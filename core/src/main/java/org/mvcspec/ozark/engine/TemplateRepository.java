@@ -0,0 +1,369 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import org.mvcspec.ozark.util.PathUtils;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Shared source of view templates for all view engines. Templates are read from the
+ * {@link ServletContext} once and the bytes are kept in a bounded in-memory cache, so
+ * template I/O is paid once per file instead of once per engine and request.</p>
+ *
+ * <p>Cached templates are checked for modifications at most once per check interval.
+ * Modifications can only be detected for templates available as files (i.e., exploded
+ * deployments), templates loaded from an archive are cached until they are evicted or
+ * invalidated. Listeners registered with {@link #addChangeListener(TemplateChangeListener)}
+ * are notified if a modification is detected or a template is invalidated.</p>
+ *
+ * <p>In development mode, see {@link org.mvcspec.ozark.Properties#TEMPLATE_WATCH}, the view
+ * folder is watched for changes instead and templates in it are never checked on access.
+ * Templates loaded while rendering a view are recorded as dependencies of that view, so a
+ * change to an include or layout also invalidates all views using it.</p>
+ *
+ * <p>View engine extensions use this class through adapters for the loader SPI of the
+ * respective template library.</p>
+ */
+@ApplicationScoped
+public class TemplateRepository {
+
+    private static final Logger log = Logger.getLogger(TemplateRepository.class.getName());
+
+    /**
+     * Maximum number of cached templates.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+
+    /**
+     * Templates larger than this number of bytes are not cached.
+     */
+    public static final int DEFAULT_MAX_TEMPLATE_SIZE = 256 * 1024;
+
+    /**
+     * Interval in milliseconds after which a cached template is checked for modifications.
+     */
+    public static final long DEFAULT_CHECK_INTERVAL = 2000L;
+
+    @Inject
+    private ServletContext servletContext;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final List<TemplateChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Map<String, TemplateWatcher> watchers = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> dependents = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<String> rendering = new ThreadLocal<>();
+
+    private final int maxEntries;
+
+    private final int maxTemplateSize;
+
+    private final long checkIntervalNanos;
+
+    public TemplateRepository() {
+        this(null, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_TEMPLATE_SIZE, DEFAULT_CHECK_INTERVAL);
+    }
+
+    TemplateRepository(ServletContext servletContext, int maxEntries, int maxTemplateSize, long checkInterval) {
+        this.servletContext = servletContext;
+        this.maxEntries = maxEntries;
+        this.maxTemplateSize = maxTemplateSize;
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkInterval);
+    }
+
+    /**
+     * Returns the template with the given path.
+     *
+     * @param path path of the template relative to the web application root.
+     * @return the template or an empty optional if there is no such template.
+     * @throws IOException if reading the template fails.
+     */
+    public Optional<TemplateSource> find(String path) throws IOException {
+        Objects.requireNonNull(path, "path must not be null");
+
+        final String view = rendering.get();
+        if (view != null && !view.equals(path)) {
+            dependents.computeIfAbsent(path, p -> ConcurrentHashMap.newKeySet()).add(view);
+        }
+
+        final Entry entry = cache.get(path);
+        if (entry != null) {
+            final long now = System.nanoTime();
+            if (now - entry.checked < checkIntervalNanos || isWatched(path)) {
+                return Optional.of(entry.source);
+            }
+            if (readLastModified(path) == entry.source.getLastModified()) {
+                entry.checked = now;
+                return Optional.of(entry.source);
+            }
+            if (cache.remove(path, entry)) {
+                fireTemplateChanged(path);
+            }
+        }
+
+        return Optional.ofNullable(load(path));
+    }
+
+    /**
+     * Returns the template with the given path.
+     *
+     * @param path path of the template relative to the web application root.
+     * @return the template.
+     * @throws FileNotFoundException if there is no such template.
+     * @throws IOException if reading the template fails.
+     */
+    public TemplateSource get(String path) throws IOException {
+        return find(path).orElseThrow(() -> new FileNotFoundException("Template not found: " + path));
+    }
+
+    /**
+     * Returns the last modification time of a template without reading it again if it is
+     * cached and has been checked within the check interval.
+     *
+     * @param path path of the template relative to the web application root.
+     * @return the modification time or {@code -1} if unknown or the template doesn't exist.
+     * @throws IOException if reading the template fails.
+     */
+    public long getLastModified(String path) throws IOException {
+        return find(path).map(TemplateSource::getLastModified).orElse(-1L);
+    }
+
+    /**
+     * Removes a template and all views known to depend on it from the cache and notifies
+     * all listeners for each of them.
+     *
+     * @param path path of the template relative to the web application root.
+     */
+    public void invalidate(String path) {
+        final Set<String> invalidated = new HashSet<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        pending.add(path);
+        while (!pending.isEmpty()) {
+            final String current = pending.poll();
+            if (invalidated.add(current)) {
+                cache.remove(current);
+                fireTemplateChanged(current);
+                pending.addAll(dependents.getOrDefault(current, Collections.emptySet()));
+            }
+        }
+    }
+
+    /**
+     * Removes all templates from the cache and notifies all listeners.
+     */
+    public void invalidateAll() {
+        for (String path : cache.keySet()) {
+            invalidate(path);
+        }
+    }
+
+    /**
+     * Starts watching the given folder for changes. Does nothing if the folder is already
+     * watched or isn't available as a directory (e.g., the application is deployed as an archive).
+     *
+     * @param folder the folder relative to the web application root.
+     */
+    public void watch(String folder) {
+        final String normalized = PathUtils.ensureEndingSlash(PathUtils.ensureStartingSlash(folder));
+        if (watchers.containsKey(normalized)) {
+            return;
+        }
+        synchronized (watchers) {
+            if (watchers.containsKey(normalized)) {
+                return;
+            }
+            final String realPath = servletContext.getRealPath(normalized);
+            if (realPath == null || !new File(realPath).isDirectory()) {
+                log.warning("Cannot watch templates in " + normalized + ", the folder is not available as a directory");
+                return;
+            }
+            try {
+                final TemplateWatcher watcher = new TemplateWatcher(this, Paths.get(realPath), normalized);
+                watcher.start();
+                watchers.put(normalized, watcher);
+                log.info("Watching templates in " + realPath);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Cannot watch templates in " + realPath, e);
+            }
+        }
+    }
+
+    /**
+     * Marks the beginning of rendering a view on the current thread. All templates read until
+     * {@link #endRender()} is called are recorded as dependencies of the view.
+     *
+     * @param view path of the view relative to the web application root.
+     */
+    public void beginRender(String view) {
+        rendering.set(view);
+    }
+
+    /**
+     * Marks the end of rendering a view on the current thread.
+     */
+    public void endRender() {
+        rendering.remove();
+    }
+
+    @PreDestroy
+    public void close() {
+        for (TemplateWatcher watcher : watchers.values()) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                log.log(Level.FINE, "Failed to stop template watcher", e);
+            }
+        }
+        watchers.clear();
+    }
+
+    public void addChangeListener(TemplateChangeListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    public void removeChangeListener(TemplateChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private TemplateSource load(String path) throws IOException {
+
+        // read the timestamp first, so a concurrent modification is detected by the next check
+        final long lastModified = readLastModified(path);
+
+        final byte[] content;
+        try (InputStream in = servletContext.getResourceAsStream(path)) {
+            if (in == null) {
+                return null;
+            }
+            content = readFully(in);
+        }
+
+        final TemplateSource source = new TemplateSource(path, content, lastModified);
+        if (content.length <= maxTemplateSize) {
+            cache.put(path, new Entry(source, System.nanoTime()));
+            if (cache.size() > maxEntries) {
+                evictOldest();
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Removes the entry loaded first. Only called if the cache is full, so scanning the
+     * entries is cheaper than maintaining an ordered structure on every access.
+     */
+    private void evictOldest() {
+        Map.Entry<String, Entry> oldest = null;
+        for (Map.Entry<String, Entry> e : cache.entrySet()) {
+            if (oldest == null || e.getValue().loaded - oldest.getValue().loaded < 0) {
+                oldest = e;
+            }
+        }
+        if (oldest != null) {
+            cache.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private boolean isWatched(String path) {
+        if (watchers.isEmpty()) {
+            return false;
+        }
+        for (TemplateWatcher watcher : watchers.values()) {
+            if (watcher.covers(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long readLastModified(String path) {
+        final String realPath = servletContext.getRealPath(path);
+        if (realPath != null) {
+            final File file = new File(realPath);
+            return file.exists() ? file.lastModified() : 0L;
+        }
+        try {
+            return servletContext.getResource(path) != null ? -1L : 0L;
+        } catch (MalformedURLException e) {
+            return 0L;
+        }
+    }
+
+    private void fireTemplateChanged(String path) {
+        for (TemplateChangeListener listener : listeners) {
+            try {
+                listener.templateChanged(path);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Template change listener failed for " + path, e);
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        final byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static class Entry {
+
+        private final TemplateSource source;
+
+        private final long loaded;
+
+        private volatile long checked;
+
+        Entry(TemplateSource source, long loaded) {
+            this.source = source;
+            this.loaded = loaded;
+            this.checked = loaded;
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of a template loaded by the {@link TemplateRepository}. The raw
+ * bytes are kept, so the same snapshot can be shared by view engines reading the template
+ * with different encodings.
+ *
+ * @see TemplateRepository
+ */
+public final class TemplateSource {
+
+    private final String path;
+
+    private final byte[] content;
+
+    private final long lastModified;
+
+    TemplateSource(String path, byte[] content, long lastModified) {
+        this.path = Objects.requireNonNull(path, "path must not be null");
+        this.content = Objects.requireNonNull(content, "content must not be null");
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return the path of the template relative to the web application root.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the time the template was last modified or {@code -1} if unknown.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the size of the template in bytes.
+     */
+    public int getLength() {
+        return content.length;
+    }
+
+    /**
+     * @return a new stream for reading the template bytes.
+     */
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * @param charset the encoding of the template.
+     * @return a new reader for the template.
+     */
+    public Reader getReader(Charset charset) {
+        return new InputStreamReader(getInputStream(), charset);
+    }
+
+    /**
+     * @param charset the encoding of the template.
+     * @return the decoded template.
+     */
+    public String getContent(Charset charset) {
+        return new String(content, charset);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches an exploded view folder and invalidates changed templates in the
+ * {@link TemplateRepository}. Used in development mode only, see
+ * {@link org.mvcspec.ozark.Properties#TEMPLATE_WATCH}.
+ */
+class TemplateWatcher implements Runnable, Closeable {
+
+    private static final Logger log = Logger.getLogger(TemplateWatcher.class.getName());
+
+    private final TemplateRepository repository;
+
+    private final Path directory;
+
+    private final String folder;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+    /**
+     * @param repository the repository to invalidate templates in.
+     * @param directory  the file system directory of the view folder.
+     * @param folder     the view folder relative to the web application root, ending with a slash.
+     * @throws IOException if the directory cannot be watched.
+     */
+    TemplateWatcher(TemplateRepository repository, Path directory, String folder) throws IOException {
+        this.repository = repository;
+        this.directory = directory;
+        this.folder = folder;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerAll(directory);
+    }
+
+    /**
+     * Starts watching in a daemon thread.
+     */
+    void start() {
+        final Thread thread = new Thread(this, "ozark-template-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param path template path relative to the web application root.
+     * @return whether the template is located in the watched folder.
+     */
+    boolean covers(String path) {
+        return path.startsWith(folder);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                final Path dir = keys.get(key);
+                if (dir != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        handle(dir, event);
+                    }
+                }
+                if (!key.reset()) {
+                    keys.remove(key);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) { // NOPMD ignore empty catch block
+            // watcher was closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void handle(Path dir, WatchEvent<?> event) {
+
+        if (event.kind() == OVERFLOW) {
+            log.fine("Template watch events lost, invalidating all templates");
+            repository.invalidateAll();
+            return;
+        }
+
+        final Path child = dir.resolve((Path) event.context());
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                registerAll(child);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Cannot watch template directory " + child, e);
+            }
+        }
+
+        final StringBuilder path = new StringBuilder(folder);
+        for (Path segment : directory.relativize(child)) {
+            if (path.charAt(path.length() - 1) != '/') {
+                path.append('/');
+            }
+            path.append(segment.toString());
+        }
+        log.fine(() -> "Template changed: " + path);
+        repository.invalidate(path.toString());
+
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+}
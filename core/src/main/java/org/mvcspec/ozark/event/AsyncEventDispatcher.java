@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.event;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.NotificationOptions;
+import javax.inject.Inject;
+import javax.mvc.event.MvcEvent;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Fires MVC events to observers declared with {@code @ObservesAsync}, if enabled by
+ * {@link org.mvcspec.ozark.Properties#ASYNC_EVENTS}. Requires CDI 2.0.</p>
+ *
+ * <p>Observers are notified on the default managed executor service of the container.
+ * If there is none, the default executor of the CDI implementation is used. Exceptions
+ * thrown by observers are logged.</p>
+ */
+@ApplicationScoped
+public class AsyncEventDispatcher {
+
+    private static final Logger log = Logger.getLogger(AsyncEventDispatcher.class.getName());
+
+    private static final String DEFAULT_EXECUTOR = "java:comp/DefaultManagedExecutorService";
+
+    @Inject
+    private Event<MvcEvent> dispatcher;
+
+    private NotificationOptions options;
+
+    @PostConstruct
+    public void init() {
+        final Executor executor = lookupExecutor();
+        options = executor != null ? NotificationOptions.ofExecutor(executor) : NotificationOptions.builder().build();
+    }
+
+    /**
+     * Fires the event asynchronously. The event must not refer to request scoped objects,
+     * see {@link EventSnapshots}.
+     *
+     * @param event the event.
+     */
+    public void fire(MvcEvent event) {
+        dispatcher.fireAsync(event, options).whenComplete((e, t) -> {
+            if (t != null) {
+                log.log(Level.WARNING, "Asynchronous observer of " + event.getClass().getName() + " failed", t);
+            }
+        });
+    }
+
+    private static Executor lookupExecutor() {
+        try {
+            final Object executor = new InitialContext().lookup(DEFAULT_EXECUTOR);
+            if (executor instanceof Executor) {
+                return (Executor) executor;
+            }
+        } catch (NamingException e) {
+            log.log(Level.FINE, "No managed executor service found", e);
+        }
+        return null;
+    }
+
+}
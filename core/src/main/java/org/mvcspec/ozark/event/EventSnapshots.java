@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.event;
+
+import javax.mvc.engine.ViewEngine;
+import javax.mvc.event.AfterControllerEvent;
+import javax.mvc.event.AfterProcessViewEvent;
+import javax.mvc.event.ControllerRedirectEvent;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.UriInfo;
+import java.lang.reflect.Method;
+import java.net.URI;
+
+/**
+ * <p>Creates immutable copies of MVC events for asynchronous observers. Unlike the
+ * event implementations fired synchronously, the copies don't refer to request scoped
+ * objects, so they can be used after the request has completed.</p>
+ */
+public final class EventSnapshots {
+
+    private EventSnapshots() {
+        // static methods only
+    }
+
+    /**
+     * @param uriInfo      the URI info of the current request.
+     * @param resourceInfo the matched resource.
+     * @return a copy of the event fired after the controller returned.
+     */
+    public static AfterControllerEvent afterController(UriInfo uriInfo, ResourceInfo resourceInfo) {
+        return new AfterController(new UriInfoSnapshot(uriInfo), new ResourceInfoSnapshot(resourceInfo));
+    }
+
+    /**
+     * @param uriInfo      the URI info of the current request.
+     * @param resourceInfo the matched resource.
+     * @param location     the redirect location.
+     * @return a copy of the event fired when the controller redirected.
+     */
+    public static ControllerRedirectEvent controllerRedirect(UriInfo uriInfo, ResourceInfo resourceInfo,
+                                                             URI location) {
+        return new ControllerRedirect(new UriInfoSnapshot(uriInfo), new ResourceInfoSnapshot(resourceInfo),
+                location);
+    }
+
+    /**
+     * @param view   the view which was processed.
+     * @param engine the engine which processed the view.
+     * @return a copy of the event fired after the view was processed.
+     */
+    public static AfterProcessViewEvent afterProcessView(String view, Class<? extends ViewEngine> engine) {
+        return new AfterProcessView(view, engine);
+    }
+
+    private static final class ResourceInfoSnapshot implements ResourceInfo {
+
+        private final Method resourceMethod;
+
+        private final Class<?> resourceClass;
+
+        private ResourceInfoSnapshot(ResourceInfo resourceInfo) {
+            this.resourceMethod = resourceInfo.getResourceMethod();
+            this.resourceClass = resourceInfo.getResourceClass();
+        }
+
+        @Override
+        public Method getResourceMethod() {
+            return resourceMethod;
+        }
+
+        @Override
+        public Class<?> getResourceClass() {
+            return resourceClass;
+        }
+
+    }
+
+    private static final class AfterController implements AfterControllerEvent {
+
+        private final UriInfo uriInfo;
+
+        private final ResourceInfo resourceInfo;
+
+        private AfterController(UriInfo uriInfo, ResourceInfo resourceInfo) {
+            this.uriInfo = uriInfo;
+            this.resourceInfo = resourceInfo;
+        }
+
+        @Override
+        public UriInfo getUriInfo() {
+            return uriInfo;
+        }
+
+        @Override
+        public ResourceInfo getResourceInfo() {
+            return resourceInfo;
+        }
+
+    }
+
+    /**
+     * Doesn't extend {@link AfterController}, which would notify its observers as well.
+     */
+    private static final class ControllerRedirect implements ControllerRedirectEvent {
+
+        private final UriInfo uriInfo;
+
+        private final ResourceInfo resourceInfo;
+
+        private final URI location;
+
+        private ControllerRedirect(UriInfo uriInfo, ResourceInfo resourceInfo, URI location) {
+            this.uriInfo = uriInfo;
+            this.resourceInfo = resourceInfo;
+            this.location = location;
+        }
+
+        @Override
+        public UriInfo getUriInfo() {
+            return uriInfo;
+        }
+
+        @Override
+        public ResourceInfo getResourceInfo() {
+            return resourceInfo;
+        }
+
+        @Override
+        public URI getLocation() {
+            return location;
+        }
+
+    }
+
+    private static final class AfterProcessView implements AfterProcessViewEvent {
+
+        private final String view;
+
+        private final Class<? extends ViewEngine> engine;
+
+        private AfterProcessView(String view, Class<? extends ViewEngine> engine) {
+            this.view = view;
+            this.engine = engine;
+        }
+
+        @Override
+        public String getView() {
+            return view;
+        }
+
+        @Override
+        public Class<? extends ViewEngine> getEngine() {
+            return engine;
+        }
+
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.event;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copy of a {@link UriInfo} which can be used after the request has completed. The maps
+ * returned are copies, so changes don't affect other observers. The matched resources are
+ * bound to the request and therefore not included.
+ */
+class UriInfoSnapshot implements UriInfo {
+
+    private final URI requestUri;
+
+    private final URI absolutePath;
+
+    private final URI baseUri;
+
+    private final String path;
+
+    private final String encodedPath;
+
+    private final List<PathSegment> pathSegments;
+
+    private final List<PathSegment> encodedPathSegments;
+
+    private final MultivaluedMap<String, String> pathParameters;
+
+    private final MultivaluedMap<String, String> encodedPathParameters;
+
+    private final MultivaluedMap<String, String> queryParameters;
+
+    private final MultivaluedMap<String, String> encodedQueryParameters;
+
+    private final List<String> matchedUris;
+
+    private final List<String> encodedMatchedUris;
+
+    UriInfoSnapshot(UriInfo uriInfo) {
+        this.requestUri = uriInfo.getRequestUri();
+        this.absolutePath = uriInfo.getAbsolutePath();
+        this.baseUri = uriInfo.getBaseUri();
+        this.path = uriInfo.getPath(true);
+        this.encodedPath = uriInfo.getPath(false);
+        this.pathSegments = copy(uriInfo.getPathSegments(true));
+        this.encodedPathSegments = copy(uriInfo.getPathSegments(false));
+        this.pathParameters = copy(uriInfo.getPathParameters(true));
+        this.encodedPathParameters = copy(uriInfo.getPathParameters(false));
+        this.queryParameters = copy(uriInfo.getQueryParameters(true));
+        this.encodedQueryParameters = copy(uriInfo.getQueryParameters(false));
+        this.matchedUris = copy(uriInfo.getMatchedURIs(true));
+        this.encodedMatchedUris = copy(uriInfo.getMatchedURIs(false));
+    }
+
+    @Override
+    public String getPath() {
+        return getPath(true);
+    }
+
+    @Override
+    public String getPath(boolean decode) {
+        return decode ? path : encodedPath;
+    }
+
+    @Override
+    public List<PathSegment> getPathSegments() {
+        return getPathSegments(true);
+    }
+
+    @Override
+    public List<PathSegment> getPathSegments(boolean decode) {
+        return decode ? pathSegments : encodedPathSegments;
+    }
+
+    @Override
+    public URI getRequestUri() {
+        return requestUri;
+    }
+
+    @Override
+    public UriBuilder getRequestUriBuilder() {
+        return UriBuilder.fromUri(requestUri);
+    }
+
+    @Override
+    public URI getAbsolutePath() {
+        return absolutePath;
+    }
+
+    @Override
+    public UriBuilder getAbsolutePathBuilder() {
+        return UriBuilder.fromUri(absolutePath);
+    }
+
+    @Override
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public UriBuilder getBaseUriBuilder() {
+        return UriBuilder.fromUri(baseUri);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getPathParameters() {
+        return getPathParameters(true);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getPathParameters(boolean decode) {
+        return copy(decode ? pathParameters : encodedPathParameters);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getQueryParameters() {
+        return getQueryParameters(true);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getQueryParameters(boolean decode) {
+        return copy(decode ? queryParameters : encodedQueryParameters);
+    }
+
+    @Override
+    public List<String> getMatchedURIs() {
+        return getMatchedURIs(true);
+    }
+
+    @Override
+    public List<String> getMatchedURIs(boolean decode) {
+        return decode ? matchedUris : encodedMatchedUris;
+    }
+
+    @Override
+    public List<Object> getMatchedResources() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public URI resolve(URI uri) {
+        return baseUri.resolve(uri);
+    }
+
+    @Override
+    public URI relativize(URI uri) {
+        final URI absolute = uri.isAbsolute() ? uri : resolve(uri);
+        return requestUri.resolve(".").relativize(absolute);
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    private static MultivaluedMap<String, String> copy(MultivaluedMap<String, String> map) {
+        final MultivaluedMap<String, String> copy = new MultivaluedHashMap<>();
+        map.forEach((key, values) -> copy.put(key, new ArrayList<>(values)));
+        return copy;
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.index;
+
+import org.mvcspec.ozark.util.ControllerUtils;
+
+import javax.mvc.Controller;
+import javax.ws.rs.Path;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mvcspec.ozark.util.AnnotationUtils.hasAnnotationOnClassOrMethod;
+
+/**
+ * <p>Index of JAX-RS resources and MVC controllers generated at compile time by
+ * {@link ControllerIndexProcessor}. It tells which classes are controllers and which of
+ * their methods are controller methods, so these don't have to be found by scanning all
+ * methods reflectively during startup.</p>
+ *
+ * <p>Classes which aren't listed in any index, e.g. because they were compiled without
+ * the processor or have a supertype from another compilation, are inspected using
+ * reflection. The entries of listed classes are trusted without checking the class, so
+ * an index must be regenerated whenever its classes change. An index is a UTF-8 text
+ * file with one entry per line:</p>
+ *
+ * <pre>
+ * controller com.example.BooksController
+ * method com.example.BooksController list()
+ * method com.example.BooksController save(java.lang.String,int)
+ * resource com.example.BooksResource
+ * </pre>
+ *
+ * <p>Methods are identified by their name and the {@link Class#getName() names} of their
+ * parameter types.</p>
+ */
+public final class ControllerIndex {
+
+    /**
+     * The location of the index in the class path. Each jar or class directory may contain
+     * its own index.
+     */
+    public static final String RESOURCE = "META-INF/ozark/controller-index";
+
+    static final String CONTROLLER = "controller";
+
+    static final String RESOURCE_CLASS = "resource";
+
+    static final String METHOD = "method";
+
+    private static final Logger log = Logger.getLogger(ControllerIndex.class.getName());
+
+    private static final ControllerIndex EMPTY = new ControllerIndex(Collections.emptyMap());
+
+    private final Map<String, Entry> entries;
+
+    private ControllerIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return an index without entries, which inspects all classes using reflection.
+     */
+    public static ControllerIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Loads all indexes visible to the given class loader.
+     *
+     * @param classLoader the class loader of the application.
+     * @return the merged index, which is empty if none was found or reading failed.
+     */
+    public static ControllerIndex load(ClassLoader classLoader) {
+        final Map<String, Entry> entries = new HashMap<>();
+        try {
+            final Enumeration<URL> urls = classLoader.getResources(RESOURCE);
+            while (urls.hasMoreElements()) {
+                try (InputStream in = urls.nextElement().openStream()) {
+                    read(new InputStreamReader(in, StandardCharsets.UTF_8), entries);
+                }
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Cannot read controller index, falling back to reflection", e);
+            return EMPTY;
+        }
+        return entries.isEmpty() ? EMPTY : new ControllerIndex(entries);
+    }
+
+    static ControllerIndex read(Reader reader) throws IOException {
+        final Map<String, Entry> entries = new HashMap<>();
+        read(reader, entries);
+        return new ControllerIndex(entries);
+    }
+
+    private static void read(Reader reader, Map<String, Entry> entries) throws IOException {
+        final BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            final String[] tokens = line.trim().split(" ");
+            if (tokens.length < 2) {
+                continue;
+            }
+            final Entry entry = entries.computeIfAbsent(tokens[1], name -> new Entry());
+            if (CONTROLLER.equals(tokens[0])) {
+                entry.controller = true;
+            } else if (METHOD.equals(tokens[0]) && tokens.length > 2) {
+                entry.methods.add(tokens[2]);
+            }
+        }
+    }
+
+    /**
+     * @return whether this index has no entries.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Tests if the given class is an MVC controller, that is if {@link Path} and
+     * {@link Controller} are present on the class or any of its methods.
+     *
+     * @param clazz the class.
+     * @return outcome of test.
+     */
+    public boolean isController(Class<?> clazz) {
+        final Entry entry = entries.get(clazz.getName());
+        if (entry != null) {
+            return entry.controller;
+        }
+        return hasAnnotationOnClassOrMethod(clazz, Path.class)
+                && hasAnnotationOnClassOrMethod(clazz, Controller.class);
+    }
+
+    /**
+     * Returns the controller methods of the given class as defined by
+     * {@link ControllerUtils#isControllerMethod(Method)}.
+     *
+     * @param clazz the controller class.
+     * @return the public controller methods, including inherited ones.
+     */
+    public List<Method> getControllerMethods(Class<?> clazz) {
+        final Entry entry = entries.get(clazz.getName());
+        if (entry == null) {
+            return Stream.of(clazz.getMethods()).filter(ControllerUtils::isControllerMethod)
+                    .collect(Collectors.toList());
+        }
+        final List<Method> methods = new ArrayList<>(entry.methods.size());
+        if (!entry.methods.isEmpty()) {
+            for (Method method : clazz.getMethods()) {
+                if (entry.methods.contains(getSignature(method))) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    Set<String> getClassNames() {
+        return entries.keySet();
+    }
+
+    static String getSignature(Method method) {
+        return Stream.of(method.getParameterTypes()).map(Class::getName)
+                .collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+
+    private static final class Entry {
+
+        private boolean controller;
+
+        private final Set<String> methods = new LinkedHashSet<>();
+
+    }
+
+}
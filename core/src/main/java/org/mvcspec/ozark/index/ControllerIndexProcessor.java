@@ -0,0 +1,359 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Annotation processor which writes the {@link ControllerIndex} of the classes being
+ * compiled. It is registered as a service, so it runs whenever Ozark is on the class path
+ * of the compiler, unless annotation processing is disabled. Applications which depend on
+ * Ozark at runtime only can add it to the processor path instead.</p>
+ *
+ * <p>The rules used to find controllers and controller methods are those of
+ * {@link org.mvcspec.ozark.util.AnnotationUtils} and
+ * {@link org.mvcspec.ozark.util.ControllerUtils}, applied to the language model instead
+ * of the loaded classes. Only the classes of a single compilation are indexed, classes
+ * which weren't compiled together are inspected using reflection at runtime.</p>
+ *
+ * <p>The entries of a class depend on its supertypes, so a class is only indexed if all of
+ * them are part of the same compilation, apart from those in {@code java.*}. Otherwise a
+ * supertype from another jar could gain or lose annotations without the index being
+ * regenerated, and the stale entries would be trusted at runtime.</p>
+ */
+@SupportedAnnotationTypes("*")
+public class ControllerIndexProcessor extends AbstractProcessor {
+
+    private static final String PATH = "javax.ws.rs.Path";
+
+    private static final String CONTROLLER = "javax.mvc.Controller";
+
+    private static final String HTTP_METHOD = "javax.ws.rs.HttpMethod";
+
+    private final Map<String, IndexedClass> classes = new LinkedHashMap<>();
+
+    private final Set<String> compiled = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            final List<String> lines = new ArrayList<>();
+            for (IndexedClass clazz : classes.values()) {
+                if (compiled.containsAll(clazz.supertypes)) {
+                    lines.addAll(clazz.lines);
+                }
+            }
+            if (!lines.isEmpty()) {
+                write(lines);
+            }
+        } else {
+            for (Element element : roundEnv.getRootElements()) {
+                scan(element);
+            }
+        }
+        // never claim the annotations, other processors may need them
+        return false;
+    }
+
+    private void scan(Element element) {
+        if (element.getKind() == ElementKind.CLASS || element.getKind() == ElementKind.INTERFACE) {
+            compiled.add(getBinaryName((TypeElement) element));
+            index((TypeElement) element);
+            for (Element enclosed : element.getEnclosedElements()) {
+                scan(enclosed);
+            }
+        }
+    }
+
+    private void index(TypeElement type) {
+        final List<ExecutableElement> methods = getPublicMethods(type);
+        if (!hasAnnotationOnClassOrMethod(type, methods, PATH)) {
+            return;
+        }
+        final String name = getBinaryName(type);
+        final IndexedClass clazz = new IndexedClass();
+        addSupertypes(type, clazz.supertypes);
+        classes.put(name, clazz);
+        if (!hasAnnotationOnClassOrMethod(type, methods, CONTROLLER)) {
+            clazz.lines.add(ControllerIndex.RESOURCE_CLASS + " " + name);
+            return;
+        }
+        clazz.lines.add(ControllerIndex.CONTROLLER + " " + name);
+        for (ExecutableElement method : methods) {
+            if (isControllerMethod(method)) {
+                clazz.lines.add(ControllerIndex.METHOD + " " + name + " " + getSignature(method));
+            }
+        }
+    }
+
+    /**
+     * Adds the binary names of all superclasses and interfaces of a type, except those in {@code java.*}.
+     */
+    private void addSupertypes(TypeElement type, Set<String> supertypes) {
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type.asType())) {
+            final TypeElement element = asTypeElement(supertype);
+            if (element != null && !element.getQualifiedName().toString().startsWith("java.")
+                    && supertypes.add(getBinaryName(element))) {
+                addSupertypes(element, supertypes);
+            }
+        }
+    }
+
+    private void write(List<String> lines) {
+        try {
+            final FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", ControllerIndex.RESOURCE);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + ControllerIndex.RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * See {@link org.mvcspec.ozark.util.AnnotationUtils#hasAnnotationOnClassOrMethod(Class, Class)}.
+     */
+    private boolean hasAnnotationOnClassOrMethod(TypeElement type, List<ExecutableElement> methods,
+                                                 String annotation) {
+        return hasDeclaredAnnotation(type, annotation)
+                || methods.stream().anyMatch(m -> hasAnnotation(m, annotation));
+    }
+
+    /**
+     * See {@link org.mvcspec.ozark.util.AnnotationUtils#getAnnotation(java.lang.reflect.Method, Class)}.
+     */
+    private boolean hasAnnotation(ExecutableElement method, String annotation) {
+        final TypeElement clazz = (TypeElement) method.getEnclosingElement();
+        if (clazz.getQualifiedName().contentEquals(Object.class.getName())) {
+            return false;
+        }
+        if (hasDeclaredAnnotation(method, annotation)) {
+            return true;
+        }
+        if (hasMvcOrJaxrsAnnotations(method)) {
+            return false;
+        }
+        final TypeElement superClass = asTypeElement(clazz.getSuperclass());
+        if (superClass != null) {
+            final ExecutableElement superMethod = getDeclaredMethod(superClass, method);
+            if (superMethod != null && hasAnnotation(superMethod, annotation)) {
+                return true;
+            }
+        }
+        for (TypeMirror in : clazz.getInterfaces()) {
+            final ExecutableElement superMethod = getDeclaredMethod(asTypeElement(in), method);
+            if (superMethod != null && hasAnnotation(superMethod, annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * See {@link org.mvcspec.ozark.util.ControllerUtils#isControllerMethod(java.lang.reflect.Method)}.
+     */
+    private boolean isControllerMethod(ExecutableElement method) {
+        final boolean isController = hasDeclaredAnnotation(method.getEnclosingElement(), CONTROLLER)
+                || hasAnnotation(method, CONTROLLER);
+        return isController && isRequestMethod(method);
+    }
+
+    private boolean isRequestMethod(ExecutableElement method) {
+        if (hasDeclaredRequestMethodAnnotation(method)) {
+            return true;
+        }
+        if (hasMvcOrJaxrsAnnotations(method)) {
+            return false;
+        }
+        final TypeElement declaringClass = (TypeElement) method.getEnclosingElement();
+        TypeElement clazz = declaringClass;
+        while (clazz != null) {
+            final ExecutableElement current = getMethod(clazz, method);
+            if (current != null && hasDeclaredRequestMethodAnnotation(current)) {
+                return true;
+            }
+            clazz = asTypeElement(clazz.getSuperclass());
+        }
+        for (TypeMirror in : declaringClass.getInterfaces()) {
+            final ExecutableElement current = getMethod(asTypeElement(in), method);
+            if (current != null && hasDeclaredRequestMethodAnnotation(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasDeclaredRequestMethodAnnotation(ExecutableElement method) {
+        return method.getAnnotationMirrors().stream()
+                .anyMatch(a -> hasDeclaredAnnotation(a.getAnnotationType().asElement(), HTTP_METHOD));
+    }
+
+    private static boolean hasMvcOrJaxrsAnnotations(ExecutableElement method) {
+        return method.getAnnotationMirrors().stream().anyMatch(a -> {
+            final String an = getQualifiedName(a);
+            return an.startsWith("javax.mvc.") || an.startsWith("javax.ws.rs.");
+        });
+    }
+
+    private static boolean hasDeclaredAnnotation(Element element, String annotation) {
+        return element.getAnnotationMirrors().stream().anyMatch(a -> getQualifiedName(a).equals(annotation));
+    }
+
+    private static String getQualifiedName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    /**
+     * Like {@link Class#getMethods()}, the public methods including inherited ones.
+     */
+    private List<ExecutableElement> getPublicMethods(TypeElement type) {
+        return ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)).stream()
+                .filter(m -> m.getModifiers().contains(Modifier.PUBLIC))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Like {@link Class#getDeclaredMethod(String, Class[])}.
+     */
+    private ExecutableElement getDeclaredMethod(TypeElement type, ExecutableElement method) {
+        return findMethod(ElementFilter.methodsIn(type.getEnclosedElements()), method);
+    }
+
+    /**
+     * Like {@link Class#getMethod(String, Class[])}.
+     */
+    private ExecutableElement getMethod(TypeElement type, ExecutableElement method) {
+        return findMethod(getPublicMethods(type), method);
+    }
+
+    private ExecutableElement findMethod(List<ExecutableElement> candidates, ExecutableElement method) {
+        final Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement candidate : candidates) {
+            if (candidate.getSimpleName().contentEquals(method.getSimpleName())
+                    && candidate.getParameters().size() == method.getParameters().size()) {
+                boolean same = true;
+                for (int i = 0; same && i < method.getParameters().size(); i++) {
+                    same = types.isSameType(types.erasure(candidate.getParameters().get(i).asType()),
+                            types.erasure(method.getParameters().get(i).asType()));
+                }
+                if (same) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                ? (TypeElement) processingEnv.getTypeUtils().asElement(type) : null;
+    }
+
+    private String getSignature(ExecutableElement method) {
+        final Types types = processingEnv.getTypeUtils();
+        return method.getParameters().stream().map(p -> getClassName(types.erasure(p.asType())))
+                .collect(Collectors.joining(",", method.getSimpleName() + "(", ")"));
+    }
+
+    private String getBinaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /**
+     * The name of an erased type as returned by {@link Class#getName()}.
+     */
+    private String getClassName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase(Locale.ROOT);
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            return "[" + getDescriptor(((ArrayType) type).getComponentType());
+        }
+        return getBinaryName(asTypeElement(type));
+    }
+
+    private String getDescriptor(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case SHORT:
+                return "S";
+            case CHAR:
+                return "C";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            case ARRAY:
+                return "[" + getDescriptor(((ArrayType) type).getComponentType());
+            default:
+                return "L" + getBinaryName(asTypeElement(type)) + ";";
+        }
+    }
+
+    private static final class IndexedClass {
+
+        private final List<String> lines = new ArrayList<>();
+
+        private final Set<String> supertypes = new HashSet<>();
+
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p>Commits Java Flight Recorder events for the request lifecycle. This implementation
+ * does nothing and is used on Java 8. On Java 11 and newer, it is replaced by the class of
+ * the same name in {@code META-INF/versions/11} of the multi-release JAR, which commits
+ * the events using {@code jdk.jfr}. Both classes must have the same public methods.</p>
+ *
+ * <p>Events with a duration are started by a {@code begin} method, which returns the event
+ * or {@code null} if the event type isn't enabled. The result must be passed to the
+ * matching {@code commit} method.</p>
+ */
+public final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+        // static methods only
+    }
+
+    public static Object beginControllerInvoked() {
+        return null;
+    }
+
+    /**
+     * @param event  the result of {@link #beginControllerInvoked()}.
+     * @param method the controller method.
+     * @param status the response status returned by the controller.
+     */
+    public static void commitControllerInvoked(Object event, Method method, int status) {
+        // Java 8
+    }
+
+    public static Object beginViewResolved() {
+        return null;
+    }
+
+    /**
+     * @param event  the result of {@link #beginViewResolved()}.
+     * @param view   the view.
+     * @param engine the engine found for the view or {@code null}.
+     */
+    public static void commitViewResolved(Object event, String view, Class<?> engine) {
+        // Java 8
+    }
+
+    public static Object beginViewRendered() {
+        return null;
+    }
+
+    /**
+     * Ends the duration of a view rendered event. The event is committed later, once the
+     * writer was flushed and the number of bytes is known.
+     *
+     * @param event the result of {@link #beginViewRendered()}.
+     */
+    public static void endViewRendered(Object event) {
+        // Java 8
+    }
+
+    /**
+     * @param event  the result of {@link #beginViewRendered()}, passed to {@link #endViewRendered(Object)}.
+     * @param view   the view.
+     * @param engine the engine which rendered the view.
+     * @param bytes  the number of bytes written.
+     * @param failed whether rendering failed.
+     */
+    public static void commitViewRendered(Object event, String view, Class<?> engine, long bytes, boolean failed) {
+        // Java 8
+    }
+
+    public static Object beginCsrfValidated() {
+        return null;
+    }
+
+    /**
+     * @param event  the result of {@link #beginCsrfValidated()}.
+     * @param method the controller method.
+     * @param valid  whether the request contained a valid token.
+     */
+    public static void commitCsrfValidated(Object event, Method method, boolean valid) {
+        // Java 8
+    }
+
+    /**
+     * @param store the class of the {@link org.mvcspec.ozark.cdi.RedirectScopeStore}.
+     */
+    public static void redirectScopeCreated(Class<?> store) {
+        // Java 8
+    }
+
+    /**
+     * @param store the class of the {@link org.mvcspec.ozark.cdi.RedirectScopeStore}.
+     * @param beans the number of bean instances destroyed.
+     */
+    public static void redirectScopeDestroyed(Class<?> store, int beans) {
+        // Java 8
+    }
+
+    /**
+     * @param method           the controller method.
+     * @param bindingErrors    the number of binding errors.
+     * @param validationErrors the number of validation errors.
+     */
+    public static void bindingFailed(Method method, int bindingErrors, int validationErrors) {
+        // Java 8
+    }
+
+}
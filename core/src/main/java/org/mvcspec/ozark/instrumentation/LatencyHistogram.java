@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Histogram of durations in nanoseconds with log-linear buckets in the style of
+ * HdrHistogram. Each power of two is split into 16 buckets, so recorded values are
+ * accurate to about 6%. Values above {@link #MAX_VALUE} are counted in the last bucket.</p>
+ *
+ * <p>To keep contention low, the buckets are striped by thread. Stripes are allocated
+ * when a thread first records into them, so rarely used histograms stay small. Reading
+ * sums up all stripes and may miss values recorded concurrently.</p>
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The largest value which is recorded accurately, about 68 seconds.
+     */
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds, negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+        stripe().incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        long count = 0L;
+        for (long bucket : getBuckets()) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * @return the mean of the recorded values in nanoseconds or zero if nothing was recorded.
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0L ? 0.0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @return the largest recorded value in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall. The result
+     * is the upper bound of the bucket containing the percentile, but never above the
+     * largest recorded value.
+     *
+     * @param percentile the percentile between 0 and 100.
+     * @return the value in nanoseconds or zero if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long[] buckets = getBuckets();
+        long count = 0L;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        if (count == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private long[] getBuckets() {
+        final long[] buckets = new long[BUCKETS];
+        for (int s = 0; s < STRIPES; s++) {
+            final AtomicLongArray stripe = stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets[i] += stripe.get(i);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private AtomicLongArray stripe() {
+        final int s = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        final AtomicLongArray stripe = stripes.get(s);
+        if (stripe != null) {
+            return stripe;
+        }
+        stripes.compareAndSet(s, null, new AtomicLongArray(BUCKETS));
+        return stripes.get(s);
+    }
+
+    /**
+     * Values below {@code 2 * SUB_BUCKETS} get a bucket each. Above, each power of two is
+     * split into {@code SUB_BUCKETS} buckets by keeping the {@code SUB_BUCKET_BITS + 1}
+     * most significant bits.
+     */
+    static int index(long value) {
+        final int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value | 1L) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        final int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        final long top = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((top + 1) << shift) - 1;
+    }
+
+    private static int stripes(int processors) {
+        int stripes = 1;
+        while (stripes < processors && stripes < 8) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+}
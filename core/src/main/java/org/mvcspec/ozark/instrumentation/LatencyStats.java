@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request statistics of a single controller method, view or view engine.
+ */
+public class LatencyStats implements LatencyStatsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    public LatencyStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a request.
+     *
+     * @param nanos  the duration in nanoseconds.
+     * @param failed whether the request failed.
+     */
+    public void record(long nanos, boolean failed) {
+        histogram.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return histogram.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return histogram.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return getPercentileMillis(50.0);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return getPercentileMillis(90.0);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getPercentileMillis(99.0);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return getPercentileMillis(99.9);
+    }
+
+    private double getPercentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+/**
+ * Management interface of the request statistics of a single controller method, view or
+ * view engine. Durations are reported in milliseconds.
+ */
+public interface LatencyStatsMXBean {
+
+    /**
+     * @return the name of the controller method, view or view engine.
+     */
+    String getName();
+
+    /**
+     * @return the number of requests.
+     */
+    long getCount();
+
+    /**
+     * @return the number of requests which failed.
+     */
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+}
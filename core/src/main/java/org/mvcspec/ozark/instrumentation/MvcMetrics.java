@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import org.mvcspec.ozark.cdi.RedirectScopeStore;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Request statistics per controller method, view and view engine, recorded if
+ * {@link org.mvcspec.ozark.Properties#JMX_METRICS} is enabled. The statistics of each
+ * controller method, view and engine are registered as {@link LatencyStatsMXBean} in the
+ * platform MBean server when the first request is recorded, e.g.
+ * {@code org.mvcspec.ozark:type=View,application=/shop,name="books.jsp"}, and
+ * unregistered when the application is shut down. The counters of the redirect scope
+ * store are registered as {@link org.mvcspec.ozark.cdi.RedirectScopeMetricsMXBean}, e.g.
+ * {@code org.mvcspec.ozark:type=RedirectScopeStore,application=/shop,name="org.mvcspec.ozark.cdi.SessionRedirectScopeStore"}.</p>
+ *
+ * <p>Controller durations are measured from the point the controller was matched to the
+ * point it returned, so they include binding and validation. View and engine durations
+ * cover {@link javax.mvc.engine.ViewEngine#processView}.</p>
+ */
+@ApplicationScoped
+public class MvcMetrics {
+
+    /**
+     * Domain of the object names.
+     */
+    public static final String DOMAIN = "org.mvcspec.ozark";
+
+    /**
+     * Name of the request property holding the time the controller was matched.
+     */
+    public static final String CONTROLLER_START = MvcMetrics.class.getName() + ".controllerStart";
+
+    private static final Logger log = Logger.getLogger(MvcMetrics.class.getName());
+
+    private final ConcurrentMap<String, LatencyStats> controllers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LatencyStats> views = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LatencyStats> engines = new ConcurrentHashMap<>();
+
+    private final Set<ObjectName> registered = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    private ServletContext servletContext;
+
+    private MBeanServer server;
+
+    private String application;
+
+    @PostConstruct
+    public void init() {
+        server = ManagementFactory.getPlatformMBeanServer();
+        final String contextPath = servletContext.getContextPath();
+        application = contextPath == null || contextPath.isEmpty() ? "/" : contextPath;
+    }
+
+    /**
+     * Records the invocation of a controller method.
+     *
+     * @param method the controller method.
+     * @param nanos  the duration in nanoseconds.
+     * @param failed whether the response is a server error.
+     */
+    public void recordController(Method method, long nanos, boolean failed) {
+        final String name = method.getDeclaringClass().getName() + "#" + method.getName();
+        getStats(controllers, "Controller", name).record(nanos, failed);
+    }
+
+    /**
+     * Records the processing of a view.
+     *
+     * @param view   the view.
+     * @param engine the engine which processed the view.
+     * @param nanos  the duration in nanoseconds.
+     * @param failed whether processing the view failed.
+     */
+    public void recordView(String view, Class<?> engine, long nanos, boolean failed) {
+        getStats(views, "View", view).record(nanos, failed);
+        getStats(engines, "ViewEngine", engine.getName()).record(nanos, failed);
+    }
+
+    /**
+     * Registers the counters of a redirect scope store, if it has any.
+     *
+     * @param store the store used by the application.
+     */
+    public void registerRedirectScopeStore(RedirectScopeStore store) {
+        store.getMetrics().ifPresent(counters -> register("RedirectScopeStore", store.getClass().getName(), counters));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.log(Level.FINE, "Cannot unregister MBean " + name, e);
+            }
+        }
+        registered.clear();
+    }
+
+    private LatencyStats getStats(ConcurrentMap<String, LatencyStats> stats, String type, String name) {
+        final LatencyStats existing = stats.get(name);
+        return existing != null ? existing : stats.computeIfAbsent(name, key -> register(type, key, new LatencyStats(key)));
+    }
+
+    /**
+     * A failed registration is logged only, the statistics are still recorded.
+     */
+    private <T> T register(String type, String name, T mbean) {
+        try {
+            final ObjectName objectName = getObjectName(type, name);
+            server.registerMBean(mbean, objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            log.log(Level.WARNING, "Cannot register MBean for " + name, e);
+        }
+        return mbean;
+    }
+
+    ObjectName getObjectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",application=" + ObjectName.quote(application)
+                + ",name=" + ObjectName.quote(name));
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ResourceInfo;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Durations of the phases of a single request, recorded if
+ * {@link org.mvcspec.ozark.Properties#REQUEST_TIMING} is enabled. An instance is created
+ * by {@link org.mvcspec.ozark.locale.LocaleRequestFilter} and stored as request attribute,
+ * so the filters, interceptors and writers processing the request can find it. If the
+ * attribute is missing, timing is disabled and nothing is recorded.</p>
+ *
+ * <p>The phases up to the controller are reported in a {@code Server-Timing} header, which
+ * is set before the view is rendered. All phases including the view are logged as a single
+ * line of {@code key=value} pairs once the response is complete.</p>
+ */
+public final class RequestTiming {
+
+    /**
+     * Name of the response header defined by the W3C Server Timing specification.
+     */
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    private static final Logger log = Logger.getLogger(RequestTiming.class.getName());
+
+    /**
+     * The phases of a request. The names are used as metric names in the header and as
+     * keys in the log line.
+     */
+    public enum Phase {
+
+        LOCALE, BINDING, VALIDATION, CONTROLLER, VIEW;
+
+        private final String metricName = name().toLowerCase(Locale.ROOT);
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+    }
+
+    private final long start = System.nanoTime();
+
+    private final long[] durations = new long[Phase.values().length];
+
+    private int recorded;
+
+    private final String method;
+
+    private final String path;
+
+    private long matched;
+
+    private boolean invocationPending;
+
+    private String controller;
+
+    private String view;
+
+    private String engine;
+
+    private int status;
+
+    private boolean logged;
+
+    private RequestTiming(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    /**
+     * Starts timing the given request.
+     *
+     * @param request the current request.
+     * @return the new instance, which is stored as request attribute.
+     */
+    public static RequestTiming start(HttpServletRequest request) {
+        final RequestTiming timing = new RequestTiming(request.getMethod(), request.getRequestURI());
+        request.setAttribute(ATTRIBUTE, timing);
+        return timing;
+    }
+
+    /**
+     * Returns the instance of the given request.
+     *
+     * @param request the current request.
+     * @return the instance or {@code null} if timing is disabled.
+     */
+    public static RequestTiming get(HttpServletRequest request) {
+        final Object value = request.getAttribute(ATTRIBUTE);
+        return value instanceof RequestTiming ? (RequestTiming) value : null;
+    }
+
+    /**
+     * Adds the time elapsed since the given start to a phase.
+     *
+     * @param phase      the phase.
+     * @param startNanos the start of the phase as returned by {@link System#nanoTime()}.
+     */
+    public void record(Phase phase, long startNanos) {
+        durations[phase.ordinal()] += System.nanoTime() - startNanos;
+        recorded |= 1 << phase.ordinal();
+    }
+
+    /**
+     * Marks the point at which the controller was matched. Parameter binding takes place
+     * between this point and the controller invocation.
+     */
+    public void controllerMatched() {
+        matched = System.nanoTime();
+        invocationPending = true;
+    }
+
+    /**
+     * Marks the start of the controller invocation and records the binding phase. Only the
+     * first call after {@link #controllerMatched()} counts, so nested invocations of
+     * intercepted methods are ignored.
+     *
+     * @return {@code true} if this is the outermost invocation of the controller.
+     */
+    public boolean invocationStarted() {
+        if (!invocationPending) {
+            return false;
+        }
+        invocationPending = false;
+        record(Phase.BINDING, matched);
+        return true;
+    }
+
+    /**
+     * Marks the point at which the controller returned. If the invocation wasn't
+     * intercepted, binding and controller are recorded as a single controller phase.
+     *
+     * @param resourceInfo the matched resource.
+     */
+    public void controllerReturned(ResourceInfo resourceInfo) {
+        if (invocationPending) {
+            invocationPending = false;
+            record(Phase.CONTROLLER, matched);
+        }
+        final Method resourceMethod = resourceInfo.getResourceMethod();
+        if (resourceMethod != null) {
+            controller = resourceInfo.getResourceClass().getName() + "#" + resourceMethod.getName();
+        }
+    }
+
+    /**
+     * Records the status of the response as set by the controller.
+     *
+     * @param status the status code.
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Records the view phase.
+     *
+     * @param view       the view which was processed.
+     * @param engine     the engine which processed the view.
+     * @param startNanos the start of the view phase as returned by {@link System#nanoTime()}.
+     * @param failed     whether processing the view failed.
+     */
+    public void viewProcessed(String view, Class<?> engine, long startNanos, boolean failed) {
+        record(Phase.VIEW, startNanos);
+        this.view = view;
+        this.engine = engine.getName();
+        if (failed) {
+            status = 500;
+        }
+    }
+
+    /**
+     * Returns the value of the {@code Server-Timing} header, with one metric for each phase
+     * recorded so far, e.g. {@code locale;dur=0.012, controller;dur=1.254}.
+     *
+     * @return the header value.
+     */
+    public String getServerTiming() {
+        final StringBuilder sb = new StringBuilder(128);
+        for (Phase phase : Phase.values()) {
+            if (isRecorded(phase)) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phase.getMetricName()).append(";dur=").append(toMillis(durations[phase.ordinal()]));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Logs all phases recorded so far. Subsequent calls do nothing.
+     */
+    public void log() {
+        if (logged) {
+            return;
+        }
+        logged = true;
+        if (log.isLoggable(Level.INFO)) {
+            log.info(getLogLine());
+        }
+    }
+
+    String getLogLine() {
+        final StringBuilder sb = new StringBuilder(256);
+        sb.append("method=").append(method).append(" path=").append(path);
+        if (controller != null) {
+            sb.append(" controller=").append(controller);
+        }
+        if (view != null) {
+            sb.append(" view=").append(view).append(" engine=").append(engine);
+        }
+        if (status != 0) {
+            sb.append(" status=").append(status);
+        }
+        for (Phase phase : Phase.values()) {
+            if (isRecorded(phase)) {
+                sb.append(' ').append(phase.getMetricName()).append('=')
+                        .append(toMillis(durations[phase.ordinal()]));
+            }
+        }
+        sb.append(" total=").append(toMillis(System.nanoTime() - start));
+        return sb.toString();
+    }
+
+    long getDuration(Phase phase) {
+        return durations[phase.ordinal()];
+    }
+
+    boolean isRecorded(Phase phase) {
+        return (recorded & 1 << phase.ordinal()) != 0;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+}
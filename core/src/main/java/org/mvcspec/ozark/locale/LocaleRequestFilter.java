@@ -16,19 +16,26 @@
 package org.mvcspec.ozark.locale;
 
 import org.mvcspec.ozark.MvcContextImpl;
+import org.mvcspec.ozark.Properties;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
+import org.mvcspec.ozark.util.PropertyUtils;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.Context;
 import java.io.IOException;
 import java.util.Locale;
 
 /**
  * Implementation of {@link ContainerRequestFilter} responsible for the resolving
- * of the request locale.
+ * of the request locale. As the first filter of Ozark, it also starts the
+ * {@link RequestTiming} if enabled.
  *
  * @author Christian Kaltepoth
  */
@@ -42,15 +49,29 @@ public class LocaleRequestFilter implements ContainerRequestFilter {
     @Inject
     private MvcContextImpl mvc;
 
+    @Context
+    private HttpServletRequest request;
+
+    @Context
+    private Configuration config;
+
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
 
+        final RequestTiming timing = PropertyUtils.getProperty(config, Properties.REQUEST_TIMING, false)
+                ? RequestTiming.start(request) : null;
+        final long start = System.nanoTime();
+
         // resolve the locale as described in the spec
         Locale locale = localeResolverChain.resolve(requestContext);
 
         // update the MvcContext
         mvc.setLocale(locale);
 
+        if (timing != null) {
+            timing.record(RequestTiming.Phase.LOCALE, start);
+        }
+
     }
 
 }
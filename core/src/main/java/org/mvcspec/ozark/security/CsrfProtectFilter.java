@@ -16,6 +16,7 @@
 package org.mvcspec.ozark.security;
 
 import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.engine.Viewable;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -26,7 +27,8 @@ import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
-import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 
 /**
@@ -35,6 +37,17 @@ import java.io.IOException;
  * {@link javax.mvc.security.Csrf#getName()} with the same token value for validation
  * to succeed.</p>
  *
+ * <p>The token is created for successful responses rendering a view, before the view is
+ * processed, unless {@link org.mvcspec.ozark.Properties#CSRF_VIEW_TOKENS} is disabled.
+ * Once the view has written more than the response buffer, the response is committed, so
+ * a token created while the view reads {@code mvc.csrf} could no longer be stored in a
+ * new session or cookie. As {@link org.mvcspec.ozark.core.ViewResponseFilter} turns every
+ * entity of a controller into a view, this includes views which never read the token.
+ * For successful responses with a media type listed in
+ * {@link org.mvcspec.ozark.Properties#CSRF_HEADER_MEDIA_TYPES} the token is created as
+ * well. For error responses, e.g. the bodies of exception mappers, and for redirects,
+ * the header is only added if a token already exists.</p>
+ *
  * <p>CSRF can be enabled by setting the property {@link javax.mvc.security.Csrf#CSRF_PROTECTION}
  * to {@link javax.mvc.security.Csrf.CsrfOptions#IMPLICIT}, to by setting it to
  * {@link javax.mvc.security.Csrf.CsrfOptions#EXPLICIT} and annotating the desired
@@ -64,12 +77,42 @@ public class CsrfProtectFilter implements ContainerResponseFilter {
     public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
             throws IOException {
         if (isCsrfEnabled()) {
-            final CsrfToken token = csrfTokenManager.getOrCreateToken();
-            final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
-            if (!headers.containsKey(token.getHeaderName())) {
-                headers.putSingle(token.getHeaderName(), token.getValue());
+            if (responseContext.getStatus() < Response.Status.BAD_REQUEST.getStatusCode()
+                    && (isViewToken(responseContext.getEntity()) || isHeaderMediaType(responseContext.getMediaType()))) {
+                csrfTokenManager.getOrCreateToken();
+            } else {
+                // don't create a token (and possibly a session) nobody uses
+                csrfTokenManager.getToken().ifPresent(csrfTokenManager::addHeader);
+            }
+        }
+    }
+
+    /**
+     * Determines if the token is created before the view is processed.
+     *
+     * @param entity the entity of the response.
+     * @return outcome of test.
+     */
+    private boolean isViewToken(Object entity) {
+        return entity instanceof Viewable && ozarkConfig.isCsrfViewTokens();
+    }
+
+    /**
+     * Determines if the response always gets the CSRF header.
+     *
+     * @param mediaType the media type of the response.
+     * @return outcome of test.
+     */
+    private boolean isHeaderMediaType(MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        for (MediaType headerMediaType : ozarkConfig.getCsrfHeaderMediaTypes()) {
+            if (headerMediaType.isCompatible(mediaType)) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
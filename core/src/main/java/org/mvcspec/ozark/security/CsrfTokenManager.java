@@ -21,6 +21,7 @@ import org.mvcspec.ozark.jaxrs.JaxRsContext;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.mvc.security.Csrf;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Optional;
@@ -37,6 +38,13 @@ public class CsrfTokenManager {
 
     private static final Logger log = Logger.getLogger(CsrfTokenManager.class.getName());
 
+    /**
+     * The token of the current request, so strategies which don't remember the token
+     * they created, like {@link HmacCsrfTokenStrategy}, don't create a second one and all
+     * forms of a page carry the same token.
+     */
+    private static final String REQUEST_ATTRIBUTE = CsrfTokenManager.class.getName() + ".TOKEN";
+
     private CsrfTokenStrategy tokenStrategy;
 
     @Inject
@@ -62,12 +70,49 @@ public class CsrfTokenManager {
     }
 
     public Optional<CsrfToken> getToken() {
-        return tokenStrategy.getToken(request, response, false);
+        final Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof CsrfToken) {
+            return Optional.of((CsrfToken) cached);
+        }
+        final Optional<CsrfToken> token = tokenStrategy.getToken(request, response, false);
+        token.ifPresent(value -> request.setAttribute(REQUEST_ATTRIBUTE, value));
+        return token;
+    }
+
+    public boolean isValid(CsrfToken token, String value) {
+        return tokenStrategy.isValid(request, token, value);
     }
 
+    /**
+     * Returns the token, creating it if necessary. As the token is about to be used, it is
+     * also added as response header, unless the response is already committed. The token
+     * is created once per request.
+     *
+     * @return the token
+     */
     public CsrfToken getOrCreateToken() {
-        return tokenStrategy.getToken(request, response, true)
+        final Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof CsrfToken) {
+            addHeader((CsrfToken) cached);
+            return (CsrfToken) cached;
+        }
+        CsrfToken token = tokenStrategy.getToken(request, response, true)
                 .orElseThrow(() -> new IllegalStateException("Strategy did not create a token"));
+        request.setAttribute(REQUEST_ATTRIBUTE, token);
+        addHeader(token);
+        return token;
+    }
+
+    /**
+     * Adds the token as response header if CSRF protection is enabled.
+     *
+     * @param token the token
+     */
+    public void addHeader(CsrfToken token) {
+        if (ozarkConfig.getCsrfOptions() != Csrf.CsrfOptions.OFF
+                && !response.isCommitted() && !response.containsHeader(token.getHeaderName())) {
+            response.setHeader(token.getHeaderName(), token.getValue());
+        }
     }
 
 }
@@ -34,4 +34,17 @@ public interface CsrfTokenStrategy {
      */
     Optional<CsrfToken> getToken(HttpServletRequest request, HttpServletResponse response, boolean create);
 
+    /**
+     * Checks the token value submitted by the client. By default, the value must be equal
+     * to the value of the token.
+     *
+     * @param request The current request
+     * @param token   The token returned by {@link #getToken(HttpServletRequest, HttpServletResponse, boolean)}
+     * @param value   The submitted value, may be {@code null}
+     * @return Whether the value is valid
+     */
+    default boolean isValid(HttpServletRequest request, CsrfToken token, String value) {
+        return token.getValue().equals(value);
+    }
+
 }
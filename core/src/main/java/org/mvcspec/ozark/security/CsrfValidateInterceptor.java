@@ -16,14 +16,15 @@
 package org.mvcspec.ozark.security;
 
 import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.core.ControllerMetadata;
+import org.mvcspec.ozark.core.ControllerMetadataRegistry;
 import org.mvcspec.ozark.core.Messages;
+import org.mvcspec.ozark.instrumentation.FlightRecorderEvents;
 
 import javax.annotation.Priority;
 import javax.inject.Inject;
 import javax.mvc.Controller;
-import javax.mvc.security.CsrfProtected;
 import javax.mvc.security.CsrfValidationException;
-import javax.ws.rs.POST;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.container.ResourceInfo;
@@ -31,30 +32,28 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.ReaderInterceptor;
 import javax.ws.rs.ext.ReaderInterceptorContext;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
-import java.net.URLDecoder;
-
-import static org.mvcspec.ozark.util.AnnotationUtils.hasAnnotation;
+import java.nio.charset.Charset;
 
 /**
  * <p>Reader interceptor that checks for the CSRF header and token. If not available as
  * an HTTP header, it looks for it as a form parameter in which case the media type must be
- * {@link javax.ws.rs.core.MediaType#APPLICATION_FORM_URLENCODED_TYPE}. If validation
- * fails, a 403 error is returned.
+ * {@link javax.ws.rs.core.MediaType#APPLICATION_FORM_URLENCODED_TYPE} or
+ * {@link javax.ws.rs.core.MediaType#MULTIPART_FORM_DATA_TYPE}. In multipart entities, the
+ * token field must precede all file uploads and appear within the first 64 KB. If
+ * validation fails, a 403 error is returned.
  * </p>
  *
  * <p>Because this interceptor is bound by name and not globally, it does not check
  * the HTTP method (note that CSRF validation should only apply to non-idempotent
  * requests).</p>
  *
- * <p>Stream buffering is required to restore the entity for the next interceptor.
- * If validation succeeds, it calls the next interceptor in the chain. Default
- * character encoding is utf-8. Even though none of the main browsers send a
+ * <p>The entity is scanned only up to the form parameter, and the bytes read so far are
+ * replayed to the next interceptor, followed by the rest of the stream. If validation
+ * succeeds, it calls the next interceptor in the chain. Default character encoding is
+ * utf-8. Even though none of the main browsers send a
  * charset param on a form post, we still check it to decode the entity.</p>
  *
  * @author Santiago Pericas-Geertsen
@@ -64,9 +63,13 @@ import static org.mvcspec.ozark.util.AnnotationUtils.hasAnnotation;
 @Priority(Priorities.HEADER_DECORATOR)
 public class CsrfValidateInterceptor implements ReaderInterceptor {
 
-    private static final int BUFFER_SIZE = 4096;
     private static final String DEFAULT_CHARSET = "UTF-8";
 
+    /**
+     * Maximum number of bytes of a multipart entity read to find the token.
+     */
+    private static final long MULTIPART_SCAN_LIMIT = 64 * 1024;
+
     @Inject
     private CsrfTokenManager csrfTokenManager;
 
@@ -79,98 +82,96 @@ public class CsrfValidateInterceptor implements ReaderInterceptor {
     @Inject
     private Messages messages;
 
+    @Inject
+    private ControllerMetadataRegistry controllerMetadata;
+
     @Override
     public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException, WebApplicationException {
         // Validate if name bound or if CSRF property enabled and a POST
         final Method controller = resourceInfo.getResourceMethod();
-        if (needsValidation(controller)) {
-
-            CsrfToken token = csrfTokenManager.getToken()
-                    .orElseThrow(() -> new CsrfValidationException(messages.get("CsrfFailed", "missing token")));
-
-            // First check if CSRF token is in header
-            final String csrfToken = context.getHeaders().getFirst(token.getHeaderName());
-            if (token.getValue().equals(csrfToken)) {
-                return context.proceed();
+        if (controller != null
+                && needsValidation(controllerMetadata.get(resourceInfo.getResourceClass(), controller))) {
+            final Object event = FlightRecorderEvents.beginCsrfValidated();
+            boolean valid = false;
+            try {
+                validate(context);
+                valid = true;
+            } finally {
+                FlightRecorderEvents.commitCsrfValidated(event, controller, valid);
             }
+        }
+        return context.proceed();
+    }
 
-            // Otherwise, it must be a form parameter
-            final MediaType contentType = context.getMediaType();
-            if (!isSupportedMediaType(contentType)) {
-                throw new CsrfValidationException(messages.get("UnableValidateCsrf", context.getMediaType()));
-            }
+    /**
+     * Validates the token in the header or entity. If the entity was scanned, the stream of
+     * the context is replaced by one replaying the bytes read.
+     */
+    private void validate(ReaderInterceptorContext context) throws IOException {
+        CsrfToken token = csrfTokenManager.getToken()
+                .orElseThrow(() -> new CsrfValidationException(messages.get("CsrfFailed", "missing token")));
+
+        // First check if CSRF token is in header
+        final String csrfToken = context.getHeaders().getFirst(token.getHeaderName());
+        if (csrfToken != null && csrfTokenManager.isValid(token, csrfToken)) {
+            return;
+        }
 
-            // Ensure stream can be restored for next interceptor
-            ByteArrayInputStream bais;
-            final InputStream is = context.getInputStream();
-            if (is instanceof ByteArrayInputStream) {
-                bais = (ByteArrayInputStream) is;
-            } else {
-                bais = copyStream(is);
-            }
+        // Otherwise, it must be a form parameter
+        final MediaType contentType = context.getMediaType();
+        if (!isSupportedMediaType(contentType)) {
+            throw new CsrfValidationException(messages.get("UnableValidateCsrf", context.getMediaType()));
+        }
 
-            // Validate CSRF
-            boolean validated = false;
-            final String charset = contentType.getParameters().get("charset");
-            final String entity = toString(bais, charset != null ? charset : DEFAULT_CHARSET);
-            final String[] pairs = entity.split("\\&");
-            for (int i = 0; i < pairs.length; i++) {
-                final String[] fields = pairs[i].split("=");
-                final String nn = URLDecoder.decode(fields[0], DEFAULT_CHARSET);
-                // Is this the CSRF field?
-                if (token.getParamName().equals(nn)) {
-                    final String vv = URLDecoder.decode(fields[1], DEFAULT_CHARSET);
-                    // If so then check the token
-                    if (token.getValue().equals(vv)) {
-                        validated = true;
-                        break;
-                    }
-                    throw new CsrfValidationException(messages.get("CsrfFailed", "mismatching tokens"));
-                }
+        // Scan the entity only up to the token, recording what was read
+        final String charset = contentType.getParameters().get("charset");
+        final Charset encoding = toCharset(charset != null ? charset : DEFAULT_CHARSET);
+        final ReplayableInputStream is = new ReplayableInputStream(context.getInputStream());
+        final String value;
+        if (contentType.isCompatible(MediaType.MULTIPART_FORM_DATA_TYPE)) {
+            final String boundary = contentType.getParameters().get("boundary");
+            if (boundary == null || boundary.isEmpty()) {
+                throw new CsrfValidationException(messages.get("UnableValidateCsrf", contentType));
             }
-            if (!validated) {
-                throw new CsrfValidationException(messages.get("CsrfFailed", "missing field"));
-            }
-
-            // Restore stream and proceed
-            bais.reset();
-            context.setInputStream(bais);
+            value = new MultipartParameterScanner(is, boundary, encoding, MULTIPART_SCAN_LIMIT)
+                    .find(token.getParamName());
+        } else {
+            value = new FormParameterScanner(is, encoding).find(token.getParamName());
         }
-        return context.proceed();
+        if (value == null) {
+            throw new CsrfValidationException(messages.get("CsrfFailed", "missing field"));
+        }
+        if (!csrfTokenManager.isValid(token, value)) {
+            throw new CsrfValidationException(messages.get("CsrfFailed", "mismatching tokens"));
+        }
+
+        // Restore stream
+        is.replay();
+        context.setInputStream(is);
     }
 
     protected static boolean isSupportedMediaType(MediaType contentType) {
         return contentType != null &&
-            contentType.isCompatible(MediaType.APPLICATION_FORM_URLENCODED_TYPE);
+            (contentType.isCompatible(MediaType.APPLICATION_FORM_URLENCODED_TYPE)
+                || contentType.isCompatible(MediaType.MULTIPART_FORM_DATA_TYPE));
     }
 
-    private ByteArrayInputStream copyStream(InputStream is) throws IOException {
-        int n;
-        try (final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            final byte[] buffer = new byte[BUFFER_SIZE];
-            while ((n = is.read(buffer)) >= 0) {
-                baos.write(buffer, 0, n);
-            }
-            return new ByteArrayInputStream(baos.toByteArray());
+    private static Charset toCharset(String name) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(name);
         }
     }
 
-    private String toString(ByteArrayInputStream bais, String encoding) throws UnsupportedEncodingException {
-        int n = 0;
-        final byte[] bb = new byte[bais.available()];
-        while ((n = bais.read(bb, n, bb.length - n)) >= 0); // NOPMD ignore empty while block
-        bais.reset();
-        return new String(bb, encoding);
-    }
-
     /**
      * Determines if a controller method needs CSRF validation based on the config options.
      *
-     * @param controller controller to inspect.
+     * @param controller metadata of the controller to inspect.
      * @return outcome of test.
      */
-    private boolean needsValidation(Method controller) {
-        if (controller == null || !hasAnnotation(controller, POST.class)) {
+    private boolean needsValidation(ControllerMetadata controller) {
+        if (!controller.isPost()) {
             return false;
         }
         switch (ozarkConfig.getCsrfOptions()) {
@@ -179,8 +180,7 @@ public class CsrfValidateInterceptor implements ReaderInterceptor {
             case IMPLICIT:
                 return true;
             case EXPLICIT:
-                return hasAnnotation(controller, CsrfProtected.class)
-                        || hasAnnotation(controller.getDeclaringClass(), CsrfProtected.class);
+                return controller.isCsrfProtected();
         }
         return false;
     }
@@ -17,6 +17,9 @@ package org.mvcspec.ozark.security;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.mvc.security.Encoders;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 /**
  * Utility bean that provides encoders to <em>escape</em> code in JavaScript, HTML,
@@ -29,84 +32,280 @@ import javax.mvc.security.Encoders;
 @ApplicationScoped
 public class EncodersImpl implements Encoders {
 
-    public String js(String s) {
-        if (s == null) {
-            return null;
+    private static final Escaper JS = new Escaper(false);
+
+    private static final Escaper HTML = new Escaper(false);
+
+    private static final Escaper ATTR = new Escaper(false);
+
+    private static final Escaper CSS = new Escaper(false);
+
+    private static final Escaper URL = new Escaper(true);
+
+    static {
+        for (char ch = 0; ch <= 0x1F; ch++) {
+            JS.escapes[ch] = (ch <= 0x0F ? "\\x0" : "\\x") + Integer.toHexString(ch);
         }
-        final int l = s.length();
-        final StringBuffer sb = new StringBuffer(l);
-        for (int i = 0; i < l; i++) {
-            final char ch = s.charAt(i);
-            switch (ch) {
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\r':
-                    sb.append("\\r");
-                    break;
-                case '/':
-                    sb.append("\\/");
-                    break;
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '\"':
-                    sb.append("\\x22");
-                    break;
-                case '&':
-                    sb.append("\\x26");
-                    break;
-                case '\'':
-                    sb.append("\\x27");
-                    break;
-                default:
-                    if (ch >= '\u0000' && ch <= '\u001F') {
-                        sb.append("\\x").append(ch <= '\u000F' ? "0" : "").append(Integer.toHexString((int) ch));
-                    } else {
-                        sb.append(ch);
-                    }
+        JS.escapes['\b'] = "\\b";
+        JS.escapes['\t'] = "\\t";
+        JS.escapes['\n'] = "\\n";
+        JS.escapes['\f'] = "\\f";
+        JS.escapes['\r'] = "\\r";
+        JS.escapes['/'] = "\\/";
+        JS.escapes['\\'] = "\\\\";
+        JS.escapes['"'] = "\\x22";
+        JS.escapes['&'] = "\\x26";
+        JS.escapes['\''] = "\\x27";
+
+        HTML.escapes['&'] = "&amp;";
+        HTML.escapes['<'] = "&lt;";
+        HTML.escapes['>'] = "&gt;";
+        HTML.escapes['"'] = "&#34;";
+        HTML.escapes['\''] = "&#39;";
+
+        for (char ch = 0; ch < 128; ch++) {
+            final boolean alphanumeric = (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+            if (!alphanumeric && ch != ',' && ch != '.' && ch != '-' && ch != '_') {
+                ATTR.escapes[ch] = "&#x" + Integer.toHexString(ch) + ";";
+            }
+            if (!alphanumeric) {
+                // the trailing space ends the escape sequence
+                CSS.escapes[ch] = "\\" + Integer.toHexString(ch) + " ";
+            }
+            if (!alphanumeric && ch != '-' && ch != '.' && ch != '_' && ch != '~') {
+                URL.escapes[ch] = Escaper.PERCENT_ENCODED[ch];
             }
         }
-        return sb.toString();
+        // characters which are invalid in HTML and CSS even if escaped
+        for (char ch = 0; ch <= 0x1F; ch++) {
+            if (ch != '\t' && ch != '\n' && ch != '\r') {
+                ATTR.escapes[ch] = "&#xfffd;";
+            }
+        }
+        ATTR.escapes[0x7F] = "&#xfffd;";
+        CSS.escapes[0] = "\\fffd ";
+    }
+
+    public String js(String s) {
+        return JS.escape(s);
+    }
+
+    /**
+     * Writes the JavaScript encoded string to the given output without creating an
+     * intermediate string. Nothing is written if the string is {@code null}.
+     *
+     * @param s   the string to encode.
+     * @param out the output, preferably a {@link Writer}.
+     * @throws IOException if writing fails.
+     */
+    public void js(String s, Appendable out) throws IOException {
+        JS.escape(s, out);
     }
 
     public String html(String s) {
-        if (s == null) {
-            return null;
+        return HTML.escape(s);
+    }
+
+    /**
+     * Writes the HTML encoded string to the given output without creating an intermediate
+     * string. Nothing is written if the string is {@code null}.
+     *
+     * @param s   the string to encode.
+     * @param out the output, preferably a {@link Writer}.
+     * @throws IOException if writing fails.
+     */
+    public void html(String s, Appendable out) throws IOException {
+        HTML.escape(s, out);
+    }
+
+    /**
+     * Encodes a string for use in an HTML attribute value, even if the value is not quoted.
+     * All ASCII characters except letters, digits, {@code ,}, {@code .}, {@code -} and
+     * {@code _} are replaced by hexadecimal character references.
+     *
+     * @param s the string to encode.
+     * @return the encoded string or {@code null} if the string is {@code null}.
+     */
+    public String attr(String s) {
+        return ATTR.escape(s);
+    }
+
+    /**
+     * Writes the attribute encoded string to the given output without creating an
+     * intermediate string. Nothing is written if the string is {@code null}.
+     *
+     * @param s   the string to encode.
+     * @param out the output, preferably a {@link Writer}.
+     * @throws IOException if writing fails.
+     * @see #attr(String)
+     */
+    public void attr(String s, Appendable out) throws IOException {
+        ATTR.escape(s, out);
+    }
+
+    /**
+     * Encodes a string for use in a CSS string or identifier. All ASCII characters except
+     * letters and digits are replaced by hexadecimal escapes followed by a space.
+     *
+     * @param s the string to encode.
+     * @return the encoded string or {@code null} if the string is {@code null}.
+     */
+    public String css(String s) {
+        return CSS.escape(s);
+    }
+
+    /**
+     * Writes the CSS encoded string to the given output without creating an intermediate
+     * string. Nothing is written if the string is {@code null}.
+     *
+     * @param s   the string to encode.
+     * @param out the output, preferably a {@link Writer}.
+     * @throws IOException if writing fails.
+     * @see #css(String)
+     */
+    public void css(String s, Appendable out) throws IOException {
+        CSS.escape(s, out);
+    }
+
+    /**
+     * Encodes a string for use as a URL path segment or query parameter. All characters
+     * except the unreserved characters of RFC 3986 are percent-encoded as UTF-8.
+     *
+     * @param s the string to encode.
+     * @return the encoded string or {@code null} if the string is {@code null}.
+     */
+    public String url(String s) {
+        return URL.escape(s);
+    }
+
+    /**
+     * Writes the URL encoded string to the given output without creating an intermediate
+     * string. Nothing is written if the string is {@code null}.
+     *
+     * @param s   the string to encode.
+     * @param out the output, preferably a {@link Writer}.
+     * @throws IOException if writing fails.
+     * @see #url(String)
+     */
+    public void url(String s, Appendable out) throws IOException {
+        URL.escape(s, out);
+    }
+
+    /**
+     * Replaces characters according to a lookup table for ASCII characters. Other
+     * characters are kept or percent-encoded as UTF-8. Clean data costs a single scan
+     * and no allocation.
+     */
+    private static final class Escaper {
+
+        private static final String[] PERCENT_ENCODED = new String[256];
+
+        static {
+            for (int b = 0; b < PERCENT_ENCODED.length; b++) {
+                PERCENT_ENCODED[b] = String.format("%%%02X", b);
+            }
+        }
+
+        /**
+         * Replacements for ASCII characters, {@code null} for characters which are kept.
+         */
+        private final String[] escapes = new String[128];
+
+        private final boolean percentEncodeNonAscii;
+
+        private Escaper(boolean percentEncodeNonAscii) {
+            this.percentEncodeNonAscii = percentEncodeNonAscii;
+        }
+
+        /**
+         * Returns the original string if no character needs to be replaced.
+         */
+        private String escape(String s) {
+            if (s == null) {
+                return null;
+            }
+            final int first = indexOfEscape(s, 0);
+            if (first < 0) {
+                return s;
+            }
+            final StringBuilder sb = new StringBuilder(s.length() + 16);
+            try {
+                escape(s, first, sb);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);     // never thrown by StringBuilder
+            }
+            return sb.toString();
+        }
+
+        private void escape(String s, Appendable out) throws IOException {
+            if (s != null) {
+                escape(s, indexOfEscape(s, 0), out);
+            }
+        }
+
+        /**
+         * Writes runs of characters which are kept in one call.
+         */
+        private void escape(String s, int first, Appendable out) throws IOException {
+            final Writer writer = out instanceof Writer ? (Writer) out : null;
+            int start = 0;
+            for (int i = first; i >= 0; i = indexOfEscape(s, start)) {
+                if (writer != null) {
+                    writer.write(s, start, i - start);
+                } else {
+                    out.append(s, start, i);
+                }
+                start = i + escapeAt(s, i, out);
+            }
+            if (writer != null) {
+                writer.write(s, start, s.length() - start);
+            } else {
+                out.append(s, start, s.length());
+            }
         }
-        final int l = s.length();
-        final StringBuffer sb = new StringBuffer(l);
-        for (int i = 0; i < l; i++) {
+
+        private int indexOfEscape(String s, int from) {
+            final int l = s.length();
+            for (int i = from; i < l; i++) {
+                final char ch = s.charAt(i);
+                if (ch < 128 ? escapes[ch] != null : percentEncodeNonAscii) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the number of characters replaced.
+         */
+        private int escapeAt(String s, int i, Appendable out) throws IOException {
             final char ch = s.charAt(i);
-            switch (ch) {
-                case '&':
-                    sb.append("&amp;");
-                    break;
-                case '<':
-                    sb.append("&lt;");
-                    break;
-                case '>':
-                    sb.append("&gt;");
-                    break;
-                case '"':
-                    sb.append("&#34;");
-                    break;
-                case '\'':
-                    sb.append("&#39;");
-                    break;
-                default:
-                    sb.append(ch);
+            if (ch < 128) {
+                out.append(escapes[ch]);
+                return 1;
             }
+            int codePoint = ch;
+            int length = 1;
+            if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(ch, s.charAt(i + 1));
+                length = 2;
+            } else if (Character.isSurrogate(ch)) {
+                codePoint = 0xFFFD;
+            }
+            if (codePoint < 0x800) {
+                out.append(PERCENT_ENCODED[0xC0 | (codePoint >> 6)]);
+            } else {
+                if (codePoint < 0x10000) {
+                    out.append(PERCENT_ENCODED[0xE0 | (codePoint >> 12)]);
+                } else {
+                    out.append(PERCENT_ENCODED[0xF0 | (codePoint >> 18)]);
+                    out.append(PERCENT_ENCODED[0x80 | ((codePoint >> 12) & 0x3F)]);
+                }
+                out.append(PERCENT_ENCODED[0x80 | ((codePoint >> 6) & 0x3F)]);
+            }
+            out.append(PERCENT_ENCODED[0x80 | (codePoint & 0x3F)]);
+            return length;
         }
-        return sb.toString();
+
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Scans an {@code application/x-www-form-urlencoded} entity for a single parameter
+ * without decoding the entity as a whole. Names are percent-decoded and compared byte by
+ * byte, values of other parameters are skipped, and scanning stops as soon as the
+ * parameter is found.
+ */
+class FormParameterScanner {
+
+    /**
+     * Upper bound for the decoded value, which is plenty for a CSRF token.
+     */
+    private static final int MAX_VALUE_LENGTH = 4096;
+
+    private static final int EOF = -1;
+
+    /**
+     * Returned by {@link #nextDecoded()} at the end of a name or value.
+     */
+    private static final int END_OF_COMPONENT = -2;
+
+    /**
+     * Returned by {@link #nextDecoded()} for an invalid escape sequence.
+     */
+    private static final int MALFORMED = -3;
+
+    private static final int NONE = -4;
+
+    private final InputStream in;
+
+    private final Charset charset;
+
+    private int pushback = NONE;
+
+    /**
+     * The delimiter which ended the last name or value, {@code '&'}, {@code '='} or {@link #EOF}.
+     */
+    private int delimiter;
+
+    FormParameterScanner(InputStream in, Charset charset) {
+        this.in = in;
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the value of the first occurrence of the parameter.
+     *
+     * @param name the parameter name.
+     * @return the decoded value, or {@code null} if there is no such parameter or the
+     * value is malformed.
+     * @throws IOException if reading fails.
+     */
+    String find(String name) throws IOException {
+        final byte[] expected = name.getBytes(charset);
+        do {
+            // compare the name while decoding it
+            int matched = 0;
+            boolean matches = true;
+            int b;
+            while ((b = nextDecoded()) >= 0) {
+                if (matches && matched < expected.length && expected[matched] == (byte) b) {
+                    matched++;
+                } else {
+                    matches = false;
+                }
+            }
+            if (b == MALFORMED) {
+                matches = false;
+                skipName();
+            }
+            if (matches && matched == expected.length) {
+                return delimiter == '=' ? readValue() : "";
+            }
+            if (delimiter == '=') {
+                skipValue();
+            }
+        } while (delimiter != EOF);
+        return null;
+    }
+
+    private String readValue() throws IOException {
+        final ByteArrayOutputStream value = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = nextDecoded()) >= 0 || (b == END_OF_COMPONENT && delimiter == '=')) {
+            if (value.size() == MAX_VALUE_LENGTH) {
+                return null;
+            }
+            value.write(b >= 0 ? b : '=');
+        }
+        return b == MALFORMED ? null : new String(value.toByteArray(), charset);
+    }
+
+    /**
+     * Skips to the end of the current name.
+     */
+    private void skipName() throws IOException {
+        int b;
+        while ((b = read()) != EOF && b != '&' && b != '=') {
+            // skip
+        }
+        delimiter = b;
+    }
+
+    /**
+     * Skips to the end of the current value, which may contain unescaped {@code '='}.
+     */
+    private void skipValue() throws IOException {
+        int b;
+        while ((b = read()) != EOF && b != '&') {
+            // skip
+        }
+        delimiter = b;
+    }
+
+    /**
+     * Returns the next decoded byte of the current name or value, {@link #END_OF_COMPONENT}
+     * if a delimiter was reached or {@link #MALFORMED} for an invalid escape sequence.
+     */
+    private int nextDecoded() throws IOException {
+        final int b = read();
+        switch (b) {
+            case EOF:
+            case '&':
+            case '=':
+                delimiter = b;
+                return END_OF_COMPONENT;
+            case '+':
+                return ' ';
+            case '%':
+                final int high = hexDigit();
+                final int low = high < 0 ? -1 : hexDigit();
+                return low < 0 ? MALFORMED : (high << 4) + low;
+            default:
+                return b;
+        }
+    }
+
+    private int hexDigit() throws IOException {
+        final int b = read();
+        final int digit = b == EOF ? -1 : Character.digit(b, 16);
+        if (digit < 0) {
+            pushback = b;
+        }
+        return digit;
+    }
+
+    private int read() throws IOException {
+        if (pushback != NONE) {
+            final int b = pushback;
+            pushback = NONE;
+            return b;
+        }
+        return in.read();
+    }
+
+}
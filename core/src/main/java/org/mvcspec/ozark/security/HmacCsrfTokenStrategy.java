@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>Stateless implementation of {@link CsrfTokenStrategy}. Tokens have the form
+ * {@code keyId.timestamp.signature}, where the signature is an HMAC-SHA256 of the user
+ * key and the timestamp. Validation only recomputes the signature, so neither an HTTP
+ * session nor any other server-side state is needed.</p>
+ *
+ * <p>The user key consists of a random value stored in a cookie, which is created
+ * together with the first token, and the name of the authenticated user, if any. Tokens
+ * therefore become invalid when the user logs in or out.</p>
+ *
+ * <p>Keys are identified by an ID which is part of the token. New tokens are signed with
+ * the signing key, while tokens signed with one of the validation keys are still accepted
+ * until they expire, which allows to rotate keys. All nodes of a cluster must be
+ * configured with the same keys. Without explicit keys, a random key is generated and
+ * tokens are only valid on the node which issued them.</p>
+ */
+public class HmacCsrfTokenStrategy implements CsrfTokenStrategy {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String headerName;
+    private final String paramName;
+    private final String cookieName;
+    private final long maxAgeSeconds;
+    private final String signingKeyId;
+    private final Map<String, SecretKeySpec> keys;
+
+    private HmacCsrfTokenStrategy(Builder builder) {
+        headerName = builder.headerName;
+        paramName = builder.paramName;
+        cookieName = builder.cookieName;
+        maxAgeSeconds = builder.maxAge.getSeconds();
+        keys = new LinkedHashMap<>(builder.keys);
+        if (builder.signingKeyId != null) {
+            signingKeyId = builder.signingKeyId;
+        } else {
+            signingKeyId = "default";
+            keys.put(signingKeyId, new SecretKeySpec(randomBytes(32), MAC_ALGORITHM));
+        }
+    }
+
+    @Override
+    public Optional<CsrfToken> getToken(HttpServletRequest request, HttpServletResponse response, boolean create) {
+
+        String nonce = getNonce(request);
+        if (nonce == null) {
+            if (!create) {
+                return Optional.empty();
+            }
+            nonce = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes(16));
+            Cookie cookie = new Cookie(cookieName, nonce);
+            cookie.setSecure(request.isSecure());
+            cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        // a new token on each call, CsrfTokenManager keeps the one of the current request
+        String timestamp = Long.toString(System.currentTimeMillis() / 1000L);
+        return Optional.of(new CsrfToken(headerName, paramName, signingKeyId + '.' + timestamp + '.'
+                + sign(keys.get(signingKeyId), getUserKey(request, nonce), signingKeyId, timestamp)));
+
+    }
+
+    @Override
+    public boolean isValid(HttpServletRequest request, CsrfToken token, String value) {
+
+        String nonce = getNonce(request);
+        if (nonce == null || value == null) {
+            return false;
+        }
+
+        String[] parts = value.split("\\.", -1);
+        if (parts.length != 3) {
+            return false;
+        }
+        SecretKeySpec key = keys.get(parts[0]);
+        if (key == null) {
+            return false;
+        }
+        try {
+            long age = System.currentTimeMillis() / 1000L - Long.parseLong(parts[1]);
+            if (age < 0 || age > maxAgeSeconds) {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        byte[] expected = sign(key, getUserKey(request, nonce), parts[0], parts[1]).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, parts[2].getBytes(StandardCharsets.US_ASCII));
+
+    }
+
+    private String getNonce(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (Objects.equals(cookie.getName(), cookieName)) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getUserKey(HttpServletRequest request, String nonce) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? nonce + '\n' + principal.getName() : nonce;
+    }
+
+    private static String sign(SecretKeySpec key, String userKey, String keyId, String timestamp) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            byte[] signature = mac.doFinal((keyId + '\n' + timestamp + '\n' + userKey).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign CSRF token", e);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static final class Builder {
+
+        private String headerName = "X-CSRF-TOKEN";
+        private String paramName = "_csrf";
+        private String cookieName = "CSRF-KEY";
+        private Duration maxAge = Duration.ofHours(2);
+        private String signingKeyId;
+        private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+
+        public Builder headerName(String headerName) {
+            this.headerName = headerName;
+            return this;
+        }
+
+        public Builder paramName(String paramName) {
+            this.paramName = paramName;
+            return this;
+        }
+
+        public Builder cookieName(String cookieName) {
+            this.cookieName = cookieName;
+            return this;
+        }
+
+        /**
+         * @param maxAge the time after which tokens expire
+         * @return this builder
+         */
+        public Builder maxAge(Duration maxAge) {
+            this.maxAge = Objects.requireNonNull(maxAge, "maxAge must not be null");
+            return this;
+        }
+
+        /**
+         * @param keyId  the ID of the key, which is part of the token
+         * @param secret the key used to sign new tokens, at least 16 bytes
+         * @return this builder
+         */
+        public Builder signingKey(String keyId, byte[] secret) {
+            validationKey(keyId, secret);
+            this.signingKeyId = keyId;
+            return this;
+        }
+
+        /**
+         * @param keyId  the ID of the key, which is part of the token
+         * @param secret a previous signing key which is still accepted, at least 16 bytes
+         * @return this builder
+         */
+        public Builder validationKey(String keyId, byte[] secret) {
+            Objects.requireNonNull(keyId, "keyId must not be null");
+            Objects.requireNonNull(secret, "secret must not be null");
+            if (keyId.isEmpty() || keyId.indexOf('.') >= 0) {
+                throw new IllegalArgumentException("keyId must not be empty or contain '.'");
+            }
+            if (secret.length < 16) {
+                throw new IllegalArgumentException("secret must have at least 16 bytes");
+            }
+            keys.put(keyId, new SecretKeySpec(secret, MAC_ALGORITHM));
+            return this;
+        }
+
+        public HmacCsrfTokenStrategy build() {
+            return new HmacCsrfTokenStrategy(this);
+        }
+
+    }
+}
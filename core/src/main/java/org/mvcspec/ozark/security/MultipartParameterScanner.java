@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * <p>Scans a {@code multipart/form-data} entity for a single form field. Parts are
+ * read one after another and scanning stops as soon as the field is found. To keep the
+ * amount of data read before the field bounded, scanning gives up when it reaches a file
+ * upload or after {@code limit} bytes, so the field must be sent before any files.</p>
+ *
+ * <p>The delimiter between parts is found with the Knuth-Morris-Pratt algorithm, so every
+ * byte of the entity is examined once.</p>
+ */
+class MultipartParameterScanner {
+
+    /**
+     * Upper bound for the decoded value, which is plenty for a CSRF token.
+     */
+    private static final int MAX_VALUE_LENGTH = 4096;
+
+    private static final int EOF = -1;
+
+    private final InputStream in;
+
+    private final Charset charset;
+
+    private final long limit;
+
+    private final byte[] delimiter;
+
+    private final int[] failure;
+
+    private long position;
+
+    /**
+     * @param in       the entity.
+     * @param boundary the boundary parameter of the content type.
+     * @param charset  the charset of field values.
+     * @param limit    the maximum number of bytes to read.
+     */
+    MultipartParameterScanner(InputStream in, String boundary, Charset charset, long limit) {
+        this.in = in;
+        this.charset = charset;
+        this.limit = limit;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.failure = failureFunction(delimiter);
+    }
+
+    /**
+     * Returns the value of the first field with the given name.
+     *
+     * @param name the field name.
+     * @return the value, or {@code null} if there is no such field before the first file
+     * upload or within the limit.
+     * @throws IOException if reading fails.
+     */
+    String find(String name) throws IOException {
+        // the first delimiter may directly follow the start of the entity, so the
+        // leading line break is treated as already matched
+        if (!skipToDelimiter(2)) {
+            return null;
+        }
+        while (true) {
+            final String rest = readLine();
+            if (rest == null || rest.startsWith("--")) {
+                return null;        // close delimiter
+            }
+            String fieldName = null;
+            boolean file = false;
+            String header;
+            while ((header = readLine()) != null && !header.isEmpty()) {
+                final int colon = header.indexOf(':');
+                if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Disposition")) {
+                    final String disposition = header.substring(colon + 1);
+                    fieldName = getParameter(disposition, "name");
+                    file = getParameter(disposition, "filename") != null;
+                }
+            }
+            if (header == null || file) {
+                return null;
+            }
+            if (name.equals(fieldName)) {
+                return readValue();
+            }
+            if (!skipToDelimiter(0)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads up to and including the next delimiter.
+     *
+     * @param matched the number of delimiter bytes already matched.
+     * @return whether a delimiter was found.
+     */
+    private boolean skipToDelimiter(int matched) throws IOException {
+        int b;
+        while ((b = read()) != EOF) {
+            matched = advance(matched, b);
+            if (matched == delimiter.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String readValue() throws IOException {
+        final ByteArrayOutputStream value = new ByteArrayOutputStream(64);
+        int matched = 0;
+        int b;
+        while ((b = read()) != EOF) {
+            value.write(b);
+            matched = advance(matched, b);
+            if (matched == delimiter.length) {
+                final byte[] bytes = value.toByteArray();
+                return new String(bytes, 0, bytes.length - delimiter.length, charset);
+            }
+            if (value.size() > MAX_VALUE_LENGTH + delimiter.length) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private int advance(int matched, int b) {
+        while (matched > 0 && delimiter[matched] != (byte) b) {
+            matched = failure[matched - 1];
+        }
+        return delimiter[matched] == (byte) b ? matched + 1 : 0;
+    }
+
+    /**
+     * Reads a header line, which is ASCII.
+     *
+     * @return the line without CRLF or {@code null} at the end of the stream.
+     */
+    private String readLine() throws IOException {
+        final StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = read()) != EOF) {
+            if (b == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        return null;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            return EOF;
+        }
+        final int b = in.read();
+        if (b != EOF) {
+            position++;
+        }
+        return b;
+    }
+
+    /**
+     * Returns a parameter of a header value like {@code form-data; name="field"}.
+     *
+     * @param value the header value.
+     * @param name  the parameter name.
+     * @return the unquoted parameter value, or {@code null} if there is no such parameter.
+     */
+    static String getParameter(String value, String name) {
+        int i = value.indexOf(';');
+        while (i >= 0 && i < value.length()) {
+            final int equals = value.indexOf('=', i);
+            if (equals < 0) {
+                return null;
+            }
+            final String key = value.substring(i + 1, equals).trim();
+            final StringBuilder parameter = new StringBuilder();
+            i = equals + 1;
+            while (i < value.length() && value.charAt(i) == ' ') {
+                i++;
+            }
+            if (i < value.length() && value.charAt(i) == '"') {
+                for (i++; i < value.length() && value.charAt(i) != '"'; i++) {
+                    if (value.charAt(i) == '\\' && i + 1 < value.length()) {
+                        i++;
+                    }
+                    parameter.append(value.charAt(i));
+                }
+                i = value.indexOf(';', i);
+            } else {
+                final int end = value.indexOf(';', i);
+                parameter.append(value, i, end < 0 ? value.length() : end);
+                i = end;
+            }
+            if (key.toLowerCase(Locale.ROOT).equals(name)) {
+                return parameter.toString().trim();
+            }
+        }
+        return null;
+    }
+
+    private static int[] failureFunction(byte[] pattern) {
+        final int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[k] != pattern[i]) {
+                k = failure[k - 1];
+            }
+            if (pattern[k] == pattern[i]) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Input stream which records the bytes read from the underlying stream, so they can be
+ * read again after {@link #replay()}. Bytes are read from the underlying stream in chunks
+ * directly into the recording buffer. Once replaying, the recorded bytes are returned
+ * first and the remaining bytes are read from the underlying stream without recording.
+ */
+class ReplayableInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final InputStream in;
+
+    private byte[] buffer = new byte[CHUNK_SIZE];
+
+    private int count;
+
+    private int pos;
+
+    private boolean recording = true;
+
+    ReplayableInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Rewinds the stream to the first byte and stops recording.
+     */
+    void replay() {
+        pos = 0;
+        recording = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == count && (!recording || fill() < 0)) {
+            return recording ? -1 : in.read();
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == count) {
+            if (!recording) {
+                return in.read(b, off, len);
+            }
+            if (fill() < 0) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, count - pos);
+        System.arraycopy(buffer, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return count - pos + in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the next chunk of the underlying stream into the buffer.
+     */
+    private int fill() throws IOException {
+        if (count == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        final int n = in.read(buffer, count, Math.min(CHUNK_SIZE, buffer.length - count));
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+}
@@ -15,9 +15,8 @@
  */
 package org.mvcspec.ozark.servlet;
 
-import org.mvcspec.ozark.util.AnnotationUtils;
+import org.mvcspec.ozark.index.ControllerIndex;
 
-import javax.mvc.Controller;
 import javax.servlet.ServletContainerInitializer;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -41,6 +40,8 @@ public class OzarkContainerInitializer implements ServletContainerInitializer {
 
     public static final String CONTROLLER_CLASSES = OzarkContainerInitializer.class.getName() + ".CONTROLLER_CLASSES";
 
+    public static final String CONTROLLER_INDEX = OzarkContainerInitializer.class.getName() + ".CONTROLLER_INDEX";
+
     private static final Logger LOG = Logger.getLogger(OzarkContainerInitializer.class.getName());
 
     @Override
@@ -52,18 +53,26 @@ public class OzarkContainerInitializer implements ServletContainerInitializer {
 
         LOG.log(Level.INFO, "Ozark version {0} started", getClass().getPackage().getImplementationVersion());
 
+        // classes compiled without the index are inspected using reflection
+        ClassLoader classLoader = servletContext.getClassLoader();
+        ControllerIndex index = ControllerIndex.load(
+                classLoader != null ? classLoader : OzarkContainerInitializer.class.getClassLoader());
+        if (!index.isEmpty()) {
+            LOG.fine("Using controller index");
+        }
+
         Set<Class> controllerClasses = new LinkedHashSet<>();
 
         for (Class<?> clazz : classes) {
 
             // collect all controllers
-            if (AnnotationUtils.hasAnnotationOnClassOrMethod(clazz, Path.class)
-                    && AnnotationUtils.hasAnnotationOnClassOrMethod(clazz, Controller.class)) {
+            if (index.isController(clazz)) {
                 controllerClasses.add(clazz);
             }
         }
 
         servletContext.setAttribute(CONTROLLER_CLASSES, Collections.unmodifiableSet(controllerClasses));
+        servletContext.setAttribute(CONTROLLER_INDEX, index);
 
     }
 }
@@ -24,18 +24,21 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriBuilder;
 import java.lang.reflect.Method;
 import java.net.URI;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * <p>A cache for all parsed instances of {@link UriTemplate}
  * providing methods to generate URIs of current application.</p>
  *
+ * <p>URIs are generated from {@link CompiledUriTemplate}s, which are created by
+ * {@link #compile()} once all templates are registered.</p>
+ *
  * @author Florian Hirsch
  */
 @Vetoed // produced by UriTemplateParser
@@ -43,31 +46,21 @@ public class ApplicationUris {
 
     private MultivaluedMap<String, UriTemplate> uriTemplates = new MultivaluedHashMap<>();
 
+    private final Map<String, CompiledUriTemplate> compiledTemplates = new ConcurrentHashMap<>();
+
     /**
      * @see javax.mvc.MvcContext#uri(String)
      */
     public URI get(String identifier) {
-        return getUriBuilder(identifier).build();
+        return getCompiledTemplate(identifier).expand();
     }
 
     /**
      * @see javax.mvc.MvcContext#uri(String, Map)
      */
     public URI get(String identifier, Map<String, Object> params) {
-        UriTemplate uriTemplate = getUriTemplate(identifier);
-        UriBuilder uriBuilder = UriBuilder.fromUri(uriTemplate.path());
-        Map<String, Object> pathParams = new HashMap<>();
         // Everything which is not defined as query- or matrix-param should be a path-param
-        params.forEach((key, value) -> {
-            if (uriTemplate.queryParams().contains(key)) {
-                uriBuilder.queryParam(key, value);
-            } else if (uriTemplate.matrixParams().contains(key)) {
-                uriBuilder.matrixParam(key, value);
-            } else {
-                pathParams.put(key, value);
-            }
-        });
-        return uriBuilder.buildFromMap(pathParams);
+        return getCompiledTemplate(identifier).expand(params);
     }
 
     /**
@@ -94,6 +87,19 @@ public class ApplicationUris {
         }
         String identifier = String.format("%s#%s", method.getDeclaringClass().getSimpleName(), method.getName());
         merge(identifier, uriTemplate);
+        compiledTemplates.clear();
+    }
+
+    /**
+     * <p>Compiles the templates of all identifiers which are used unambiguously. Templates
+     * which aren't compiled yet are compiled on first use.</p>
+     */
+    void compile() {
+        uriTemplates.forEach((identifier, templates) -> {
+            if (templates.size() == 1) {
+                compiledTemplates.put(identifier, new CompiledUriTemplate(templates.get(0)));
+            }
+        });
     }
 
     /**
@@ -121,6 +127,15 @@ public class ApplicationUris {
         }
     }
 
+    private CompiledUriTemplate getCompiledTemplate(String identifier) {
+        CompiledUriTemplate compiledTemplate = identifier != null ? compiledTemplates.get(identifier) : null;
+        if (compiledTemplate == null) {
+            compiledTemplate = new CompiledUriTemplate(getUriTemplate(identifier));
+            compiledTemplates.put(identifier, compiledTemplate);
+        }
+        return compiledTemplate;
+    }
+
     /**
      * @return the UriTemplate for given identifier from the cache.
      * @throws IllegalArgumentException if no UriTemplate
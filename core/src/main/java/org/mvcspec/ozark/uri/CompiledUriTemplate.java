@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.uri;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>A {@link UriTemplate} split into literal and variable path segments, which expands
+ * to a URI without going through {@link javax.ws.rs.core.UriBuilder}. The URI of a
+ * template without variables is built once and cached.</p>
+ *
+ * <p>Values are encoded by {@link UriEncoder}. Like {@code UriBuilder#buildFromMap},
+ * {@code /} in path values is encoded, parameters which aren't query or matrix
+ * parameters are taken as path values and a missing path value is an error.</p>
+ */
+final class CompiledUriTemplate {
+
+    /**
+     * Expected length of an encoded value, used to size the builder.
+     */
+    private static final int VALUE_LENGTH_ESTIMATE = 16;
+
+    private final String[] literals;
+
+    private final String[] variables;
+
+    private final Set<String> queryParams;
+
+    private final Set<String> matrixParams;
+
+    private final int lengthEstimate;
+
+    private final URI uri;
+
+    CompiledUriTemplate(UriTemplate template) {
+        final List<String> literals = new ArrayList<>();
+        final List<String> variables = new ArrayList<>();
+        final String path = template.path();
+        int start = 0;
+        int open = path.indexOf('{');
+        while (open >= 0) {
+            final int close = findClosingBrace(path, open);
+            literals.add(path.substring(start, open));
+            // the name may be followed by a regular expression, e.g. {id: [0-9]+}
+            final String variable = path.substring(open + 1, close);
+            final int colon = variable.indexOf(':');
+            variables.add((colon < 0 ? variable : variable.substring(0, colon)).trim());
+            start = close + 1;
+            open = path.indexOf('{', start);
+        }
+        literals.add(path.substring(start));
+
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new String[0]);
+        this.queryParams = template.queryParams();
+        this.matrixParams = template.matrixParams();
+        this.lengthEstimate = path.length() + VALUE_LENGTH_ESTIMATE
+                * (variables.size() + queryParams.size() + matrixParams.size());
+        this.uri = variables.isEmpty() ? URI.create(path) : null;
+    }
+
+    /**
+     * @return the URI of a template without variables.
+     * @throws IllegalArgumentException if the template has variables.
+     */
+    URI expand() {
+        if (uri == null) {
+            throw noValue(variables[0]);
+        }
+        return uri;
+    }
+
+    /**
+     * @param params the values of path, query and matrix parameters.
+     * @return the expanded URI.
+     * @throws IllegalArgumentException if a path value or any value is {@code null}.
+     */
+    URI expand(Map<String, ?> params) {
+        if (params.isEmpty()) {
+            return expand();
+        }
+        final StringBuilder sb = new StringBuilder(lengthEstimate);
+        sb.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            final String name = variables[i];
+            final Object value = params.get(name);
+            if (value == null || queryParams.contains(name) || matrixParams.contains(name)) {
+                throw noValue(name);
+            }
+            UriEncoder.PATH_SEGMENT.encode(value.toString(), sb);
+            sb.append(literals[i + 1]);
+        }
+        if (queryParams.isEmpty() && matrixParams.isEmpty()) {
+            return URI.create(sb.toString());
+        }
+
+        StringBuilder query = null;
+        for (Map.Entry<String, ?> param : params.entrySet()) {
+            final String name = param.getKey();
+            final boolean isQueryParam = queryParams.contains(name);
+            if (!isQueryParam && !matrixParams.contains(name)) {
+                continue;
+            }
+            if (param.getValue() == null) {
+                throw new IllegalArgumentException(String.format("Value of parameter '%s' is null", name));
+            }
+            if (isQueryParam) {
+                if (query == null) {
+                    query = new StringBuilder(VALUE_LENGTH_ESTIMATE * queryParams.size()).append('?');
+                } else {
+                    query.append('&');
+                }
+                UriEncoder.QUERY_PARAM.encode(name, query);
+                query.append('=');
+                UriEncoder.QUERY_PARAM.encode(param.getValue().toString(), query);
+            } else {
+                final String value = param.getValue().toString();
+                sb.append(';');
+                UriEncoder.MATRIX_PARAM.encode(name, sb);
+                if (!value.isEmpty()) {
+                    sb.append('=');
+                    UriEncoder.MATRIX_PARAM.encode(value, sb);
+                }
+            }
+        }
+        if (query != null) {
+            sb.append(query);
+        }
+        return URI.create(sb.toString());
+    }
+
+    private static int findClosingBrace(String path, int open) {
+        int depth = 0;
+        for (int i = open; i < path.length(); i++) {
+            final char ch = path.charAt(i);
+            if (ch == '{') {
+                depth++;
+            } else if (ch == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unbalanced braces in template '%s'", path));
+    }
+
+    private static IllegalArgumentException noValue(String variable) {
+        return new IllegalArgumentException(String.format("The template variable '%s' has no value", variable));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.uri;
+
+/**
+ * <p>Percent-encodes template values the way {@link javax.ws.rs.core.UriBuilder} of the
+ * reference implementation does. Characters which are allowed in the respective component
+ * are kept, all others are encoded as UTF-8. Unlike {@code UriBuilder}, curly braces in
+ * values are encoded and never taken as template variables.</p>
+ */
+enum UriEncoder {
+
+    /**
+     * A path segment, {@code /} and {@code ;} are encoded.
+     */
+    PATH_SEGMENT("!$&'()*+,=:@", false, false),
+
+    /**
+     * The name or value of a matrix parameter, {@code ;} and {@code =} are encoded.
+     * Percent-encoded characters are kept.
+     */
+    MATRIX_PARAM("!$&'()*+,:@", true, false),
+
+    /**
+     * The name or value of a query parameter, only unreserved characters are kept and
+     * spaces are encoded as {@code +}. Percent-encoded characters are kept.
+     */
+    QUERY_PARAM("", true, true);
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final boolean[] allowed = new boolean[128];
+
+    private final boolean keepEncoded;
+
+    private final boolean spaceAsPlus;
+
+    UriEncoder(String allowedSpecialChars, boolean keepEncoded, boolean spaceAsPlus) {
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            allowed[ch] = true;
+        }
+        for (char ch = 'A'; ch <= 'Z'; ch++) {
+            allowed[ch] = true;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            allowed[ch] = true;
+        }
+        for (char ch : "-._~".toCharArray()) {
+            allowed[ch] = true;
+        }
+        for (char ch : allowedSpecialChars.toCharArray()) {
+            allowed[ch] = true;
+        }
+        this.keepEncoded = keepEncoded;
+        this.spaceAsPlus = spaceAsPlus;
+    }
+
+    /**
+     * Appends the encoded value.
+     *
+     * @param value the value to encode.
+     * @param sb    the builder to append to.
+     */
+    void encode(String value, StringBuilder sb) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (ch < 128) {
+                append(value, i, ch, sb);
+            } else if (!Character.isSurrogate(ch)) {
+                if (ch < 0x800) {
+                    appendEscaped(0xC0 | ch >> 6, sb);
+                } else {
+                    appendEscaped(0xE0 | ch >> 12, sb);
+                    appendEscaped(0x80 | ch >> 6 & 0x3F, sb);
+                }
+                appendEscaped(0x80 | ch & 0x3F, sb);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(ch, value.charAt(++i));
+                appendEscaped(0xF0 | cp >> 18, sb);
+                appendEscaped(0x80 | cp >> 12 & 0x3F, sb);
+                appendEscaped(0x80 | cp >> 6 & 0x3F, sb);
+                appendEscaped(0x80 | cp & 0x3F, sb);
+            } else {
+                // like String.getBytes(), which replaces unpaired surrogates
+                append(value, i, '?', sb);
+            }
+        }
+    }
+
+    private void append(String value, int index, char ch, StringBuilder sb) {
+        if (allowed[ch]) {
+            sb.append(ch);
+        } else if (ch == ' ' && spaceAsPlus) {
+            sb.append('+');
+        } else if (ch == '%' && keepEncoded && isEncoded(value, index)) {
+            sb.append(ch);
+        } else {
+            appendEscaped(ch, sb);
+        }
+    }
+
+    private static boolean isEncoded(String value, int index) {
+        return index + 2 < value.length() && isHexDigit(value.charAt(index + 1))
+                && isHexDigit(value.charAt(index + 2));
+    }
+
+    private static boolean isHexDigit(char ch) {
+        return (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+    }
+
+    private static void appendEscaped(int b, StringBuilder sb) {
+        sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+
+}
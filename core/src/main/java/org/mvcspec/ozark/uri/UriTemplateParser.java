@@ -15,10 +15,10 @@
  */
 package org.mvcspec.ozark.uri;
 
+import org.mvcspec.ozark.index.ControllerIndex;
 import org.mvcspec.ozark.servlet.OzarkContainerInitializer;
 import org.mvcspec.ozark.util.AnnotationUtils;
 import org.mvcspec.ozark.util.BeanUtils;
-import org.mvcspec.ozark.util.ControllerUtils;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -37,7 +37,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Stream;
 
 /**
  * <p>Parses all instances of {@link UriTemplate} and @Produces
@@ -64,18 +63,27 @@ public class UriTemplateParser {
         Set<Class<?>> controllerClasses =
                 (Set<Class<?>>) servletContext.getAttribute(OzarkContainerInitializer.CONTROLLER_CLASSES);
 
-        applicationUris = init(controllerClasses != null ? controllerClasses : Collections.emptySet());
+        ControllerIndex controllerIndex =
+                (ControllerIndex) servletContext.getAttribute(OzarkContainerInitializer.CONTROLLER_INDEX);
+
+        applicationUris = init(controllerClasses != null ? controllerClasses : Collections.emptySet(),
+                controllerIndex != null ? controllerIndex : ControllerIndex.empty());
 
     }
 
     ApplicationUris init(Set<Class<?>> controllers) {
+        return init(controllers, ControllerIndex.empty());
+    }
+
+    ApplicationUris init(Set<Class<?>> controllers, ControllerIndex controllerIndex) {
         ApplicationUris uris = new ApplicationUris();
         controllers.forEach(controller ->
-                Stream.of(controller.getMethods()).filter(ControllerUtils::isControllerMethod).forEach(method -> {
+                controllerIndex.getControllerMethods(controller).forEach(method -> {
                     UriTemplate uriTemplate = parseMethod(method, mvcContext.getBasePath());
                     uris.register(uriTemplate, method);
                 })
         );
+        uris.compile();
         return uris;
     }
 
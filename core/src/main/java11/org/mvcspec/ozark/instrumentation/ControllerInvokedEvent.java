@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Invocation of a controller method, from matching to returning.
+ */
+@Name("org.mvcspec.ozark.ControllerInvoked")
+@Label("Controller Invoked")
+@Category({"Ozark", "MVC"})
+@Description("Invocation of a controller method, from matching to returning.")
+class ControllerInvokedEvent extends Event {
+
+    @Label("Controller")
+    String controller;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    int status;
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import jdk.jfr.Event;
+
+import java.lang.reflect.Method;
+
+/**
+ * Commits Java Flight Recorder events for the request lifecycle. This class replaces the
+ * Java 8 implementation on Java 11 and newer, see the class of the same name in
+ * {@code src/main/java}.
+ */
+public final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+        // static methods only
+    }
+
+    public static Object beginControllerInvoked() {
+        return begin(new ControllerInvokedEvent());
+    }
+
+    public static void commitControllerInvoked(Object event, Method method, int status) {
+        if (event instanceof ControllerInvokedEvent) {
+            final ControllerInvokedEvent e = (ControllerInvokedEvent) event;
+            e.end();
+            if (e.shouldCommit()) {
+                e.controller = method.getDeclaringClass().getName();
+                e.method = method.getName();
+                e.status = status;
+                e.commit();
+            }
+        }
+    }
+
+    public static Object beginViewResolved() {
+        return begin(new ViewResolvedEvent());
+    }
+
+    public static void commitViewResolved(Object event, String view, Class<?> engine) {
+        if (event instanceof ViewResolvedEvent) {
+            final ViewResolvedEvent e = (ViewResolvedEvent) event;
+            e.end();
+            if (e.shouldCommit()) {
+                e.view = view;
+                e.engine = engine != null ? engine.getName() : null;
+                e.commit();
+            }
+        }
+    }
+
+    public static Object beginViewRendered() {
+        return begin(new ViewRenderedEvent());
+    }
+
+    public static void endViewRendered(Object event) {
+        if (event instanceof ViewRenderedEvent) {
+            ((ViewRenderedEvent) event).end();
+        }
+    }
+
+    public static void commitViewRendered(Object event, String view, Class<?> engine, long bytes, boolean failed) {
+        if (event instanceof ViewRenderedEvent) {
+            final ViewRenderedEvent e = (ViewRenderedEvent) event;
+            if (e.shouldCommit()) {
+                e.view = view;
+                e.engine = engine.getName();
+                e.bytes = bytes;
+                e.failed = failed;
+                e.commit();
+            }
+        }
+    }
+
+    public static Object beginCsrfValidated() {
+        return begin(new CsrfValidatedEvent());
+    }
+
+    public static void commitCsrfValidated(Object event, Method method, boolean valid) {
+        if (event instanceof CsrfValidatedEvent) {
+            final CsrfValidatedEvent e = (CsrfValidatedEvent) event;
+            e.end();
+            if (e.shouldCommit()) {
+                e.controller = method.getDeclaringClass().getName();
+                e.method = method.getName();
+                e.valid = valid;
+                e.commit();
+            }
+        }
+    }
+
+    public static void redirectScopeCreated(Class<?> store) {
+        final RedirectScopeCreatedEvent e = new RedirectScopeCreatedEvent();
+        if (e.shouldCommit()) {
+            e.store = store.getName();
+            e.commit();
+        }
+    }
+
+    public static void redirectScopeDestroyed(Class<?> store, int beans) {
+        final RedirectScopeDestroyedEvent e = new RedirectScopeDestroyedEvent();
+        if (e.shouldCommit()) {
+            e.store = store.getName();
+            e.beans = beans;
+            e.commit();
+        }
+    }
+
+    public static void bindingFailed(Method method, int bindingErrors, int validationErrors) {
+        final BindingFailedEvent e = new BindingFailedEvent();
+        if (e.shouldCommit()) {
+            e.controller = method.getDeclaringClass().getName();
+            e.method = method.getName();
+            e.bindingErrors = bindingErrors;
+            e.validationErrors = validationErrors;
+            e.commit();
+        }
+    }
+
+    private static Event begin(Event event) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import javax.enterprise.inject.spi.ObserverMethod;
+import javax.enterprise.inject.spi.ProcessObserverMethod;
+import javax.mvc.event.MvcEvent;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test for the observed events registered by {@link OzarkCdiExtension}. The event types
+ * are only used here, as the registrations are static.
+ */
+public class OzarkCdiExtensionTest {
+
+    @Test
+    public void shouldSeparateAsyncObservers() {
+        OzarkCdiExtension extension = new OzarkCdiExtension();
+        extension.processObserverMethod(observer(SyncEvent.class, false), null);
+        extension.processObserverMethod(observer(AsyncEvent.class, true), null);
+
+        assertTrue(OzarkCdiExtension.isEventObserved(SyncEvent.class));
+        assertFalse(OzarkCdiExtension.isEventObservedAsync(SyncEvent.class));
+        assertFalse(OzarkCdiExtension.isEventObserved(AsyncEvent.class));
+        assertTrue(OzarkCdiExtension.isEventObservedAsync(AsyncEvent.class));
+    }
+
+    @Test
+    public void shouldRegisterSyncAndAsyncObserversOfSameEvent() {
+        OzarkCdiExtension extension = new OzarkCdiExtension();
+        extension.processObserverMethod(observer(BothEvent.class, true), null);
+        extension.processObserverMethod(observer(BothEvent.class, false), null);
+
+        assertTrue(OzarkCdiExtension.isEventObserved(BothEvent.class));
+        assertTrue(OzarkCdiExtension.isEventObservedAsync(BothEvent.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ProcessObserverMethod<MvcEvent, Object> observer(Class<? extends MvcEvent> type, boolean async) {
+        ObserverMethod<MvcEvent> observerMethod = EasyMock.createMock(ObserverMethod.class);
+        expect(observerMethod.getObservedType()).andReturn(type).anyTimes();
+        expect(observerMethod.isAsync()).andReturn(async).anyTimes();
+        ProcessObserverMethod<MvcEvent, Object> pom = EasyMock.createMock(ProcessObserverMethod.class);
+        expect(pom.getObserverMethod()).andReturn(observerMethod).anyTimes();
+        replay(observerMethod, pom);
+        return pom;
+    }
+
+    private interface SyncEvent extends MvcEvent {
+    }
+
+    private interface AsyncEvent extends MvcEvent {
+    }
+
+    private interface BothEvent extends MvcEvent {
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import org.junit.Test;
+import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.Properties;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.PassivationCapable;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Configuration;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs requests through {@link RedirectScopeManager} using the cookie transport and a
+ * browser which keeps the cookies it receives.
+ */
+public class RedirectScopeManagerTest {
+
+    private static final String COOKIE_NAME = "org.mvcspec.ozark.redirect.Cookie";
+
+    private final Map<String, Cookie> browserCookies = new LinkedHashMap<>();
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private final BeanContextual contextual = new BeanContextual();
+
+    @Test
+    public void signedScopeIsOnlyVisibleAfterOneRedirect() {
+        properties.put(Properties.REDIRECT_SCOPE_COOKIES, true);
+        properties.put(Properties.REDIRECT_SCOPE_STORE, new SignedRedirectScopeStore.Builder().build());
+
+        // the controller stores a value and redirects
+        RedirectScopeManager manager = newRequest();
+        manager.get(contextual, new DummyCreationalContext()).value = "flash";
+        manager.controllerRedirectEvent(null);
+        assertNotNull(browserCookies.get(COOKIE_NAME));
+
+        // the follow-up request sees the value
+        manager = newRequest();
+        assertEquals("flash", manager.get(contextual).value);
+        assertNull(browserCookies.get(COOKIE_NAME));
+
+        // any later request doesn't
+        manager = newRequest();
+        assertNull(manager.get(contextual));
+    }
+
+    @Test
+    public void repeatedRedirectKeepsScope() {
+        properties.put(Properties.REDIRECT_SCOPE_COOKIES, true);
+        properties.put(Properties.REDIRECT_SCOPE_STORE, new SignedRedirectScopeStore.Builder().build());
+
+        RedirectScopeManager manager = newRequest();
+        manager.get(contextual, new DummyCreationalContext()).value = "flash";
+        manager.controllerRedirectEvent(null);
+
+        manager = newRequest();
+        manager.controllerRedirectEvent(null);
+
+        manager = newRequest();
+        assertEquals("flash", manager.get(contextual).value);
+    }
+
+    /**
+     * Creates a manager for a new request, which carries the cookies of the browser. The
+     * cookies set on the response are applied to the browser right away.
+     */
+    private RedirectScopeManager newRequest() {
+        Map<String, Object> attributes = new HashMap<>();
+        Cookie[] cookies = browserCookies.values().toArray(new Cookie[0]);
+        HttpServletRequest request = proxy(HttpServletRequest.class, (method, args) -> {
+            switch (method) {
+                case "getCookies":
+                    return cookies.length > 0 ? cookies : null;
+                case "getContextPath":
+                    return "/app";
+                case "getAttribute":
+                    return attributes.get(args[0]);
+                case "setAttribute":
+                    return attributes.put((String) args[0], args[1]);
+                case "removeAttribute":
+                    return attributes.remove(args[0]);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        HttpServletResponse response = proxy(HttpServletResponse.class, (method, args) -> {
+            if (!"addCookie".equals(method)) {
+                throw new UnsupportedOperationException(method);
+            }
+            Cookie cookie = (Cookie) args[0];
+            if (cookie.getMaxAge() == 0) {
+                browserCookies.remove(cookie.getName());
+            } else {
+                browserCookies.put(cookie.getName(), cookie);
+            }
+            return null;
+        });
+        Configuration config = proxy(Configuration.class, (method, args) -> properties.get(args[0]));
+
+        OzarkConfig ozarkConfig = new OzarkConfig();
+        setField(ozarkConfig, "config", config);
+        RedirectScopeManager manager = new RedirectScopeManager();
+        setField(manager, "request", request);
+        setField(manager, "response", response);
+        setField(manager, "config", config);
+        setField(manager, "ozarkConfig", ozarkConfig);
+        manager.beforeProcessControllerEvent(null);
+        return manager;
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(RedirectScopeManagerTest.class.getClassLoader(), new Class[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+
+    private static void setField(Object instance, String name, Object value) {
+        try {
+            Field field = instance.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(instance, value);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class FlashBean implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String value;
+
+    }
+
+    private static class BeanContextual implements Contextual<FlashBean>, PassivationCapable {
+
+        @Override
+        public FlashBean create(CreationalContext<FlashBean> creationalContext) {
+            return new FlashBean();
+        }
+
+        @Override
+        public void destroy(FlashBean instance, CreationalContext<FlashBean> creationalContext) {
+        }
+
+        @Override
+        public String getId() {
+            return FlashBean.class.getName();
+        }
+
+    }
+
+    private static class DummyCreationalContext implements CreationalContext<FlashBean> {
+
+        @Override
+        public void push(FlashBean incompleteInstance) {
+        }
+
+        @Override
+        public void release() {
+        }
+
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import org.easymock.EasyMock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.easymock.EasyMock.anyBoolean;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+public class RedirectScopeStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+
+    @Test
+    public void inMemoryStore() {
+        verifyStore(new InMemoryRedirectScopeStore.Builder().build());
+    }
+
+    @Test
+    public void inMemoryStoreExpiresScopes() {
+        RedirectScopeStore store = new InMemoryRedirectScopeStore.Builder().ttl(Duration.ZERO).build();
+        assertTrue(store.create(request, new RedirectScope("expired")));
+        assertFalse(store.find(request, "expired").isPresent());
+    }
+
+    @Test
+    public void inMemoryStoreEvictsOldestScope() {
+        RedirectScopeStore store = new InMemoryRedirectScopeStore.Builder().maxScopes(1).build();
+        assertTrue(store.create(request, new RedirectScope("first")));
+        assertTrue(store.create(request, new RedirectScope("second")));
+        assertFalse(store.find(request, "first").isPresent());
+        assertTrue(store.find(request, "second").isPresent());
+        assertEquals(1L, store.getMetrics().get().getEvicted());
+        assertEquals(1L, store.getMetrics().get().getLive());
+    }
+
+    @Test
+    public void inMemoryStoreEvictsInOrderOfCreation() {
+        RedirectScopeStore store = new InMemoryRedirectScopeStore.Builder().maxScopes(2).build();
+        assertTrue(store.create(request, new RedirectScope("first")));
+        assertTrue(store.create(request, new RedirectScope("second")));
+        assertTrue(store.remove(request, "first").isPresent());
+        store.update(request, new RedirectScope("second"));
+        assertTrue(store.create(request, new RedirectScope("third")));
+        assertTrue(store.create(request, new RedirectScope("fourth")));
+        assertFalse(store.find(request, "second").isPresent());
+        assertTrue(store.find(request, "third").isPresent());
+        assertTrue(store.find(request, "fourth").isPresent());
+        assertEquals(1L, store.getMetrics().get().getEvicted());
+    }
+
+    @Test
+    public void sessionStore() {
+        mockSession();
+        verifyStore(new SessionRedirectScopeStore.Builder().build());
+    }
+
+    @Test
+    public void sessionStoreLimitsScopesPerSession() throws InterruptedException {
+        mockSession();
+        RedirectScopeStore store = new SessionRedirectScopeStore.Builder().maxScopesPerSession(2).build();
+        assertTrue(store.create(request, new RedirectScope("first")));
+        Thread.sleep(5L);   // creation times must differ
+        assertTrue(store.create(request, new RedirectScope("second")));
+        assertTrue(store.create(request, new RedirectScope("third")));
+        assertFalse(store.find(request, "first").isPresent());
+        assertTrue(store.find(request, "second").isPresent());
+        assertTrue(store.find(request, "third").isPresent());
+        assertEquals(1L, store.getMetrics().get().getEvicted());
+        assertEquals(2L, store.getMetrics().get().getLive());
+    }
+
+    @Test
+    public void sessionStoreExpiresScopes() {
+        mockSession();
+        RedirectScopeStore store = new SessionRedirectScopeStore.Builder().ttl(Duration.ZERO).build();
+        assertTrue(store.create(request, new RedirectScope("expired")));
+        assertFalse(store.find(request, "expired").isPresent());
+        assertEquals(1L, store.getMetrics().get().getExpired());
+        assertEquals(0L, store.getMetrics().get().getLive());
+    }
+
+    @Test
+    public void fileStore() {
+        verifyStore(fileStore(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void fileStoreRejectsInvalidIds() {
+        assertFalse(fileStore(folder.getRoot().toPath()).find(request, "../../etc/passwd").isPresent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fileStoreRequiresDirectory() {
+        new FileRedirectScopeStore.Builder().build();
+    }
+
+    @Test
+    public void fileStoreCreatesPrivateDirectory() throws IOException {
+        Path directory = folder.getRoot().toPath().resolve("scopes");
+        fileStore(directory);
+        assertTrue(Files.isDirectory(directory));
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+    }
+
+    @Test
+    public void fileStoreRejectsClassesNotAllowed() {
+        RedirectScope scope = new RedirectScope("scope1");
+        scope.put("bean", new Bean("value"), new DummyCreationalContext());
+        fileStore(folder.getRoot().toPath()).update(request, scope);
+
+        RedirectScopeStore store = new FileRedirectScopeStore.Builder().directory(folder.getRoot().toPath())
+                .allowedClasses(DummyCreationalContext.class.getName()).build();
+        try {
+            store.find(request, "scope1");
+            fail("Bean class must not be deserialized");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InvalidClassException);
+        }
+    }
+
+    @Test
+    public void signedStoreRestoresScopeFromToken() {
+        verifySignedStore(new SignedRedirectScopeStore.Builder().secret(SECRET).build());
+    }
+
+    @Test
+    public void signedStoreRestoresScopeFromEncryptedToken() {
+        verifySignedStore(new SignedRedirectScopeStore.Builder().secret(SECRET).encrypt(true).build());
+    }
+
+    @Test
+    public void signedStoreRejectsModifiedToken() {
+        RedirectScopeStore store = new SignedRedirectScopeStore.Builder().secret(SECRET).build();
+        String token = store.update(request, createScope("value"));
+        String tampered = (token.charAt(0) == 'A' ? 'B' : 'A') + token.substring(1);
+        assertFalse(store.find(request, tampered).isPresent());
+        assertFalse(store.find(request, "garbage.token").isPresent());
+    }
+
+    @Test
+    public void signedStoreRejectsTokenOfOtherSecret() {
+        String token = new SignedRedirectScopeStore.Builder().build().update(request, createScope("value"));
+        assertFalse(new SignedRedirectScopeStore.Builder().secret(SECRET).build().find(request, token).isPresent());
+    }
+
+    @Test
+    public void signedStoreExpiresTokens() {
+        RedirectScopeStore store = new SignedRedirectScopeStore.Builder().secret(SECRET).ttl(Duration.ZERO).build();
+        assertFalse(store.find(request, store.update(request, createScope("value"))).isPresent());
+    }
+
+    @Test
+    public void signedStoreUsesFallbackForLargeScopes() {
+        RedirectScopeStore store = new SignedRedirectScopeStore.Builder()
+                .secret(SECRET)
+                .maxLength(16)
+                .fallback(new InMemoryRedirectScopeStore.Builder().build())
+                .build();
+        RedirectScope scope = createScope("value");
+        assertTrue(store.create(request, scope));
+        assertEquals(scope.getId(), store.update(request, scope));
+        assertEquals("value", ((Bean) store.find(request, scope.getId()).get().getInstance("bean")).value);
+        assertTrue(store.remove(request, scope.getId()).isPresent());
+    }
+
+    private void verifySignedStore(RedirectScopeStore store) {
+        RedirectScope scope = createScope("value");
+        assertTrue(store.create(request, scope));
+        String token = store.update(request, scope);
+        Optional<RedirectScope> found = store.find(request, token);
+        assertTrue(found.isPresent());
+        assertEquals("value", ((Bean) found.get().getInstance("bean")).value);
+        assertEquals(scope.getCreatedAt(), found.get().getCreatedAt());
+    }
+
+    private static RedirectScope createScope(String value) {
+        RedirectScope scope = new RedirectScope(ScopeIdGenerator.next());
+        scope.put("bean", new Bean(value), new DummyCreationalContext());
+        return scope;
+    }
+
+    private void mockSession() {
+        Map<String, Object> attributes = new HashMap<>();
+        HttpSession session = (HttpSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpSession.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return "session";
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        case "removeAttribute":
+                            return attributes.remove(args[0]);
+                        case "getAttributeNames":
+                            return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        EasyMock.reset(request);
+        expect(request.getSession()).andReturn(session).anyTimes();
+        expect(request.getSession(anyBoolean())).andReturn(session).anyTimes();
+        replay(request);
+    }
+
+    private static RedirectScopeStore fileStore(Path directory) {
+        return new FileRedirectScopeStore.Builder()
+                .directory(directory)
+                .allowedClasses(Bean.class.getName(), DummyCreationalContext.class.getName())
+                .build();
+    }
+
+    private void verifyStore(RedirectScopeStore store) {
+
+        RedirectScope scope = new RedirectScope("scope1");
+        assertTrue(store.create(request, scope));
+        assertFalse(store.create(request, new RedirectScope("scope1")));
+
+        scope.put("bean", new Bean("value"), new DummyCreationalContext());
+        store.update(request, scope);
+
+        Optional<RedirectScope> found = store.find(request, "scope1");
+        assertTrue(found.isPresent());
+        assertEquals("value", ((Bean) found.get().getInstance("bean")).value);
+
+        assertTrue(store.remove(request, "scope1").isPresent());
+        assertFalse(store.find(request, "scope1").isPresent());
+        assertFalse(store.find(request, "unknown").isPresent());
+
+    }
+
+    private static class Bean implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String value;
+
+        Bean(String value) {
+            this.value = value;
+        }
+
+    }
+
+    private static class DummyCreationalContext implements CreationalContext<Object>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void push(Object incompleteInstance) {
+        }
+
+        @Override
+        public void release() {
+        }
+
+    }
+
+}
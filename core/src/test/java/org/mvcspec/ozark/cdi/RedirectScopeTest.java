@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import org.junit.Test;
+
+import javax.enterprise.context.spi.Contextual;
+import javax.enterprise.context.spi.CreationalContext;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RedirectScopeTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void destroyUsesStoredContextual() {
+
+        Object instance = new Object();
+        Contextual<Object> contextual = createMock(Contextual.class);
+        CreationalContext<Object> creational = createMock(CreationalContext.class);
+        contextual.destroy(instance, creational);
+        creational.release();
+        replay(contextual, creational);
+
+        RedirectScope scope = new RedirectScope("scope");
+        scope.put("bean", contextual, instance, creational);
+        scope.destroy(beanId -> {
+            throw new AssertionError("Bean must not be looked up");
+        });
+
+        verify(contextual, creational);
+        assertTrue(scope.getInstances().isEmpty());
+        assertNull(scope.getContextual("bean"));
+
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.cdi;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScopeIdGeneratorTest {
+
+    @Test
+    public void generatesUniqueUrlSafeIds() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String id = ScopeIdGenerator.next();
+            assertEquals(22, id.length());
+            assertTrue(id, id.matches("[A-Za-z0-9_-]+"));
+            ids.add(id);
+        }
+        assertEquals(1000, ids.size());
+    }
+
+    @Test
+    public void usesPureJavaGenerator() {
+        String algorithm = ScopeIdGenerator.newRandom().getAlgorithm();
+        assertTrue(algorithm, algorithm.equals("DRBG") || algorithm.equals("SHA1PRNG"));
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mvcspec.ozark.index.ControllerIndex;
+
+import javax.mvc.Controller;
+import javax.mvc.View;
+import javax.mvc.security.CsrfProtected;
+import javax.validation.Validation;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Variant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * The test for {@link ControllerMetadataRegistry}.
+ */
+public class ControllerMetadataRegistryTest {
+
+    private ControllerMetadataRegistry registry;
+
+    @Before
+    public void onBefore() {
+        registry = new ControllerMetadataRegistry();
+        registry.validatorFactory = Validation.buildDefaultValidatorFactory();
+    }
+
+    @Test
+    public void shouldResolveViewFromMethodOrClass() throws NoSuchMethodException {
+        assertEquals("method.jsp", metadata(BooksController.class, "list").getView());
+        assertEquals("class.jsp", metadata(BooksController.class, "form").getView());
+    }
+
+    @Test
+    public void shouldResolveVariantsFromMethodOrClass() throws NoSuchMethodException {
+        assertEquals(Arrays.asList(variant("text/html"), variant("application/xhtml+xml")),
+                metadata(BooksController.class, "list").getVariants());
+        assertEquals(Collections.singletonList(variant("text/plain")),
+                metadata(BooksController.class, "form").getVariants());
+    }
+
+    @Test
+    public void shouldResolveCsrfRequirement() throws NoSuchMethodException {
+        ControllerMetadata save = metadata(BooksController.class, "save", String.class);
+        assertTrue(save.isPost());
+        assertTrue(save.isCsrfProtected());
+        ControllerMetadata list = metadata(BooksController.class, "list");
+        assertFalse(list.isPost());
+        assertFalse(list.isCsrfProtected());
+    }
+
+    @Test
+    public void shouldResolveValidationNeeds() throws NoSuchMethodException {
+        ControllerMetadata save = metadata(BooksController.class, "save", String.class);
+        assertTrue(save.isParameterValidationRequired());
+        assertFalse(save.isReturnValueValidationRequired());
+        ControllerMetadata list = metadata(BooksController.class, "list");
+        assertFalse(list.isParameterValidationRequired());
+        assertTrue(list.isReturnValueValidationRequired());
+        ControllerMetadata form = metadata(BooksController.class, "form");
+        assertFalse(form.isParameterValidationRequired());
+        assertFalse(form.isReturnValueValidationRequired());
+    }
+
+    @Test
+    public void shouldResolveAgainstResourceClass() throws NoSuchMethodException {
+        assertEquals("class.jsp", metadata(BooksController.class, "inherited").getView());
+        assertEquals("base.jsp", metadata(BaseController.class, "inherited").getView());
+    }
+
+    @Test
+    public void shouldCacheMetadata() throws NoSuchMethodException {
+        registry.init(new HashSet<>(Collections.singletonList(BooksController.class)), ControllerIndex.empty());
+        assertSame(metadata(BooksController.class, "list"), metadata(BooksController.class, "list"));
+        assertSame(metadata(BooksController.class, "other"), metadata(BooksController.class, "other"));
+    }
+
+    private ControllerMetadata metadata(Class<?> resourceClass, String name, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        return registry.get(resourceClass, resourceClass.getMethod(name, parameterTypes));
+    }
+
+    private static Variant variant(String mediaType) {
+        return Variant.mediaTypes(MediaType.valueOf(mediaType)).build().get(0);
+    }
+
+    @View("base.jsp")
+    public static class BaseController {
+
+        @GET
+        @Path("inherited")
+        public void inherited() {
+        }
+
+    }
+
+    @Path("books")
+    @Controller
+    @View("class.jsp")
+    @Produces("text/plain")
+    public static class BooksController extends BaseController {
+
+        @GET
+        @View("method.jsp")
+        @Produces({"text/html", "application/xhtml+xml"})
+        @NotNull
+        public String list() {
+            return null;
+        }
+
+        @GET
+        @Path("new")
+        public void form() {
+        }
+
+        @POST
+        @CsrfProtected
+        public void save(@NotNull @FormParam("title") String title) {
+        }
+
+        public void other() {
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.core;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.engine.Viewable;
+import org.mvcspec.ozark.security.CsrfProtectFilter;
+import org.mvcspec.ozark.security.CsrfToken;
+import org.mvcspec.ozark.security.CsrfTokenManager;
+import org.mvcspec.ozark.security.CsrfTokenStrategy;
+
+import javax.enterprise.event.Event;
+import javax.mvc.event.MvcEvent;
+import javax.mvc.security.Csrf;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link ViewResponseFilter} and {@link CsrfProtectFilter} in the order of their
+ * priorities. The view filter turns every entity into a {@link Viewable}, including the
+ * bodies of exception mappers, which must not get a new CSRF token.
+ */
+public class ViewResponseFilterCsrfTest {
+
+    private static final CsrfToken TOKEN = new CsrfToken("X-CSRF-TOKEN", "_csrf", "token");
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private final CsrfTokenStrategy strategy = EasyMock.createStrictMock(CsrfTokenStrategy.class);
+
+    private final HttpServletResponse response = EasyMock.createMock(HttpServletResponse.class);
+
+    private HttpServletRequest request;
+
+    private OzarkConfig ozarkConfig;
+
+    @Before
+    public void setUp() {
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        ozarkConfig = EasyMock.createMock(OzarkConfig.class);
+        expect(ozarkConfig.isAsyncEvents()).andReturn(false).anyTimes();
+        expect(ozarkConfig.getDefaultViewFileExtension()).andReturn(null).anyTimes();
+        expect(ozarkConfig.getCsrfOptions()).andReturn(Csrf.CsrfOptions.EXPLICIT).anyTimes();
+        expect(ozarkConfig.getCsrfHeaderMediaTypes()).andReturn(Collections.emptyList()).anyTimes();
+        expect(ozarkConfig.isCsrfViewTokens()).andReturn(true).anyTimes();
+        replay(ozarkConfig);
+    }
+
+    @Test
+    public void viewGetsToken() throws Exception {
+        expect(strategy.getToken(anyObject(), anyObject(), eq(true))).andReturn(Optional.of(TOKEN));
+        expect(response.isCommitted()).andReturn(false);
+        expect(response.containsHeader(TOKEN.getHeaderName())).andReturn(false);
+        response.setHeader(TOKEN.getHeaderName(), TOKEN.getValue());
+        replay(strategy, response);
+
+        ContainerResponseContext responseContext = filter("books.jsp", MediaType.TEXT_HTML_TYPE, 200);
+        assertTrue(responseContext.getEntity() instanceof Viewable);
+        verify(strategy, response);
+    }
+
+    @Test
+    public void mappedExceptionDoesNotCreateToken() throws Exception {
+        expect(strategy.getToken(anyObject(), anyObject(), eq(false))).andReturn(Optional.empty());
+        replay(strategy, response);
+
+        ContainerResponseContext responseContext = filter("{\"error\":\"not found\"}",
+                MediaType.APPLICATION_JSON_TYPE, 404);
+        assertTrue(responseContext.getEntity() instanceof Viewable);
+        verify(strategy, response);
+    }
+
+    /**
+     * Runs both filters on the response of the controller.
+     */
+    private ContainerResponseContext filter(Object entity, MediaType mediaType, int status) throws Exception {
+        ContainerRequestContext requestContext = EasyMock.createMock(ContainerRequestContext.class);
+        expect(requestContext.getProperty(anyString())).andReturn(null).anyTimes();
+        replay(requestContext);
+        ContainerResponseContext responseContext = responseContext(entity, mediaType, status);
+
+        viewResponseFilter().filter(requestContext, responseContext);
+        csrfProtectFilter().filter(requestContext, responseContext);
+        return responseContext;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ViewResponseFilter viewResponseFilter() throws NoSuchMethodException {
+        Method method = Books.class.getMethod("find");
+        ResourceInfo resourceInfo = EasyMock.createMock(ResourceInfo.class);
+        expect(resourceInfo.getResourceMethod()).andReturn(method).anyTimes();
+        expect((Object) resourceInfo.getResourceClass()).andReturn(Books.class).anyTimes();
+        UriInfo uriInfo = EasyMock.createMock(UriInfo.class);
+        expect(uriInfo.getBaseUri()).andReturn(URI.create("http://localhost/app/")).anyTimes();
+        ControllerMetadataRegistry controllerMetadata = EasyMock.createMock(ControllerMetadataRegistry.class);
+        expect(controllerMetadata.get(Books.class, method)).andReturn(
+                new ControllerMetadata(null, Collections.emptyList(), false, false, false, false)).anyTimes();
+        // other tests may have registered observers of the redirect event
+        Event<MvcEvent> dispatcher = EasyMock.createNiceMock(Event.class);
+        replay(resourceInfo, uriInfo, controllerMetadata, dispatcher);
+
+        ViewResponseFilter filter = new ViewResponseFilter();
+        setField(filter, "resourceInfo", resourceInfo);
+        setField(filter, "uriInfo", uriInfo);
+        setField(filter, "request", request);
+        setField(filter, "ozarkConfig", ozarkConfig);
+        setField(filter, "controllerMetadata", controllerMetadata);
+        setField(filter, "dispatcher", dispatcher);
+        return filter;
+    }
+
+    private CsrfProtectFilter csrfProtectFilter() {
+        CsrfTokenManager csrfTokenManager = new CsrfTokenManager();
+        setField(csrfTokenManager, "tokenStrategy", strategy);
+        setField(csrfTokenManager, "request", request);
+        setField(csrfTokenManager, "response", response);
+        setField(csrfTokenManager, "ozarkConfig", ozarkConfig);
+        CsrfProtectFilter filter = new CsrfProtectFilter();
+        setField(filter, "csrfTokenManager", csrfTokenManager);
+        setField(filter, "ozarkConfig", ozarkConfig);
+        return filter;
+    }
+
+    /**
+     * A response context keeping its state like the container does.
+     */
+    private static ContainerResponseContext responseContext(Object entity, MediaType mediaType, int status) {
+        Object[] state = {entity, mediaType, status};
+        return (ContainerResponseContext) Proxy.newProxyInstance(ViewResponseFilterCsrfTest.class.getClassLoader(),
+                new Class[]{ContainerResponseContext.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getEntity":
+                            return state[0];
+                        case "setEntity":
+                            state[0] = args[0];
+                            if (args.length == 3) {
+                                state[1] = args[2];
+                            }
+                            return null;
+                        case "getMediaType":
+                            return state[1];
+                        case "getStatus":
+                            return state[2];
+                        case "getStatusInfo":
+                            return Response.Status.fromStatusCode((Integer) state[2]);
+                        case "setStatusInfo":
+                            state[2] = ((Response.StatusType) args[0]).getStatusCode();
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static void setField(Object instance, String name, Object value) {
+        try {
+            Field field = instance.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(instance, value);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Books {
+
+        public String find() {
+            return null;
+        }
+    }
+
+}
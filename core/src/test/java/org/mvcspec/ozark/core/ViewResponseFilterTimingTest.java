@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.core;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.engine.ViewEngineFinder;
+import org.mvcspec.ozark.engine.Viewable;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
+
+import javax.enterprise.event.Event;
+import javax.mvc.event.MvcEvent;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The test for the request timing of {@link ViewResponseFilter}. Views are logged by
+ * {@link ViewableWriter} once they are processed, all other responses by the filter.
+ */
+public class ViewResponseFilterTimingTest {
+
+    private final Logger logger = Logger.getLogger(RequestTiming.class.getName());
+
+    private final List<String> logged = new ArrayList<>();
+
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            logged.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private HttpServletRequest request;
+
+    @Before
+    public void setUp() {
+        logger.addHandler(handler);
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMethod":
+                            return "GET";
+                        case "getRequestURI":
+                            return "/app/books";
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        RequestTiming.start(request).controllerMatched();
+    }
+
+    @After
+    public void tearDown() {
+        logger.removeHandler(handler);
+    }
+
+    @Test
+    public void viewIsLoggedByWriter() throws Exception {
+        ResponseState state = new ResponseState("books.jsp");
+        filter().filter(requestContext(), state.context());
+
+        assertTrue(state.entity instanceof Viewable);
+        assertTrue(state.headers.containsKey(RequestTiming.SERVER_TIMING));
+        assertEquals(Collections.emptyList(), logged);
+    }
+
+    @Test
+    public void redirectIsLogged() throws Exception {
+        ResponseState state = new ResponseState("redirect:books");
+        filter().filter(requestContext(), state.context());
+
+        assertEquals(null, state.entity);
+        assertEquals(1, logged.size());
+        assertTrue(logged.get(0), logged.get(0).contains(" status=303"));
+    }
+
+    @Test
+    public void mappedExceptionWithoutViewIsLogged() throws Exception {
+        // the body of an exception mapper is taken for a view name, which no engine can process
+        ResponseState state = new ResponseState("{\"error\":\"not found\"}");
+        state.status = 404;
+        filter().filter(requestContext(), state.context());
+        assertEquals(Collections.emptyList(), logged);
+
+        writeWithoutEngine((Viewable) state.entity);
+        assertEquals(1, logged.size());
+        assertTrue(logged.get(0), logged.get(0).contains(" status=500"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ViewResponseFilter filter() throws NoSuchMethodException {
+        Method method = Books.class.getMethod("list");
+        ResourceInfo resourceInfo = EasyMock.createMock(ResourceInfo.class);
+        expect(resourceInfo.getResourceMethod()).andReturn(method).anyTimes();
+        expect((Object) resourceInfo.getResourceClass()).andReturn(Books.class).anyTimes();
+        UriInfo uriInfo = EasyMock.createMock(UriInfo.class);
+        expect(uriInfo.getBaseUri()).andReturn(URI.create("http://localhost/app/")).anyTimes();
+        OzarkConfig ozarkConfig = EasyMock.createMock(OzarkConfig.class);
+        expect(ozarkConfig.isAsyncEvents()).andReturn(false).anyTimes();
+        expect(ozarkConfig.getDefaultViewFileExtension()).andReturn(null).anyTimes();
+        ControllerMetadataRegistry controllerMetadata = EasyMock.createMock(ControllerMetadataRegistry.class);
+        expect(controllerMetadata.get(Books.class, method)).andReturn(
+                new ControllerMetadata(null, Collections.emptyList(), false, false, false, false)).anyTimes();
+        // other tests may have registered observers of the redirect event
+        Event<MvcEvent> dispatcher = EasyMock.createNiceMock(Event.class);
+        replay(resourceInfo, uriInfo, ozarkConfig, controllerMetadata, dispatcher);
+
+        ViewResponseFilter filter = new ViewResponseFilter();
+        setField(filter, "resourceInfo", resourceInfo);
+        setField(filter, "uriInfo", uriInfo);
+        setField(filter, "request", request);
+        setField(filter, "ozarkConfig", ozarkConfig);
+        setField(filter, "controllerMetadata", controllerMetadata);
+        setField(filter, "dispatcher", dispatcher);
+        return filter;
+    }
+
+    private static ContainerRequestContext requestContext() {
+        ContainerRequestContext requestContext = EasyMock.createMock(ContainerRequestContext.class);
+        expect(requestContext.getProperty(anyString())).andReturn(null).anyTimes();
+        replay(requestContext);
+        return requestContext;
+    }
+
+    /**
+     * Writes a view for which no engine is found, which must fail.
+     */
+    private void writeWithoutEngine(Viewable viewable) throws IOException {
+        ViewableWriter writer = new ViewableWriter();
+        ViewEngineFinder finder = EasyMock.createMock(ViewEngineFinder.class);
+        expect(finder.find(viewable)).andReturn(null);
+        replay(finder);
+        setField(writer, "engineFinder", finder);
+        setField(writer, "injectedRequest", request);
+        setField(writer, "messages", new Messages());
+        try {
+            writer.writeTo(viewable, null, null, new Annotation[] {}, MediaType.TEXT_HTML_TYPE,
+                    new MultivaluedHashMap<>(), null);
+            fail("No engine found");
+        } catch (ServerErrorException e) {
+            assertEquals(500, e.getResponse().getStatus());
+        }
+    }
+
+    private static void setField(Object instance, String name, Object value) {
+        try {
+            Field field = instance.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(instance, value);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The state of a response, as kept by the container.
+     */
+    private static final class ResponseState {
+
+        private Object entity;
+
+        private int status = 200;
+
+        private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+        private ResponseState(Object entity) {
+            this.entity = entity;
+        }
+
+        private ContainerResponseContext context() {
+            return (ContainerResponseContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{ContainerResponseContext.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getEntity":
+                                return entity;
+                            case "setEntity":
+                                entity = args[0];
+                                return null;
+                            case "getStatus":
+                                return status;
+                            case "getStatusInfo":
+                                return Response.Status.fromStatusCode(status);
+                            case "setStatusInfo":
+                                status = ((Response.StatusType) args[0]).getStatusCode();
+                                return null;
+                            case "getMediaType":
+                                return null;
+                            case "getHeaders":
+                                return headers;
+                            case "getHeaderString":
+                                return (String) headers.getFirst((String) args[0]);
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    public static class Books {
+
+        public String list() {
+            return null;
+        }
+    }
+
+}
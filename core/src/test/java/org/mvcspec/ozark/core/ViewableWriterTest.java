@@ -24,23 +24,29 @@ import javax.enterprise.event.Event;
 import javax.mvc.event.MvcEvent;
 import javax.ws.rs.core.Configuration;
 import org.mvcspec.ozark.engine.Viewable;
+import org.mvcspec.ozark.instrumentation.RequestTiming;
 import javax.mvc.engine.ViewEngine;
 import javax.mvc.engine.ViewEngineContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.ServerErrorException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * The JUnit tests for the ViewableWriter class.
@@ -118,10 +124,113 @@ public class ViewableWriterTest {
         viewable.setModels(new ModelsImpl());
 
         expect(finder.find(anyObject())).andReturn(viewEngine);
+        expect(request.getAttribute(RequestTiming.class.getName())).andReturn(null);
         viewEngine.processView((ViewEngineContext) anyObject());
+        expect(config.getProperty(anyString())).andReturn(null).anyTimes();
 
-        replay(finder, request, viewEngine, response);
+        replay(finder, request, viewEngine, response, config);
         writer.writeTo(viewable, null, null, new Annotation[] {}, MediaType.WILDCARD_TYPE, map, null);
         verify(finder, request, viewEngine, response);
     }
+
+    /**
+     * Test writeTo method passes the output of the view to JAX-RS in bulk.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    public void testWriteToInBulk() throws Exception {
+        ViewableWriter writer = new ViewableWriter();
+        ViewEngineFinder finder = EasyMock.createMock(ViewEngineFinder.class);
+        HttpServletRequest request = EasyMock.createMock(HttpServletRequest.class);
+        Event<MvcEvent> dispatcher = EasyMock.createNiceMock(Event.class);
+        Configuration config = EasyMock.createMock(Configuration.class);
+        setField(writer, "mvc", new MvcContextImpl());
+        setField(writer, "engineFinder", finder);
+        setField(writer, "injectedRequest", request);
+        setField(writer, "injectedResponse",
+                EasyMock.createMock(HttpServletResponse.class));
+        setField(writer, "dispatcher", dispatcher);
+        setField(writer, "config", config);
+
+        StringBuilder page = new StringBuilder();
+        while (page.length() < 64 * 1024) {
+            page.append("<p>Hello World</p>\n");
+        }
+        ViewEngine viewEngine = new ViewEngine() {
+            @Override
+            public boolean supports(String view) {
+                return true;
+            }
+
+            @Override
+            public void processView(ViewEngineContext context) {
+                try {
+                    context.getResponse(HttpServletResponse.class).getWriter().write(page.toString());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(int b) {
+                fail("Single byte written");
+            }
+        };
+
+        Viewable viewable = new Viewable("myview");
+        viewable.setModels(new ModelsImpl());
+        expect(finder.find(viewable)).andReturn(viewEngine);
+        expect(request.getAttribute(RequestTiming.class.getName())).andReturn(null);
+        expect(config.getProperty(anyString())).andReturn(null).anyTimes();
+        replay(finder, request, dispatcher, config);
+
+        MultivaluedHashMap<String, Object> headers = new MultivaluedHashMap<>();
+        headers.putSingle("Content-Type", MediaType.TEXT_HTML_TYPE);
+        writer.writeTo(viewable, null, null, new Annotation[] {}, MediaType.TEXT_HTML_TYPE, headers, out);
+        assertEquals(page.toString(), out.toString("UTF-8"));
+    }
+
+    /**
+     * Test writeTo method with a view no engine can process.
+     */
+    @Test
+    public void testWriteToWithoutEngine() throws Exception {
+        HttpServletRequest request = EasyMock.createStrictMock(HttpServletRequest.class);
+        expect(request.getAttribute(RequestTiming.class.getName())).andReturn(null);
+        replay(request);
+        writeWithoutEngine(new Viewable("{}"), request);
+        verify(request);
+    }
+
+    /**
+     * Writes a view for which no engine is found, which must fail.
+     */
+    private static void writeWithoutEngine(Viewable viewable, HttpServletRequest request) throws IOException {
+        ViewableWriter writer = new ViewableWriter();
+        ViewEngineFinder finder = EasyMock.createMock(ViewEngineFinder.class);
+        expect(finder.find(viewable)).andReturn(null);
+        replay(finder);
+        setField(writer, "engineFinder", finder);
+        setField(writer, "injectedRequest", request);
+        setField(writer, "messages", new Messages());
+        try {
+            writer.writeTo(viewable, null, null, new Annotation[] {}, MediaType.TEXT_HTML_TYPE,
+                    new MultivaluedHashMap<>(), null);
+            fail("No engine found");
+        } catch (ServerErrorException e) {
+            assertEquals(500, e.getResponse().getStatus());
+        }
+    }
+
+    private static void setField(Object instance, String name, Object value) {
+        try {
+            Field field = instance.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(instance, value);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mvcspec.ozark.core.ModelsImpl;
+
+import javax.mvc.Models;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The test for {@link ModelsRequestWrapper}.
+ */
+public class ModelsRequestWrapperTest {
+
+    private final Models models = new ModelsImpl();
+
+    private final HttpServletRequest request = createMock(HttpServletRequest.class);
+
+    @Before
+    public void setUp() {
+        models.put("book", "Dune").put("author", "Herbert").put("empty", null);
+    }
+
+    @Test
+    public void shouldReadModelsWithoutCopying() {
+        expect(request.getAttribute("locale")).andReturn("en");
+        expect(request.getAttribute("empty")).andReturn(null);
+        replay(request);
+
+        ModelsRequestWrapper wrapper = new ModelsRequestWrapper(request, models);
+        assertThat(wrapper.getAttribute("book"), equalTo("Dune"));
+        assertThat(wrapper.getAttribute("locale"), equalTo("en"));
+        assertThat(wrapper.getAttribute("empty"), nullValue());
+        verify(request);
+    }
+
+    @Test
+    public void shouldListModelsFirst() {
+        expect(request.getAttributeNames()).andReturn(enumeration("locale", "book"));
+        replay(request);
+
+        ModelsRequestWrapper wrapper = new ModelsRequestWrapper(request, models);
+        assertThat(Collections.list(wrapper.getAttributeNames()),
+                equalTo(Arrays.asList("book", "author", "locale")));
+        verify(request);
+    }
+
+    @Test
+    public void shouldHideModelsWhichAreOverwritten() {
+        request.setAttribute("book", "Emma");
+        expect(request.getAttribute("book")).andReturn("Emma");
+        request.removeAttribute("author");
+        expect(request.getAttribute("author")).andReturn(null);
+        expect(request.getAttributeNames()).andReturn(enumeration("book"));
+        replay(request);
+
+        ModelsRequestWrapper wrapper = new ModelsRequestWrapper(request, models);
+        wrapper.setAttribute("book", "Emma");
+        wrapper.removeAttribute("author");
+        assertThat(wrapper.getAttribute("book"), equalTo("Emma"));
+        assertThat(wrapper.getAttribute("author"), nullValue());
+        assertThat(Collections.list(wrapper.getAttributeNames()), equalTo(Collections.singletonList("book")));
+        verify(request);
+    }
+
+    private static Enumeration<String> enumeration(String... names) {
+        return Collections.enumeration(Arrays.asList(names));
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRegistration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The test for {@link ServletNameResolver}.
+ */
+public class ServletNameResolverTest {
+
+    private final Map<String, ServletRegistration> registrations = new LinkedHashMap<>();
+
+    private final ServletNameResolver resolver = new ServletNameResolver();
+
+    @Before
+    public void setUp() {
+        registrations.put("liberty", registration((String[]) null));
+        registrations.put("default", registration("/"));
+        registrations.put("jsp", registration("*.jsp", "*.jspx"));
+    }
+
+    @Test
+    public void shouldSearchRegistrationsOnce() {
+        resolver.servletContext = servletContext(1);
+        assertThat(resolver.getServletName("*.jsp", "*.jspx"), is("jsp"));
+        assertThat(resolver.getServletName("*.jsp", "*.jspx"), is("jsp"));
+        verify(resolver.servletContext);
+    }
+
+    @Test
+    public void shouldCacheMissingServlet() {
+        resolver.servletContext = servletContext(1);
+        assertThat(resolver.getServletName("*.xhtml"), nullValue());
+        assertThat(resolver.getServletName("*.xhtml"), nullValue());
+        verify(resolver.servletContext);
+    }
+
+    @Test
+    public void shouldSearchAgainAfterEviction() {
+        resolver.servletContext = servletContext(2);
+        assertThat(resolver.getServletName("*.jsp"), is("jsp"));
+        resolver.evict("*.jsp");
+        registrations.remove("jsp");
+        assertThat(resolver.getServletName("*.jsp"), nullValue());
+        verify(resolver.servletContext);
+    }
+
+    private ServletContext servletContext(int lookups) {
+        ServletContext servletContext = createMock(ServletContext.class);
+        expect((Object) servletContext.getServletRegistrations()).andReturn(registrations).times(lookups);
+        replay(servletContext);
+        return servletContext;
+    }
+
+    private static ServletRegistration registration(String... mappings) {
+        ServletRegistration registration = createMock(ServletRegistration.class);
+        expect(registration.getMappings()).andReturn(mappings != null ? Arrays.asList(mappings) : null).anyTimes();
+        replay(registration);
+        return registration;
+    }
+
+}
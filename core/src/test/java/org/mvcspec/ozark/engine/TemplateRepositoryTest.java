@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.engine;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.ServletContext;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TemplateRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ServletContext servletContext;
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        servletContext = EasyMock.createNiceMock(ServletContext.class);
+        expect(servletContext.getRealPath(anyString()))
+                .andAnswer(() -> file((String) EasyMock.getCurrentArguments()[0]).getPath()).anyTimes();
+        expect(servletContext.getResourceAsStream(anyString())).andAnswer(() -> {
+            File file = file((String) EasyMock.getCurrentArguments()[0]);
+            if (!file.exists()) {
+                return null;
+            }
+            reads.incrementAndGet();
+            return new FileInputStream(file);
+        }).anyTimes();
+        replay(servletContext);
+    }
+
+    @Test
+    public void cachesTemplates() throws IOException {
+        write("/index.tpl", "Hello");
+        TemplateRepository repository = new TemplateRepository(servletContext, 10, 1024, 60000L);
+
+        assertThat(repository.get("/index.tpl").getContent(StandardCharsets.UTF_8), is("Hello"));
+        assertThat(repository.get("/index.tpl").getContent(StandardCharsets.UTF_8), is("Hello"));
+        assertThat(reads.get(), is(1));
+    }
+
+    @Test
+    public void missingTemplate() throws IOException {
+        TemplateRepository repository = new TemplateRepository(servletContext, 10, 1024, 60000L);
+        assertFalse(repository.find("/missing.tpl").isPresent());
+        assertThat(repository.getLastModified("/missing.tpl"), is(-1L));
+    }
+
+    @Test
+    public void detectsModifications() throws IOException {
+        File file = write("/index.tpl", "Hello");
+        TemplateRepository repository = new TemplateRepository(servletContext, 10, 1024, 0L);
+        List<String> changed = new ArrayList<>();
+        repository.addChangeListener(changed::add);
+
+        assertThat(repository.get("/index.tpl").getContent(StandardCharsets.UTF_8), is("Hello"));
+
+        write("/index.tpl", "World");
+        assertTrue(file.setLastModified(file.lastModified() + 10000L));
+
+        assertThat(repository.get("/index.tpl").getContent(StandardCharsets.UTF_8), is("World"));
+        assertThat(repository.getLastModified("/index.tpl"), is(file.lastModified()));
+        assertThat(changed.size(), is(1));
+        assertThat(changed.get(0), is("/index.tpl"));
+    }
+
+    @Test
+    public void invalidate() throws IOException {
+        write("/index.tpl", "Hello");
+        TemplateRepository repository = new TemplateRepository(servletContext, 10, 1024, 60000L);
+        List<String> changed = new ArrayList<>();
+        repository.addChangeListener(changed::add);
+
+        repository.get("/index.tpl");
+        repository.invalidate("/index.tpl");
+        repository.get("/index.tpl");
+
+        assertThat(reads.get(), is(2));
+        assertThat(changed.size(), is(1));
+    }
+
+    @Test
+    public void boundedCache() throws IOException {
+        write("/small.tpl", "small");
+        write("/large.tpl", "larger than the limit");
+        write("/other.tpl", "other");
+        TemplateRepository repository = new TemplateRepository(servletContext, 1, 10, 60000L);
+
+        repository.get("/large.tpl");
+        repository.get("/large.tpl");
+        assertThat(reads.get(), is(2));
+
+        repository.get("/small.tpl");
+        repository.get("/other.tpl");
+        repository.get("/other.tpl");
+        repository.get("/small.tpl");
+        assertThat(reads.get(), is(5));
+    }
+
+    @Test
+    public void invalidatesDependentViews() throws IOException {
+        write("/index.tpl", "Hello");
+        write("/layout.tpl", "Layout");
+        TemplateRepository repository = new TemplateRepository(servletContext, 10, 1024, 60000L);
+        List<String> changed = new ArrayList<>();
+        repository.addChangeListener(changed::add);
+
+        repository.beginRender("/index.tpl");
+        try {
+            repository.get("/index.tpl");
+            repository.get("/layout.tpl");
+        } finally {
+            repository.endRender();
+        }
+
+        repository.invalidate("/layout.tpl");
+        assertThat(changed.size(), is(2));
+        assertTrue(changed.contains("/layout.tpl"));
+        assertTrue(changed.contains("/index.tpl"));
+
+        changed.clear();
+        repository.invalidate("/index.tpl");
+        assertThat(changed.size(), is(1));
+    }
+
+    @Test
+    public void watchesFolder() throws Exception {
+        folder.newFolder("views");
+        write("/views/index.tpl", "Hello");
+        TemplateRepository repository = new TemplateRepository(servletContext, 10, 1024, 60000L);
+        CountDownLatch latch = new CountDownLatch(1);
+        repository.addChangeListener(path -> {
+            if (path.equals("/views/index.tpl")) {
+                latch.countDown();
+            }
+        });
+
+        try {
+            repository.watch("views");
+            assertThat(repository.get("/views/index.tpl").getContent(StandardCharsets.UTF_8), is("Hello"));
+
+            write("/views/index.tpl", "World");
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertThat(repository.get("/views/index.tpl").getContent(StandardCharsets.UTF_8), is("World"));
+        } finally {
+            repository.close();
+        }
+    }
+
+    private File file(String path) {
+        return new File(folder.getRoot(), path);
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = file(path);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.event;
+
+import org.junit.Test;
+
+import javax.mvc.event.AfterControllerEvent;
+import javax.mvc.event.ControllerRedirectEvent;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.util.Collections;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class EventSnapshotsTest {
+
+    @Test
+    public void afterControllerIsDetachedFromRequest() throws NoSuchMethodException {
+        MultivaluedMap<String, String> query = new MultivaluedHashMap<>();
+        query.add("page", "1");
+        UriInfo uriInfo = uriInfo(query);
+        ResourceInfo resourceInfo = resourceInfo();
+
+        AfterControllerEvent event = EventSnapshots.afterController(uriInfo, resourceInfo);
+        verify(uriInfo, resourceInfo);
+        query.add("page", "2");
+
+        assertEquals(URI.create("http://localhost/app/books?page=1"), event.getUriInfo().getRequestUri());
+        assertEquals("books", event.getUriInfo().getPath());
+        assertEquals(Collections.singletonList("1"), event.getUriInfo().getQueryParameters().get("page"));
+        assertTrue(event.getUriInfo().getMatchedResources().isEmpty());
+        assertEquals(EventSnapshotsTest.class, event.getResourceInfo().getResourceClass());
+        assertEquals("controller", event.getResourceInfo().getResourceMethod().getName());
+
+        // observers can't change what other observers see
+        event.getUriInfo().getQueryParameters().add("page", "3");
+        assertEquals(Collections.singletonList("1"), event.getUriInfo().getQueryParameters().get("page"));
+    }
+
+    @Test
+    public void controllerRedirectIsNotAfterController() throws NoSuchMethodException {
+        ControllerRedirectEvent event = EventSnapshots.controllerRedirect(
+                uriInfo(new MultivaluedHashMap<>()), resourceInfo(), URI.create("/app/login"));
+
+        assertEquals(URI.create("/app/login"), event.getLocation());
+        assertFalse(event instanceof AfterControllerEvent);
+    }
+
+    public void controller() {
+    }
+
+    private static UriInfo uriInfo(MultivaluedMap<String, String> query) {
+        UriInfo uriInfo = createNiceMock(UriInfo.class);
+        expect(uriInfo.getRequestUri()).andReturn(URI.create("http://localhost/app/books?page=1"));
+        expect(uriInfo.getPath(anyBoolean())).andReturn("books").anyTimes();
+        expect(uriInfo.getPathSegments(anyBoolean())).andReturn(Collections.emptyList()).anyTimes();
+        expect(uriInfo.getPathParameters(anyBoolean())).andReturn(new MultivaluedHashMap<>()).anyTimes();
+        expect(uriInfo.getQueryParameters(anyBoolean())).andReturn(query).anyTimes();
+        expect(uriInfo.getMatchedURIs(anyBoolean())).andReturn(Collections.emptyList()).anyTimes();
+        replay(uriInfo);
+        return uriInfo;
+    }
+
+    private static ResourceInfo resourceInfo() throws NoSuchMethodException {
+        ResourceInfo resourceInfo = createMock(ResourceInfo.class);
+        expect(resourceInfo.getResourceMethod()).andReturn(EventSnapshotsTest.class.getMethod("controller"));
+        expect((Object) resourceInfo.getResourceClass()).andReturn(EventSnapshotsTest.class);
+        replay(resourceInfo);
+        return resourceInfo;
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.index;
+
+import org.junit.Test;
+import org.mvcspec.ozark.core.ModelsImpl;
+
+import javax.mvc.Controller;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * <p>The test for {@link ControllerIndex}. The index of the test classes is generated by
+ * {@link ControllerIndexProcessor} when they are compiled.</p>
+ */
+public class ControllerIndexTest {
+
+    @Test
+    public void shouldMatchReflection() throws ClassNotFoundException {
+        ControllerIndex index = ControllerIndex.load(getClass().getClassLoader());
+        ControllerIndex reflection = ControllerIndex.empty();
+        assertFalse(index.isEmpty());
+        assertTrue(index.getClassNames().contains(ArrayController.class.getName()));
+        assertTrue(index.getClassNames().contains(Resource.class.getName()));
+
+        for (String name : index.getClassNames()) {
+            Class<?> clazz = Class.forName(name);
+            assertEquals(name, reflection.isController(clazz), index.isController(clazz));
+            if (reflection.isController(clazz)) {
+                assertEquals(name, new HashSet<>(reflection.getControllerMethods(clazz)),
+                        new HashSet<>(index.getControllerMethods(clazz)));
+            }
+        }
+    }
+
+    @Test
+    public void shouldUseSignatures() throws ClassNotFoundException, NoSuchMethodException {
+        ControllerIndex index = ControllerIndex.load(getClass().getClassLoader());
+        assertEquals(new HashSet<>(Arrays.asList(
+                ArrayController.class.getMethod("find", int[].class, String[][].class),
+                ArrayController.class.getMethod("save", long.class),
+                ArrayController.class.getMethod("inherited", Object.class))),
+                new HashSet<>(index.getControllerMethods(ArrayController.class)));
+    }
+
+    @Test
+    public void shouldReadIndex() throws IOException, NoSuchMethodException {
+        ControllerIndex index = ControllerIndex.read(new StringReader(
+                "controller " + ArrayController.class.getName() + "\n"
+                        + "method " + ArrayController.class.getName() + " save(long)\n"
+                        + "\n"
+                        + "resource " + Resource.class.getName() + "\n"));
+
+        assertTrue(index.isController(ArrayController.class));
+        assertFalse(index.isController(Resource.class));
+        List<Method> methods = index.getControllerMethods(ArrayController.class);
+        assertEquals(Collections.singletonList(ArrayController.class.getMethod("save", long.class)), methods);
+    }
+
+    @Test
+    public void shouldFallBackToReflection() {
+        ControllerIndex index = ControllerIndex.empty();
+        assertTrue(index.isController(ArrayController.class));
+        assertFalse(index.isController(Resource.class));
+        assertFalse(index.isController(ControllerIndexTest.class));
+        assertEquals(3, index.getControllerMethods(ArrayController.class).size());
+    }
+
+    @Test
+    public void shouldNotIndexSubclassesOfOtherCompilations() {
+        ControllerIndex index = ControllerIndex.load(getClass().getClassLoader());
+        assertTrue(index.getClassNames().contains(CloneableResource.class.getName()));
+        assertFalse(index.getClassNames().contains(ModelsResource.class.getName()));
+        assertFalse(index.isController(ModelsResource.class));
+    }
+
+    @Test
+    public void shouldFormatSignatures() throws NoSuchMethodException {
+        assertEquals("find([I,[[Ljava.lang.String;)",
+                ControllerIndex.getSignature(ArrayController.class.getMethod("find", int[].class, String[][].class)));
+    }
+
+    public interface Base<T> {
+
+        @GET
+        @Path("inherited")
+        void inherited(T value);
+
+    }
+
+    @Controller
+    @Path("arrays")
+    public static class ArrayController implements Base<Object> {
+
+        @GET
+        public String find(@QueryParam("ids") int[] ids, @QueryParam("names") String[][] names) {
+            return "find.jsp";
+        }
+
+        @POST
+        public String save(long id) {
+            return "save.jsp";
+        }
+
+        @Override
+        public void inherited(Object value) {
+        }
+
+        public void helper() {
+        }
+
+    }
+
+    @Path("resource")
+    public static class Resource {
+
+        @GET
+        public String get() {
+            return "";
+        }
+
+    }
+
+    @Path("cloneable")
+    public static class CloneableResource implements Cloneable {
+
+        @GET
+        public String get() {
+            return "";
+        }
+
+    }
+
+    /**
+     * {@link ModelsImpl} isn't compiled together with the tests and could change later.
+     */
+    @Path("models")
+    public static class ModelsResource extends ModelsImpl {
+
+        @GET
+        public String get() {
+            return "";
+        }
+
+    }
+
+}
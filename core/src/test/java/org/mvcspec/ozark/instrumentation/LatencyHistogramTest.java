@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        long previous = -1L;
+        for (int i = 0; i < LatencyHistogram.index(LatencyHistogram.MAX_VALUE); i++) {
+            long highest = LatencyHistogram.highestEquivalentValue(i);
+            assertEquals(i, LatencyHistogram.index(previous + 1));
+            assertEquals(i, LatencyHistogram.index(highest));
+            previous = highest;
+        }
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.highestEquivalentValue(LatencyHistogram.index(value)));
+        }
+    }
+
+    @Test
+    public void percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000L);
+        }
+        assertEquals(100_000L, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertEquals(50_000_500.0, histogram.getMean(), 0.001);
+        assertWithin(50_000_000L, histogram.getValueAtPercentile(50.0));
+        assertWithin(99_000_000L, histogram.getValueAtPercentile(99.0));
+        assertWithin(99_900_000L, histogram.getValueAtPercentile(99.9));
+        assertEquals(100_000_000L, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void emptyAndOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getValueAtPercentile(99.0));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+
+        histogram.record(-5L);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(50.0));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void concurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                Random random = new Random();
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(random.nextInt(1_000_000));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000L, histogram.getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 16);
+    }
+
+}
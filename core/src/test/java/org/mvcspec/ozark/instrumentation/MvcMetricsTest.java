@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mvcspec.ozark.cdi.RedirectScopeMetricsMXBean;
+import org.mvcspec.ozark.cdi.RedirectScopeStore;
+import org.mvcspec.ozark.cdi.SessionRedirectScopeStore;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class MvcMetricsTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    private MvcMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        ServletContext servletContext = createMock(ServletContext.class);
+        expect(servletContext.getContextPath()).andReturn("/shop");
+        replay(servletContext);
+
+        metrics = new MvcMetrics();
+        Field field = MvcMetrics.class.getDeclaredField("servletContext");
+        field.setAccessible(true);
+        field.set(metrics, servletContext);
+        metrics.init();
+    }
+
+    @After
+    public void tearDown() {
+        metrics.destroy();
+    }
+
+    @Test
+    public void registersStatsOnFirstRequest() throws Exception {
+        metrics.recordView("books.jsp", String.class, 2_000_000L, false);
+        metrics.recordView("books.jsp", String.class, 4_000_000L, true);
+        metrics.recordController(MvcMetricsTest.class.getMethod("registersStatsOnFirstRequest"), 1_000_000L, false);
+
+        LatencyStatsMXBean view = proxy("View", "books.jsp");
+        assertEquals("books.jsp", view.getName());
+        assertEquals(2L, view.getCount());
+        assertEquals(1L, view.getErrorCount());
+        assertEquals(3.0, view.getMeanMillis(), 0.001);
+        assertEquals(4.0, view.getMaxMillis(), 0.001);
+
+        assertEquals(2L, proxy("ViewEngine", "java.lang.String").getCount());
+        assertEquals(1L, proxy("Controller", MvcMetricsTest.class.getName() + "#registersStatsOnFirstRequest")
+                .getCount());
+    }
+
+    @Test
+    public void unregistersOnDestroy() throws Exception {
+        metrics.recordView("books.jsp", String.class, 2_000_000L, false);
+        ObjectName name = metrics.getObjectName("View", "books.jsp");
+        assertTrue(server.isRegistered(name));
+
+        metrics.destroy();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void registersRedirectScopeStore() throws Exception {
+        RedirectScopeStore store = new SessionRedirectScopeStore.Builder().build();
+        metrics.registerRedirectScopeStore(store);
+
+        ObjectName name = metrics.getObjectName("RedirectScopeStore", SessionRedirectScopeStore.class.getName());
+        assertTrue(server.isRegistered(name));
+        assertEquals(0L, JMX.newMXBeanProxy(server, name, RedirectScopeMetricsMXBean.class).getCreated());
+
+        metrics.destroy();
+        assertFalse(server.isRegistered(name));
+    }
+
+    private LatencyStatsMXBean proxy(String type, String name) throws Exception {
+        ObjectName objectName = new ObjectName("org.mvcspec.ozark:type=" + type
+                + ",application=\"/shop\",name=" + ObjectName.quote(name));
+        assertTrue(server.isRegistered(objectName));
+        return JMX.newMXBeanProxy(server, objectName, LatencyStatsMXBean.class);
+    }
+
+}
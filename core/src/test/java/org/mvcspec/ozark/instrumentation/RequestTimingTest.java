@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Response;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+public class RequestTimingTest {
+
+    @Test
+    public void storedAsRequestAttribute() {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        expect(request.getMethod()).andReturn("GET");
+        expect(request.getRequestURI()).andReturn("/app/books");
+        request.setAttribute(eq(RequestTiming.class.getName()), anyObject(RequestTiming.class));
+        replay(request);
+
+        RequestTiming timing = RequestTiming.start(request);
+        verify(request);
+
+        reset(request);
+        expect(request.getAttribute(RequestTiming.class.getName())).andReturn(timing);
+        replay(request);
+        assertSame(timing, RequestTiming.get(request));
+    }
+
+    @Test
+    public void disabledWithoutAttribute() {
+        HttpServletRequest request = createMock(HttpServletRequest.class);
+        expect(request.getAttribute(RequestTiming.class.getName())).andReturn(null);
+        replay(request);
+        assertNull(RequestTiming.get(request));
+    }
+
+    @Test
+    public void interceptedInvocation() throws NoSuchMethodException {
+        RequestTiming timing = newTiming();
+        timing.record(RequestTiming.Phase.LOCALE, System.nanoTime());
+        timing.controllerMatched();
+        assertTrue(timing.invocationStarted());
+        // nested invocations aren't timed
+        assertFalse(timing.invocationStarted());
+        timing.record(RequestTiming.Phase.VALIDATION, System.nanoTime());
+        timing.record(RequestTiming.Phase.CONTROLLER, System.nanoTime());
+        timing.controllerReturned(resourceInfo());
+
+        assertTrue(timing.getServerTiming().matches(
+                "locale;dur=\\d+\\.\\d{3}, binding;dur=\\d+\\.\\d{3}, "
+                        + "validation;dur=\\d+\\.\\d{3}, controller;dur=\\d+\\.\\d{3}"));
+    }
+
+    @Test
+    public void invocationWithoutInterceptor() throws NoSuchMethodException {
+        RequestTiming timing = newTiming();
+        timing.controllerMatched();
+        timing.controllerReturned(resourceInfo());
+
+        assertFalse(timing.isRecorded(RequestTiming.Phase.BINDING));
+        assertTrue(timing.isRecorded(RequestTiming.Phase.CONTROLLER));
+        assertTrue(timing.getServerTiming().matches("controller;dur=\\d+\\.\\d{3}"));
+    }
+
+    @Test
+    public void phasesAccumulate() {
+        RequestTiming timing = newTiming();
+        long start = System.nanoTime() - 1_000_000L;
+        timing.record(RequestTiming.Phase.VALIDATION, start);
+        long first = timing.getDuration(RequestTiming.Phase.VALIDATION);
+        timing.record(RequestTiming.Phase.VALIDATION, start);
+        assertTrue(timing.getDuration(RequestTiming.Phase.VALIDATION) >= 2 * first);
+    }
+
+    @Test
+    public void logLine() throws NoSuchMethodException {
+        RequestTiming timing = newTiming();
+        timing.controllerMatched();
+        timing.controllerReturned(resourceInfo());
+        timing.setStatus(200);
+        timing.viewProcessed("books.jsp", String.class, System.nanoTime(), true);
+
+        assertTrue(timing.getLogLine(), timing.getLogLine().matches(
+                "method=GET path=/app/books controller=" + RequestTimingTest.class.getName() + "#logLine"
+                        + " view=books.jsp engine=java.lang.String status=500"
+                        + " controller=\\d+\\.\\d{3} view=\\d+\\.\\d{3} total=\\d+\\.\\d{3}"));
+    }
+
+    private static RequestTiming newTiming() {
+        HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        expect(request.getMethod()).andReturn("GET");
+        expect(request.getRequestURI()).andReturn("/app/books");
+        replay(request);
+        return RequestTiming.start(request);
+    }
+
+    private static ResourceInfo resourceInfo() throws NoSuchMethodException {
+        ResourceInfo resourceInfo = createMock(ResourceInfo.class);
+        expect(resourceInfo.getResourceMethod()).andReturn(RequestTimingTest.class.getMethod("logLine"));
+        expect((Object) resourceInfo.getResourceClass()).andReturn(RequestTimingTest.class);
+        replay(resourceInfo);
+        return resourceInfo;
+    }
+
+}
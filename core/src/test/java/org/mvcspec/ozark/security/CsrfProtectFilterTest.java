@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mvcspec.ozark.OzarkConfig;
+import org.mvcspec.ozark.engine.Viewable;
+
+import javax.mvc.security.Csrf;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MediaType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The test for {@link CsrfProtectFilter}, which must create the token of a view before
+ * the view commits the response.
+ */
+public class CsrfProtectFilterTest {
+
+    private static final CsrfToken TOKEN = new CsrfToken("X-CSRF-TOKEN", "_csrf", "token");
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private final CsrfTokenStrategy strategy = EasyMock.createStrictMock(CsrfTokenStrategy.class);
+
+    private final HttpServletResponse response = EasyMock.createMock(HttpServletResponse.class);
+
+    private final CsrfTokenManager csrfTokenManager = new CsrfTokenManager();
+
+    private final CsrfProtectFilter filter = new CsrfProtectFilter();
+
+    private boolean viewTokens = true;
+
+    @Before
+    public void setUp() {
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            return attributes.put((String) args[0], args[1]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        OzarkConfig ozarkConfig = EasyMock.createMock(OzarkConfig.class);
+        expect(ozarkConfig.getCsrfOptions()).andReturn(Csrf.CsrfOptions.EXPLICIT).anyTimes();
+        expect(ozarkConfig.getCsrfHeaderMediaTypes()).andReturn(Collections.emptyList()).anyTimes();
+        expect(ozarkConfig.isCsrfViewTokens()).andAnswer(() -> viewTokens).anyTimes();
+        replay(ozarkConfig);
+
+        setField(csrfTokenManager, "tokenStrategy", strategy);
+        setField(csrfTokenManager, "request", request);
+        setField(csrfTokenManager, "response", response);
+        setField(csrfTokenManager, "ozarkConfig", ozarkConfig);
+        setField(filter, "csrfTokenManager", csrfTokenManager);
+        setField(filter, "ozarkConfig", ozarkConfig);
+    }
+
+    @Test
+    public void viewGetsTokenBeforeCommit() throws Exception {
+        // the filter creates the token and sets the header
+        expect(strategy.getToken(anyObject(), anyObject(), eq(true))).andReturn(Optional.of(TOKEN));
+        expect(response.isCommitted()).andReturn(false);
+        expect(response.containsHeader(TOKEN.getHeaderName())).andReturn(false);
+        response.setHeader(TOKEN.getHeaderName(), TOKEN.getValue());
+        // a large view commits the response before the form reads mvc.csrf
+        expect(response.isCommitted()).andReturn(true).anyTimes();
+        replay(strategy, response);
+
+        filter.filter(null, responseContext(new Viewable("form.jsp"), MediaType.TEXT_HTML_TYPE));
+        assertEquals(TOKEN.getValue(), csrfTokenManager.getOrCreateToken().getValue());
+        assertEquals(TOKEN.getValue(), csrfTokenManager.getOrCreateToken().getValue());
+        verify(strategy, response);
+    }
+
+    @Test
+    public void redirectDoesNotCreateToken() throws Exception {
+        expect(strategy.getToken(anyObject(), anyObject(), eq(false))).andReturn(Optional.empty());
+        replay(strategy, response);
+
+        filter.filter(null, responseContext(null, null));
+        verify(strategy, response);
+    }
+
+    @Test
+    public void errorDoesNotCreateToken() throws Exception {
+        expect(strategy.getToken(anyObject(), anyObject(), eq(false))).andReturn(Optional.empty());
+        replay(strategy, response);
+
+        filter.filter(null, responseContext(new Viewable("{}"), MediaType.APPLICATION_JSON_TYPE, 404));
+        verify(strategy, response);
+    }
+
+    @Test
+    public void viewDoesNotCreateTokenIfDisabled() throws Exception {
+        viewTokens = false;
+        expect(strategy.getToken(anyObject(), anyObject(), eq(false))).andReturn(Optional.empty());
+        replay(strategy, response);
+
+        filter.filter(null, responseContext(new Viewable("form.jsp"), MediaType.TEXT_HTML_TYPE));
+        verify(strategy, response);
+    }
+
+    private static ContainerResponseContext responseContext(Object entity, MediaType mediaType) {
+        return responseContext(entity, mediaType, entity != null ? 200 : 303);
+    }
+
+    private static ContainerResponseContext responseContext(Object entity, MediaType mediaType, int status) {
+        ContainerResponseContext responseContext = EasyMock.createMock(ContainerResponseContext.class);
+        expect(responseContext.getEntity()).andReturn(entity).anyTimes();
+        expect(responseContext.getMediaType()).andReturn(mediaType).anyTimes();
+        expect(responseContext.getStatus()).andReturn(status).anyTimes();
+        replay(responseContext);
+        return responseContext;
+    }
+
+    private static void setField(Object instance, String name, Object value) {
+        try {
+            Field field = instance.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(instance, value);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
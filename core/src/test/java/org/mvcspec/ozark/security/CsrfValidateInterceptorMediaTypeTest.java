@@ -38,6 +38,13 @@ public class CsrfValidateInterceptorMediaTypeTest {
     ));
   }
 
+  @Test
+  public void shouldSupportMultipartMediaType() {
+    assertEquals(true, CsrfValidateInterceptor.isSupportedMediaType(
+        MediaType.valueOf("multipart/form-data; boundary=----WebKitFormBoundary7MA4YWxkTrZu0gW")
+    ));
+  }
+
   @Test
   public void shouldFailForOtherMediaType() {
     assertEquals(false, CsrfValidateInterceptor.isSupportedMediaType(
@@ -17,8 +17,12 @@ package org.mvcspec.ozark.security;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test for EncodersImpl.
@@ -46,4 +50,56 @@ public class EncodersImplTest {
                      encoders.html("<html><div id=\"foo\">&&</div></html>"));
         assertNull(encoders.html(null));
     }
+
+    @Test
+    public void testEncoderReturnsCleanInput() {
+        final String clean = "Hello World \u00e4\u20ac";
+        assertSame(clean, encoders.html(clean));
+        assertSame(clean, encoders.js(clean));
+    }
+
+    @Test
+    public void testEncoderAppendable() throws IOException {
+        final StringWriter writer = new StringWriter();
+        encoders.html("<a href=\"x\">&</a>", writer);
+        encoders.html(null, writer);
+        assertEquals("&lt;a href=&#34;x&#34;&gt;&amp;&lt;/a&gt;", writer.toString());
+
+        final StringBuilder sb = new StringBuilder();
+        encoders.js("'a'\n\u0001", sb);
+        encoders.js("b", sb);
+        assertEquals("\\x27a\\x27\\n\\x01b", sb.toString());
+    }
+
+    @Test
+    public void testEncoderAttr() {
+        assertEquals("a&#x20;b&#x3d;&#x22;c&#x22;&#x26;&#x27;&#x3c;&#x3e;&#x60;", encoders.attr("a b=\"c\"&'<>`"));
+        assertEquals("x,y.z-_1&#xfffd;ä", encoders.attr("x,y.z-_1\u0000ä"));
+        assertNull(encoders.attr(null));
+    }
+
+    @Test
+    public void testEncoderCss() {
+        assertEquals("a\\3b \\7d \\22 \\5c \\20 1", encoders.css("a;}\"\\ 1"));
+        assertEquals("\\fffd ä", encoders.css("\u0000ä"));
+        assertNull(encoders.css(null));
+    }
+
+    @Test
+    public void testEncoderUrl() {
+        assertEquals("a-b._~0", encoders.url("a-b._~0"));
+        assertEquals("a%20b%2Bc%26d%3De%2Ff%3F%25", encoders.url("a b+c&d=e/f?%"));
+        assertEquals("%C3%A4%E2%82%AC%F0%9F%98%80", encoders.url("ä€😀"));
+        assertEquals("%EF%BF%BDx", encoders.url("\ud83dx"));
+        assertNull(encoders.url(null));
+    }
+
+    @Test
+    public void testEncoderAppendableVariants() throws IOException {
+        final StringWriter writer = new StringWriter();
+        encoders.attr("a b", writer);
+        encoders.css(" ", writer);
+        encoders.url("ä ", writer);
+        assertEquals("a&#x20;b\\20 %C3%A4%20", writer.toString());
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FormParameterScannerTest {
+
+    @Test
+    public void findsParameter() throws IOException {
+        assertEquals("abc", find("a=1&_csrf=abc&b=2", "_csrf"));
+        assertEquals("abc", find("_csrf=abc", "_csrf"));
+        assertEquals("", find("a=1&_csrf", "_csrf"));
+        assertEquals("", find("_csrf=&a=1", "_csrf"));
+    }
+
+    @Test
+    public void decodesNameAndValue() throws IOException {
+        assertEquals("a b+c/ä", find("x=1&my+na%6De=a+b%2Bc%2F%C3%A4", "my name"));
+        assertEquals("a=b", find("t=a=b", "t"));
+    }
+
+    @Test
+    public void skipsOtherParameters() throws IOException {
+        assertEquals("abc", find("_csrf2=x&x_csrf=y&a=_csrf%3Dz&=&&_csr=1&_csrf=abc", "_csrf"));
+        assertEquals("abc", find("a=%zz&%zz=1&_csrf=abc", "_csrf"));
+    }
+
+    @Test
+    public void returnsNullIfMissing() throws IOException {
+        assertNull(find("", "_csrf"));
+        assertNull(find("a=1&b=2", "_csrf"));
+        assertNull(find("_csrf=%4", "_csrf"));
+    }
+
+    @Test
+    public void stopsAtParameterAndReplaysEntity() throws IOException {
+        final StringBuilder entity = new StringBuilder("_csrf=abc");
+        for (int i = 0; i < 10000; i++) {
+            entity.append("&field").append(i).append("=value");
+        }
+        final byte[] bytes = entity.toString().getBytes(StandardCharsets.US_ASCII);
+        final ByteArrayInputStream source = new ByteArrayInputStream(bytes);
+        final ReplayableInputStream in = new ReplayableInputStream(source);
+
+        assertEquals("abc", new FormParameterScanner(in, StandardCharsets.UTF_8).find("_csrf"));
+        assertEquals(bytes.length - 4096, source.available());
+
+        in.replay();
+        assertEquals(entity.toString(), new String(readFully(in), StandardCharsets.US_ASCII));
+    }
+
+    private static String find(String entity, String name) throws IOException {
+        final InputStream in = new ByteArrayInputStream(entity.getBytes(StandardCharsets.US_ASCII));
+        return new FormParameterScanner(in, StandardCharsets.UTF_8).find(name);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HmacCsrfTokenStrategyTest {
+
+    private static final byte[] KEY1 = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY2 = "fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void validatesIssuedToken() {
+        HmacCsrfTokenStrategy strategy = new HmacCsrfTokenStrategy.Builder().signingKey("k1", KEY1).build();
+        Cookie cookie = issueCookie(strategy);
+        String token = strategy.getToken(request(cookie), null, false).get().getValue();
+
+        CsrfToken current = strategy.getToken(request(cookie), null, false).get();
+        assertTrue(strategy.isValid(request(cookie), current, token));
+        assertFalse(strategy.isValid(request(new Cookie("CSRF-KEY", "other")), current, token));
+        assertFalse(strategy.isValid(request(), current, token));
+        assertFalse(strategy.isValid(request(cookie), current, token + "x"));
+        assertFalse(strategy.isValid(request(cookie), current, "k1.1.x"));
+        assertFalse(strategy.isValid(request(cookie), current, "garbage"));
+    }
+
+    @Test
+    public void acceptsTokensOfValidationKeys() {
+        HmacCsrfTokenStrategy old = new HmacCsrfTokenStrategy.Builder().signingKey("k1", KEY1).build();
+        HmacCsrfTokenStrategy rotated = new HmacCsrfTokenStrategy.Builder()
+                .signingKey("k2", KEY2)
+                .validationKey("k1", KEY1)
+                .build();
+        HmacCsrfTokenStrategy other = new HmacCsrfTokenStrategy.Builder().signingKey("k1", KEY2).build();
+        Cookie cookie = issueCookie(old);
+        CsrfToken token = old.getToken(request(cookie), null, false).get();
+        assertTrue(rotated.isValid(request(cookie), token, token.getValue()));
+        assertFalse(other.isValid(request(cookie), token, token.getValue()));
+    }
+
+    @Test
+    public void rejectsExpiredTokens() {
+        HmacCsrfTokenStrategy strategy = new HmacCsrfTokenStrategy.Builder()
+                .signingKey("k1", KEY1)
+                .maxAge(Duration.ofSeconds(-1))
+                .build();
+        Cookie cookie = issueCookie(strategy);
+        CsrfToken token = strategy.getToken(request(cookie), null, false).get();
+        assertFalse(strategy.isValid(request(cookie), token, token.getValue()));
+    }
+
+    @Test
+    public void noTokenWithoutKeyCookie() {
+        HmacCsrfTokenStrategy strategy = new HmacCsrfTokenStrategy.Builder().build();
+        assertFalse(strategy.getToken(request(), null, false).isPresent());
+    }
+
+    private static Cookie issueCookie(HmacCsrfTokenStrategy strategy) {
+        Capture<Cookie> cookie = Capture.newInstance();
+        HttpServletResponse response = EasyMock.createMock(HttpServletResponse.class);
+        response.addCookie(capture(cookie));
+        replay(response);
+        assertTrue(strategy.getToken(request(), response, true).isPresent());
+        EasyMock.verify(response);
+        return cookie.getValue();
+    }
+
+    private static HttpServletRequest request(Cookie... cookies) {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        expect(request.getCookies()).andReturn(cookies.length > 0 ? cookies : null).anyTimes();
+        expect(request.getContextPath()).andReturn("/app").anyTimes();
+        replay(request);
+        return request;
+    }
+
+}
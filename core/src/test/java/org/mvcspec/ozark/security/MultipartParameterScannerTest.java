@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.security;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MultipartParameterScannerTest {
+
+    private static final String BOUNDARY = "----boundary";
+
+    @Test
+    public void findsField() throws IOException {
+        String entity = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "---boundary\r\n--\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"_csrf\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "abc\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        assertEquals("abc", find(entity, "_csrf", Long.MAX_VALUE));
+        assertEquals("---boundary\r\n--", find(entity, "title", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void skipsPreamble() throws IOException {
+        String entity = "preamble\r\n--" + BOUNDARY + "\r\n"
+                + "content-disposition: form-data; name=_csrf\r\n\r\n"
+                + "abc\r\n"
+                + "--" + BOUNDARY + "--";
+        assertEquals("abc", find(entity, "_csrf", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void stopsAtFileUpload() throws IOException {
+        String entity = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"upload\"; filename=\"a.bin\"\r\n\r\n"
+                + "data\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"_csrf\"\r\n\r\n"
+                + "abc\r\n"
+                + "--" + BOUNDARY + "--";
+        assertNull(find(entity, "_csrf", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void stopsAtLimit() throws IOException {
+        String entity = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"_csrf\"\r\n\r\n"
+                + "abc\r\n"
+                + "--" + BOUNDARY + "--";
+        assertNull(find(entity, "_csrf", 40));
+        assertNull(find("--" + BOUNDARY + "--", "_csrf", Long.MAX_VALUE));
+    }
+
+    @Test
+    public void readsOnlyUpToField() throws IOException {
+        byte[] head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"_csrf\"\r\n\r\n"
+                + "abc\r\n"
+                + "--" + BOUNDARY + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("Read beyond the token");
+            }
+        };
+        InputStream in = new SequenceInputStream(new ByteArrayInputStream(head), endless);
+        assertEquals("abc", new MultipartParameterScanner(in, BOUNDARY, StandardCharsets.UTF_8, Long.MAX_VALUE)
+                .find("_csrf"));
+    }
+
+    @Test
+    public void parsesParameters() {
+        assertEquals("a;b\"c", MultipartParameterScanner.getParameter("form-data; name=\"a;b\\\"c\"", "name"));
+        assertEquals("f", MultipartParameterScanner.getParameter("form-data; filename=\"x\"; NAME=f", "name"));
+        assertNull(MultipartParameterScanner.getParameter("form-data; filename=\"x\"", "name"));
+    }
+
+    private static String find(String entity, String name, long limit) throws IOException {
+        InputStream in = new ByteArrayInputStream(entity.getBytes(StandardCharsets.US_ASCII));
+        return new MultipartParameterScanner(in, BOUNDARY, StandardCharsets.UTF_8, limit).find(name);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.uri;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * <p>The test for {@link CompiledUriTemplate}. The URIs are compared with those built by
+ * {@link UriBuilder} the way {@link ApplicationUris} used to.</p>
+ */
+public class CompiledUriTemplateTest {
+
+    private static final String[] VALUES = {
+        "plain", "with space", "a/b", "a;b", "a=b", "a&b", "a+b", "a?b", "a#b", "100%", "%41",
+        "a:b@c", "!$'()*,~-._", "\"<>\\^`|", "äöü", "a€b%41", "😀", ""
+    };
+
+    @Test
+    public void shouldExpandLikeUriBuilder() {
+        UriTemplate template = UriTemplate.fromTemplate("/base/{id}/items/{name: [a-z]{2,}}")
+            .queryParam("q").matrixParam("m").build();
+        CompiledUriTemplate compiled = new CompiledUriTemplate(template);
+        for (String value : VALUES) {
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("id", value);
+            params.put("name", value);
+            params.put("q", value);
+            params.put("m", value);
+            assertThat(value, compiled.expand(params), equalTo(build(template, params)));
+        }
+    }
+
+    @Test
+    public void shouldKeepParameterOrder() {
+        UriTemplate template = UriTemplate.fromTemplate("/a/{b}")
+            .queryParam("q1").queryParam("q2").matrixParam("m1").matrixParam("m2").build();
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("q2", 1);
+        params.put("m2", 2);
+        params.put("b", 3);
+        params.put("q1", 4);
+        params.put("m1", 5);
+        assertThat(new CompiledUriTemplate(template).expand(params), equalTo(build(template, params)));
+        assertThat(new CompiledUriTemplate(template).expand(params).toString(), equalTo("/a/3;m2=2;m1=5?q2=1&q1=4"));
+    }
+
+    @Test
+    public void shouldCacheUriWithoutVariables() {
+        CompiledUriTemplate compiled = new CompiledUriTemplate(UriTemplate.fromTemplate("/a/b").queryParam("q").build());
+        assertThat(compiled.expand(), sameInstance(compiled.expand()));
+        assertThat(compiled.expand(Collections.emptyMap()), sameInstance(compiled.expand()));
+        assertThat(compiled.expand(Collections.singletonMap("q", "x")).toString(), equalTo("/a/b?q=x"));
+    }
+
+    @Test
+    public void shouldIgnoreUnknownParameters() {
+        UriTemplate template = UriTemplate.fromTemplate("/a/{b}").build();
+        Map<String, Object> params = new HashMap<>();
+        params.put("b", "c");
+        params.put("d", "e");
+        assertThat(new CompiledUriTemplate(template).expand(params), equalTo(build(template, params)));
+    }
+
+    @Test
+    public void shouldEncodeBracesInValues() {
+        UriTemplate template = UriTemplate.fromTemplate("/a/{b}").queryParam("q").build();
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("b", "{c}");
+        params.put("q", "{d}");
+        assertThat(new CompiledUriTemplate(template).expand(params).toString(), equalTo("/a/%7Bc%7D?q=%7Bd%7D"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithoutPathValue() {
+        new CompiledUriTemplate(UriTemplate.fromTemplate("/a/{b}").queryParam("q").build())
+            .expand(Collections.singletonMap("q", "x"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithoutAnyValue() {
+        new CompiledUriTemplate(UriTemplate.fromTemplate("/a/{b}").build()).expand();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailForNullValue() {
+        new CompiledUriTemplate(UriTemplate.fromTemplate("/a").queryParam("q").build())
+            .expand(Collections.singletonMap("q", null));
+    }
+
+    /**
+     * The implementation of {@link ApplicationUris#get(String, Map)} before templates were compiled.
+     */
+    private static URI build(UriTemplate uriTemplate, Map<String, Object> params) {
+        UriBuilder uriBuilder = UriBuilder.fromUri(uriTemplate.path());
+        Map<String, Object> pathParams = new HashMap<>();
+        params.forEach((key, value) -> {
+            if (uriTemplate.queryParams().contains(key)) {
+                uriBuilder.queryParam(key, value);
+            } else if (uriTemplate.matrixParams().contains(key)) {
+                uriBuilder.matrixParam(key, value);
+            } else {
+                pathParams.put(key, value);
+            }
+        });
+        return uriBuilder.buildFromMap(pathParams);
+    }
+
+}
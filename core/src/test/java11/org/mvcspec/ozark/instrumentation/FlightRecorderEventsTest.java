@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.instrumentation;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The test for the Java 11 implementation of {@link FlightRecorderEvents}, which is only
+ * compiled and run on Java 11 and newer.
+ */
+public class FlightRecorderEventsTest {
+
+    private Recording recording;
+
+    @Before
+    public void setUp() {
+        recording = new Recording();
+        recording.enable(ViewRenderedEvent.class).withoutThreshold();
+        recording.enable(ControllerInvokedEvent.class).withoutThreshold();
+        recording.start();
+    }
+
+    @After
+    public void tearDown() {
+        recording.close();
+    }
+
+    @Test
+    public void viewRendered() throws Exception {
+        Object event = FlightRecorderEvents.beginViewRendered();
+        FlightRecorderEvents.endViewRendered(event);
+        // e.g. the observers of AfterProcessViewEvent and the final flush of the writer
+        Thread.sleep(100);
+        FlightRecorderEvents.commitViewRendered(event, "books.jsp", FlightRecorderEventsTest.class, 1024, false);
+
+        List<RecordedEvent> events = events("org.mvcspec.ozark.ViewRendered");
+        assertEquals(1, events.size());
+        RecordedEvent recorded = events.get(0);
+        assertEquals("books.jsp", recorded.getString("view"));
+        assertEquals(FlightRecorderEventsTest.class.getName(), recorded.getString("engine"));
+        assertEquals(1024, recorded.getLong("bytes"));
+        assertEquals(false, recorded.getBoolean("failed"));
+        assertTrue(recorded.getDuration().toString(), recorded.getDuration().compareTo(Duration.ofMillis(100)) < 0);
+    }
+
+    @Test
+    public void controllerInvoked() throws Exception {
+        Method method = FlightRecorderEventsTest.class.getMethod("controllerInvoked");
+        FlightRecorderEvents.commitControllerInvoked(FlightRecorderEvents.beginControllerInvoked(), method, 303);
+
+        List<RecordedEvent> events = events("org.mvcspec.ozark.ControllerInvoked");
+        assertEquals(1, events.size());
+        assertEquals(FlightRecorderEventsTest.class.getName(), events.get(0).getString("controller"));
+        assertEquals("controllerInvoked", events.get(0).getString("method"));
+        assertEquals(303, events.get(0).getInt("status"));
+    }
+
+    @Test
+    public void disabledEventIsNotStarted() {
+        recording.disable(ViewRenderedEvent.class);
+        assertNull(FlightRecorderEvents.beginViewRendered());
+        // the result of a disabled begin is ignored
+        FlightRecorderEvents.endViewRendered(null);
+        FlightRecorderEvents.commitViewRendered(null, "books.jsp", FlightRecorderEventsTest.class, 0, false);
+    }
+
+    private List<RecordedEvent> events(String name) throws IOException {
+        recording.stop();
+        Path file = Files.createTempFile("ozark", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().equals(name))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ package org.mvcspec.ozark.ext.asciidoc;
 import org.asciidoctor.Asciidoctor;
 import org.asciidoctor.Asciidoctor.Factory;
 import org.asciidoctor.Options;
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineBase;
 
 import javax.annotation.Priority;
@@ -26,14 +27,12 @@ import javax.inject.Inject;
 import javax.mvc.engine.ViewEngine;
 import javax.mvc.engine.ViewEngineContext;
 import javax.mvc.engine.ViewEngineException;
-import javax.servlet.ServletContext;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 /**
@@ -48,7 +47,7 @@ public class AsciiDocViewEngine extends ViewEngineBase {
     private final Asciidoctor asciidoctor;
 
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     public AsciiDocViewEngine() {
         asciidoctor = Factory.create();
@@ -63,9 +62,8 @@ public class AsciiDocViewEngine extends ViewEngineBase {
     public void processView(ViewEngineContext context) throws ViewEngineException {
         Charset charset = resolveCharsetAndSetContentType(context);
         try (Writer writer = new OutputStreamWriter(context.getOutputStream(), charset);
-             InputStream is = servletContext.getResourceAsStream(resolveView(context));
-             InputStreamReader isr = new InputStreamReader(is, "UTF-8");
-             BufferedReader reader = new BufferedReader(isr)) {
+             BufferedReader reader = new BufferedReader(
+                     templateRepository.get(resolveView(context)).getReader(StandardCharsets.UTF_8))) {
 
             Options options = new Options();
             options.setAttributes(new HashMap<>(context.getModels().asMap()));
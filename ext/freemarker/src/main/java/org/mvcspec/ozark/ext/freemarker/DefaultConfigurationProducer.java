@@ -15,17 +15,15 @@
  */
 package org.mvcspec.ozark.ext.freemarker;
 
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineConfig;
-import freemarker.cache.TemplateLoader;
 import freemarker.template.Configuration;
 
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
-import javax.servlet.ServletContext;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Producer for the Freemarker {@link freemarker.template.Configuration} used by
@@ -35,8 +33,10 @@ import java.io.Reader;
  */
 public class DefaultConfigurationProducer {
 
+    private static final Logger log = Logger.getLogger(DefaultConfigurationProducer.class.getName());
+
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     @Produces
     @ViewEngineConfig
@@ -44,26 +44,14 @@ public class DefaultConfigurationProducer {
 
         Configuration configuration = new Configuration(Configuration.VERSION_2_3_26);
         configuration.setDefaultEncoding("UTF-8");
-        configuration.setTemplateLoader(new TemplateLoader() {
-
-            @Override
-            public Object findTemplateSource(String s) throws IOException {
-                return servletContext.getResourceAsStream("/" + s);     // Freemarker drops "/"
-            }
-
-            @Override
-            public long getLastModified(Object o) {
-                return -1;
-            }
-
-            @Override
-            public Reader getReader(Object o, String s) throws IOException {
-                return new InputStreamReader((InputStream) o);
-            }
-
-            @Override
-            public void closeTemplateSource(Object o) throws IOException {
-                ((InputStream) o).close();
+        configuration.setTemplateLoader(new TemplateRepositoryLoader(templateRepository));
+
+        // drop changed templates and templates including them
+        templateRepository.addChangeListener(path -> {
+            try {
+                configuration.removeTemplateFromCache(path);
+            } catch (IOException e) {
+                log.log(Level.FINE, "Failed to remove template " + path + " from cache", e);
             }
         });
 
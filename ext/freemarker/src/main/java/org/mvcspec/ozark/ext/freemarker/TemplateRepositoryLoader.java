@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.ext.freemarker;
+
+import freemarker.cache.TemplateLoader;
+import org.mvcspec.ozark.engine.TemplateRepository;
+import org.mvcspec.ozark.engine.TemplateSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * Freemarker {@link TemplateLoader} reading templates from the shared {@link TemplateRepository}.
+ *
+ * @see TemplateRepository
+ */
+class TemplateRepositoryLoader implements TemplateLoader {
+
+    private final TemplateRepository repository;
+
+    TemplateRepositoryLoader(TemplateRepository repository) {
+        this.repository = Objects.requireNonNull(repository, "repository must not be null");
+    }
+
+    @Override
+    public Object findTemplateSource(String name) throws IOException {
+        return repository.find("/" + name).orElse(null);     // Freemarker drops "/"
+    }
+
+    @Override
+    public long getLastModified(Object templateSource) {
+        return ((TemplateSource) templateSource).getLastModified();
+    }
+
+    @Override
+    public Reader getReader(Object templateSource, String encoding) throws IOException {
+        return ((TemplateSource) templateSource).getReader(Charset.forName(encoding));
+    }
+
+    @Override
+    public void closeTemplateSource(Object templateSource) {
+        // nothing to close
+    }
+
+}
@@ -15,16 +15,16 @@
  */
 package org.mvcspec.ozark.ext.groovy;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Priority;
 import javax.enterprise.context.ApplicationScoped;
@@ -32,19 +32,24 @@ import javax.inject.Inject;
 import javax.mvc.engine.ViewEngine;
 import javax.mvc.engine.ViewEngineContext;
 import javax.mvc.engine.ViewEngineException;
-import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineBase;
 import org.mvcspec.ozark.engine.ViewEngineConfig;
 
 import groovy.lang.Writable;
 import groovy.text.Template;
+import groovy.text.markup.BaseTemplate;
 import groovy.text.markup.MarkupTemplateEngine;
 
 /**
+ * View engine for Groovy markup templates. Templates precompiled at build time by the
+ * Ozark Maven plugin are used directly, all other templates are compiled at runtime.
+ *
  * @author Daniel Dias
+ * @see PrecompiledTemplates
  */
 @ApplicationScoped
 @Priority(ViewEngine.PRIORITY_FRAMEWORK)
@@ -55,7 +60,9 @@ public class GroovyViewEngine extends ViewEngineBase {
     private MarkupTemplateEngine markupTemplateEngine;
 
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
+
+    private final Map<String, Optional<Class<? extends BaseTemplate>>> precompiled = new ConcurrentHashMap<>();
 
     public boolean supports(String view) {
         return view.endsWith(".tpl");
@@ -66,14 +73,28 @@ public class GroovyViewEngine extends ViewEngineBase {
         Map<String, Object> model = new HashMap<>(context.getModels().asMap());
         model.put("request", context.getRequest(HttpServletRequest.class));
         Charset charset = resolveCharsetAndSetContentType(context);
-        try (Writer writer = new OutputStreamWriter(context.getOutputStream(), charset);
-            InputStream resourceAsStream = servletContext.getResourceAsStream(resolveView(context));
-            InputStreamReader in = new InputStreamReader(resourceAsStream, "UTF-8");) {
-            Template template = markupTemplateEngine.createTemplate(in);
+        String view = resolveView(context);
+        try (Writer writer = new OutputStreamWriter(context.getOutputStream(), charset)) {
+            Template template = getTemplate(view);
             Writable output = template.make(model);
             output.writeTo(writer);
         } catch (IOException | CompilationFailedException | ClassNotFoundException e) {
             throw new ViewEngineException(e);
         }
     }
-}
\ No newline at end of file
+
+    private Template getTemplate(String view) throws IOException, ClassNotFoundException {
+
+        // prefer the template precompiled at build time
+        Optional<Class<? extends BaseTemplate>> templateClass = precompiled.computeIfAbsent(view,
+                v -> PrecompiledTemplates.findTemplateClass(v, Thread.currentThread().getContextClassLoader()));
+        if (templateClass.isPresent()) {
+            return PrecompiledTemplates.createTemplate(markupTemplateEngine, templateClass.get());
+        }
+
+        // fall back to runtime compilation
+        try (Reader in = templateRepository.get(view).getReader(StandardCharsets.UTF_8)) {
+            return markupTemplateEngine.createTemplate(in);
+        }
+    }
+}
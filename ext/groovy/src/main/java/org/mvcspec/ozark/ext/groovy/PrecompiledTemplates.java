@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.ext.groovy;
+
+import groovy.lang.Writable;
+import groovy.text.Template;
+import groovy.text.markup.BaseTemplate;
+import groovy.text.markup.MarkupTemplateEngine;
+import groovy.text.markup.TemplateConfiguration;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * <p>Support for markup templates which were compiled at build time by the Ozark Maven
+ * plugin. Each template is compiled into a class in {@link #PACKAGE_NAME} whose name is
+ * derived from the resolved view path (e.g. {@code /WEB-INF/views/hello.tpl}), so the view
+ * engine can look it up without parsing or compiling the template source.</p>
+ *
+ * <p>The naming scheme is shared by the build-time compiler and the view engine and must
+ * therefore not be changed without rebuilding all precompiled templates.</p>
+ */
+public final class PrecompiledTemplates {
+
+    /**
+     * Package of all classes generated for precompiled templates. It is reserved for these
+     * classes, so they can't collide with application classes.
+     */
+    public static final String PACKAGE_NAME = "org.mvcspec.ozark.ext.groovy.precompiled";
+
+    /**
+     * Prefix of the simple names of all classes generated for precompiled templates.
+     */
+    public static final String CLASS_NAME_PREFIX = "OzarkPrecompiledTemplate_";
+
+    private PrecompiledTemplates() {
+        // static methods only
+    }
+
+    /**
+     * Returns the fully qualified name of the class generated for the given view path.
+     *
+     * @param path the resolved view path.
+     * @return the class name.
+     * @see #getSimpleClassName(String)
+     */
+    public static String getClassName(String path) {
+        return PACKAGE_NAME + '.' + getSimpleClassName(path);
+    }
+
+    /**
+     * Returns the simple name of the class generated for the given view path. Letters and
+     * digits are kept, all other characters are replaced by an underscore followed by their
+     * four digit hex code, so different paths never map to the same class name.
+     *
+     * @param path the resolved view path.
+     * @return the simple class name.
+     */
+    public static String getSimpleClassName(String path) {
+        Objects.requireNonNull(path, "path must not be null");
+        final StringBuilder sb = new StringBuilder(CLASS_NAME_PREFIX.length() + path.length() * 2);
+        sb.append(CLASS_NAME_PREFIX);
+        for (int i = 0; i < path.length(); i++) {
+            final char ch = path.charAt(i);
+            if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')) {
+                sb.append(ch);
+            } else {
+                sb.append('_').append(String.format("%04x", (int) ch));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Looks up the precompiled template class for the given view path.
+     *
+     * @param path        the resolved view path.
+     * @param classLoader the class loader to search.
+     * @return the template class or an empty optional if the template wasn't precompiled.
+     */
+    public static Optional<Class<? extends BaseTemplate>> findTemplateClass(String path, ClassLoader classLoader) {
+        try {
+            Class<?> clazz = Class.forName(getClassName(path), false, classLoader);
+            if (BaseTemplate.class.isAssignableFrom(clazz)) {
+                return Optional.of(clazz.asSubclass(BaseTemplate.class));
+            }
+        } catch (ClassNotFoundException | LinkageError e) { // NOPMD ignore empty catch block
+            // falls through
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Creates a {@link Template} which instantiates the given precompiled class for every
+     * call of {@link Template#make(Map)}. This mirrors what {@link MarkupTemplateEngine} does
+     * for templates compiled at runtime.
+     *
+     * @param engine        the engine to bind the template instances to.
+     * @param templateClass the precompiled template class.
+     * @return the template.
+     */
+    public static Template createTemplate(MarkupTemplateEngine engine, Class<? extends BaseTemplate> templateClass) {
+        try {
+            return new PrecompiledTemplate(engine, templateClass.getConstructor(
+                    MarkupTemplateEngine.class, Map.class, Map.class, TemplateConfiguration.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Not a precompiled markup template: " + templateClass.getName(), e);
+        }
+    }
+
+    /**
+     * Template implementation for precompiled template classes.
+     */
+    private static class PrecompiledTemplate implements Template {
+
+        private final MarkupTemplateEngine engine;
+
+        private final Constructor<? extends BaseTemplate> constructor;
+
+        PrecompiledTemplate(MarkupTemplateEngine engine, Constructor<? extends BaseTemplate> constructor) {
+            this.engine = engine;
+            this.constructor = constructor;
+        }
+
+        @Override
+        public Writable make() {
+            return make(Collections.emptyMap());
+        }
+
+        @Override
+        public Writable make(Map binding) {
+            try {
+                return constructor.newInstance(engine, binding, null, engine.getTemplateConfiguration());
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot instantiate precompiled template "
+                        + constructor.getDeclaringClass().getName(), e);
+            }
+        }
+
+    }
+
+}
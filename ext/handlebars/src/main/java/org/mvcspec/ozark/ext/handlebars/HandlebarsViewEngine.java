@@ -17,6 +17,7 @@ package org.mvcspec.ozark.ext.handlebars;
 
 import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineBase;
 import org.mvcspec.ozark.engine.ViewEngineConfig;
 
@@ -26,15 +27,13 @@ import javax.inject.Inject;
 import javax.mvc.engine.ViewEngine;
 import javax.mvc.engine.ViewEngineContext;
 import javax.mvc.engine.ViewEngineException;
-import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -49,7 +48,7 @@ import java.util.stream.Collectors;
 public class HandlebarsViewEngine extends ViewEngineBase {
 
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     @Inject
     @ViewEngineConfig
@@ -69,10 +68,8 @@ public class HandlebarsViewEngine extends ViewEngineBase {
         Charset charset = resolveCharsetAndSetContentType(context);
 
         try (Writer writer = new OutputStreamWriter(context.getOutputStream(), charset);
-             
-            InputStream resourceAsStream = servletContext.getResourceAsStream(resolveView(context));
-            InputStreamReader in = new InputStreamReader(resourceAsStream, "UTF-8");
-            BufferedReader bufferedReader = new BufferedReader(in);) {
+             BufferedReader bufferedReader = new BufferedReader(
+                     templateRepository.get(resolveView(context)).getReader(StandardCharsets.UTF_8))) {
 
             String viewContent = bufferedReader.lines().collect(Collectors.joining());
 
@@ -18,12 +18,12 @@ package org.mvcspec.ozark.ext.jade;
 import de.neuland.jade4j.Jade4J.Mode;
 import de.neuland.jade4j.JadeConfiguration;
 import de.neuland.jade4j.filter.Filter;
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineConfig;
 
 import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
-import javax.servlet.ServletContext;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -85,7 +85,7 @@ public class JadeOzarkConfiguration {
     private Properties configFile;
 
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     @Produces
     @ViewEngineConfig
@@ -100,7 +100,9 @@ public class JadeOzarkConfiguration {
         }
         jade.setSharedVariables(getExtensions(HELPER_QUALIFIER));
         String encoding = property(ENCODING).orElse("UTF-8");
-        jade.setTemplateLoader(new ServletContextTemplateLoader(servletContext, encoding));
+        jade.setTemplateLoader(new TemplateRepositoryLoader(templateRepository, encoding));
+        // Jade4J can only drop single templates if the file itself changed, not for changed includes
+        templateRepository.addChangeListener(path -> jade.clearCache());
         return jade;
     }
 
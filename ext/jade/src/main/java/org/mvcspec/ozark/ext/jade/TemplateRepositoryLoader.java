@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.ext.jade;
+
+import de.neuland.jade4j.template.TemplateLoader;
+import org.mvcspec.ozark.engine.TemplateRepository;
+import org.mvcspec.ozark.engine.TemplateSource;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * A TemplateLoader reading templates from the shared {@link TemplateRepository}.
+ *
+ * @see TemplateRepository
+ */
+class TemplateRepositoryLoader implements TemplateLoader {
+
+    private final TemplateRepository repository;
+
+    private final Charset encoding;
+
+    public TemplateRepositoryLoader(TemplateRepository repository, String encoding) {
+        Objects.requireNonNull(repository, "repository must not be null!");
+        Objects.requireNonNull(encoding, "encoding must not be null!");
+        this.repository = repository;
+        this.encoding = Charset.forName(encoding);
+    }
+
+    @Override
+    public Reader getReader(String name) throws IOException {
+        TemplateSource source = repository.find(name).orElseThrow(
+                () -> new FileNotFoundException(String.format("Jade Template '%s' not found.", name)));
+        return new BufferedReader(source.getReader(encoding));
+    }
+
+    @Override
+    public long getLastModified(String name) throws IOException {
+        return repository.getLastModified(name);
+    }
+}
@@ -15,12 +15,12 @@
  */
 package org.mvcspec.ozark.ext.jsr223;
 
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineBase;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import javax.annotation.Priority;
@@ -33,7 +33,6 @@ import javax.script.Bindings;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
-import javax.servlet.ServletContext;
 
 /**
  * The JSR-223 ViewEngine.
@@ -50,10 +49,10 @@ public class Jsr223ViewEngine extends ViewEngineBase {
     ScriptEngineManager scriptEngineManager = new ScriptEngineManager();
 
     /**
-     * Servlet context so we can load load the script
+     * Shared template repository so we can load the script
      */
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     /**
      * What extensions does the view engine support.
@@ -91,14 +90,14 @@ public class Jsr223ViewEngine extends ViewEngineBase {
 
         ScriptEngine scriptEngine = getScriptEngine(context.getView());
         Object responseObject;
-        try {
-            InputStream inputStream = servletContext.getResourceAsStream(resolveView(context));
-            InputStreamReader reader = new InputStreamReader(inputStream);
+        try (Reader reader = templateRepository.get(resolveView(context)).getReader(Charset.defaultCharset())) {
             Bindings bindings = scriptEngine.createBindings();
             bindings.put("models", context.getModels().asMap());
             responseObject = scriptEngine.eval(reader, bindings);
         } catch (ScriptException exception) {
             throw new ViewEngineException("Unable to execute script", exception);
+        } catch (IOException exception) {
+            throw new ViewEngineException("Unable to read script", exception);
         }
 
         Charset charset = resolveCharsetAndSetContentType(context);
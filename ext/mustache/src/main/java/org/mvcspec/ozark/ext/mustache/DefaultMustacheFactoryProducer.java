@@ -16,16 +16,18 @@
 package org.mvcspec.ozark.ext.mustache;
 
 import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.MustacheException;
 import com.github.mustachejava.MustacheFactory;
+import org.mvcspec.ozark.engine.TemplateRepository;
+import org.mvcspec.ozark.engine.TemplateSource;
 import org.mvcspec.ozark.engine.ViewEngineConfig;
 
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
-import javax.servlet.ServletContext;
 import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.Reader;
+import java.util.Optional;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -37,23 +39,37 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class DefaultMustacheFactoryProducer {
 
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     @Produces
     @ViewEngineConfig
     public MustacheFactory getMustacheFactory() {
-        return new OzarkMustacheFactory();
+        OzarkMustacheFactory factory = new OzarkMustacheFactory();
+        templateRepository.addChangeListener(factory::invalidate);
+        return factory;
     }
 
     private class OzarkMustacheFactory extends DefaultMustacheFactory {
         @Override
         public Reader getReader(String resourceName) {
-            InputStream is = servletContext.getResourceAsStream(resourceName);
-            if (is != null) {
-                return new BufferedReader(new InputStreamReader(is, UTF_8));
+            Optional<TemplateSource> source;
+            try {
+                source = templateRepository.find(resourceName);
+            } catch (IOException e) {
+                throw new MustacheException("Failed to read template " + resourceName, e);
+            }
+            if (source.isPresent()) {
+                return new BufferedReader(source.get().getReader(UTF_8));
             }
             return super.getReader(resourceName);
         }
+
+        /**
+         * Drops a changed template, views using it as a partial are invalidated separately.
+         */
+        void invalidate(String resourceName) {
+            mustacheCache.remove(resourceName);
+        }
     }
 
 }
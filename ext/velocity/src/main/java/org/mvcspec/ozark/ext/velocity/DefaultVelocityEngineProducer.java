@@ -15,13 +15,12 @@
  */
 package org.mvcspec.ozark.ext.velocity;
 
+import org.mvcspec.ozark.engine.TemplateRepository;
 import org.mvcspec.ozark.engine.ViewEngineConfig;
 import org.apache.velocity.app.VelocityEngine;
 
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
-import javax.servlet.ServletContext;
-import org.mvcspec.ozark.ext.velocity.tools.WebappResourceLoader;
 
 /**
  * Producer for the VelocityEngine used by VelocityViewEngine.
@@ -31,15 +30,16 @@ import org.mvcspec.ozark.ext.velocity.tools.WebappResourceLoader;
 public class DefaultVelocityEngineProducer {
 
     @Inject
-    private ServletContext servletContext;
+    private TemplateRepository templateRepository;
 
     @Produces
     @ViewEngineConfig
     public VelocityEngine getVelocityEngine() {
         VelocityEngine velocityEngine = new VelocityEngine();
-        velocityEngine.setProperty("resource.loader", "webapp");
-        velocityEngine.setProperty("webapp.resource.loader.class", WebappResourceLoader.class.getCanonicalName());
-        velocityEngine.setApplicationAttribute("javax.servlet.ServletContext", servletContext);
+        velocityEngine.setProperty("resource.loader", "repository");
+        velocityEngine.setProperty("repository.resource.loader.class",
+                TemplateRepositoryResourceLoader.class.getCanonicalName());
+        velocityEngine.setApplicationAttribute(TemplateRepository.class.getName(), templateRepository);
         velocityEngine.init();
         return velocityEngine;
     }
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.ext.velocity;
+
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.resource.Resource;
+import org.apache.velocity.runtime.resource.loader.ResourceLoader;
+import org.apache.velocity.util.ExtProperties;
+import org.mvcspec.ozark.engine.TemplateRepository;
+import org.mvcspec.ozark.engine.TemplateSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Optional;
+
+/**
+ * Velocity resource loader reading templates from the shared {@link TemplateRepository}.
+ * The repository must be placed in the runtime's application attributes under its class name.
+ *
+ * @see TemplateRepository
+ */
+public class TemplateRepositoryResourceLoader extends ResourceLoader {
+
+    private TemplateRepository repository;
+
+    @Override
+    public void init(ExtProperties configuration) {
+        Object obj = rsvc.getApplicationAttribute(TemplateRepository.class.getName());
+        if (obj instanceof TemplateRepository) {
+            repository = (TemplateRepository) obj;
+        } else {
+            log.error("TemplateRepositoryResourceLoader: unable to retrieve TemplateRepository");
+        }
+    }
+
+    @Override
+    public Reader getResourceReader(String name, String encoding) throws ResourceNotFoundException {
+        if (name == null || name.isEmpty()) {
+            throw new ResourceNotFoundException("TemplateRepositoryResourceLoader: No template name provided");
+        }
+        Optional<TemplateSource> source;
+        try {
+            source = repository.find(toPath(name));
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("TemplateRepositoryResourceLoader: Could not load " + name, e);
+        }
+        return source.orElseThrow(() -> new ResourceNotFoundException(
+                "TemplateRepositoryResourceLoader: Resource '" + name + "' not found."))
+                .getReader(Charset.forName(encoding));
+    }
+
+    @Override
+    public boolean isSourceModified(Resource resource) {
+        return getLastModified(resource) != resource.getLastModified();
+    }
+
+    @Override
+    public long getLastModified(Resource resource) {
+        try {
+            return repository.getLastModified(toPath(resource.getName()));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String toPath(String name) {
+        return name.startsWith("/") ? name : "/" + name;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.maven;
+
+import groovy.text.markup.BaseTemplate;
+import groovy.text.markup.MarkupTemplateEngine;
+import groovy.text.markup.TemplateConfiguration;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.mvcspec.ozark.ext.groovy.PrecompiledTemplates;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>Compiles Groovy markup templates ({@code *.tpl}) into class files which are picked up
+ * by the Groovy view engine. The classes are generated in
+ * {@link PrecompiledTemplates#PACKAGE_NAME}.</p>
+ *
+ * <p>Templates are compiled with the default {@link TemplateConfiguration}, which is also the
+ * configuration used by the view engine unless the application provides its own
+ * {@link MarkupTemplateEngine}. Applications with a custom configuration must repeat it in
+ * the plugin configuration using the {@code groovy.} prefix, e.g.
+ * {@code groovy.autoEscape} or {@code groovy.baseTemplateClass}.</p>
+ */
+public class GroovyMarkupPrecompiler implements TemplatePrecompiler {
+
+    private static final String PREFIX = "groovy.";
+
+    private final TemplateConfiguration templateConfiguration = new TemplateConfiguration();
+
+    private String baseTemplateClass;
+
+    @Override
+    public void configure(Map<String, String> configuration) {
+        configuration.forEach((key, value) -> {
+            if (key.startsWith(PREFIX)) {
+                configure(key.substring(PREFIX.length()), value);
+            }
+        });
+    }
+
+    private void configure(String name, String value) {
+        switch (name) {
+            case "autoEscape":
+                templateConfiguration.setAutoEscape(Boolean.parseBoolean(value));
+                break;
+            case "autoIndent":
+                templateConfiguration.setAutoIndent(Boolean.parseBoolean(value));
+                break;
+            case "autoIndentString":
+                templateConfiguration.setAutoIndentString(value);
+                break;
+            case "autoNewLine":
+                templateConfiguration.setAutoNewLine(Boolean.parseBoolean(value));
+                break;
+            case "declarationEncoding":
+                templateConfiguration.setDeclarationEncoding(value);
+                break;
+            case "expandEmptyElements":
+                templateConfiguration.setExpandEmptyElements(Boolean.parseBoolean(value));
+                break;
+            case "newLineString":
+                templateConfiguration.setNewLineString(value);
+                break;
+            case "useDoubleQuotes":
+                templateConfiguration.setUseDoubleQuotes(Boolean.parseBoolean(value));
+                break;
+            case "locale":
+                templateConfiguration.setLocale(Locale.forLanguageTag(value));
+                break;
+            case "baseTemplateClass":
+                // loaded from the application classes when compiling
+                baseTemplateClass = value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Groovy template setting: " + PREFIX + name);
+        }
+    }
+
+    @Override
+    public boolean supports(String path) {
+        return path.endsWith(".tpl");
+    }
+
+    @Override
+    public File getArtifact(String path, File outputDirectory) {
+        return new File(outputDirectory, PrecompiledTemplates.getClassName(path).replace('.', '/') + ".class");
+    }
+
+    @Override
+    public void precompile(String path, File source, File outputDirectory, ClassLoader classLoader)
+            throws IOException {
+
+        MarkupTemplateEngine engine = new MarkupTemplateEngine(classLoader, getTemplateConfiguration(classLoader));
+
+        // the engine is private to this call, so its configuration is used directly. Copying it
+        // would lose the customizers which turn the script into a template class.
+        CompilerConfiguration config = engine.getCompilerConfiguration();
+        config.setTargetDirectory(outputDirectory);
+
+        // the package is declared on the first line, so line numbers in errors still match the source
+        String script = "package " + PrecompiledTemplates.PACKAGE_NAME + "; "
+                + new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+
+        try {
+            CompilationUnit unit = new CompilationUnit(config, null, engine.getTemplateLoader());
+            unit.addSource(PrecompiledTemplates.getSimpleClassName(path) + ".groovy", script);
+            unit.compile();
+        } catch (CompilationFailedException e) {
+            throw new IOException(String.format("Failed to compile template %s: %s", path, e.getMessage()), e);
+        }
+
+    }
+
+    private TemplateConfiguration getTemplateConfiguration(ClassLoader classLoader) throws IOException {
+        if (baseTemplateClass == null) {
+            return templateConfiguration;
+        }
+        TemplateConfiguration copy = new TemplateConfiguration(templateConfiguration);
+        try {
+            copy.setBaseTemplateClass(Class.forName(baseTemplateClass, false, classLoader).asSubclass(BaseTemplate.class));
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid base template class: " + baseTemplateClass, e);
+        }
+        return copy;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Compiles the view templates of a web application at build time, so the view engines
+ * don't have to parse and compile them on the first request. The compiled artifacts are
+ * written to the classes directory of the project and are therefore packaged into
+ * {@code WEB-INF/classes}.</p>
+ *
+ * <p>Templates not supported by any {@link TemplatePrecompiler} are skipped and compiled
+ * at runtime as before.</p>
+ */
+@Mojo(name = "precompile", defaultPhase = LifecyclePhase.PREPARE_PACKAGE,
+        requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class PrecompileMojo extends AbstractMojo {
+
+    /**
+     * The web application source directory.
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/webapp", required = true)
+    private File sourceDirectory;
+
+    /**
+     * The view folder relative to the web application root. Should match the
+     * {@code javax.mvc.engine.ViewEngine.viewFolder} setting of the application.
+     */
+    @Parameter(defaultValue = "WEB-INF/views", required = true)
+    private String viewFolder;
+
+    /**
+     * The directory the compiled templates are written to.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * Settings of the precompilers, e.g. {@code <groovy.autoEscape>true</groovy.autoEscape>}.
+     * They must match the configuration of the view engines at runtime, as the precompiled
+     * templates are used regardless of how the application configures its engines.
+     */
+    @Parameter
+    private Map<String, String> configuration = new HashMap<>();
+
+    @Parameter(defaultValue = "${project.runtimeClasspathElements}", readonly = true, required = true)
+    private List<String> classpathElements;
+
+    /**
+     * Skips the precompilation.
+     */
+    @Parameter(property = "ozark.precompile.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+
+        if (skip) {
+            getLog().info("Skipping template precompilation");
+            return;
+        }
+
+        File viewDirectory = new File(sourceDirectory, viewFolder);
+        if (!viewDirectory.isDirectory()) {
+            getLog().info("No view folder found at " + viewDirectory);
+            return;
+        }
+
+        List<TemplatePrecompiler> precompilers = new ArrayList<>();
+        ServiceLoader.load(TemplatePrecompiler.class, getClass().getClassLoader()).forEach(precompilers::add);
+        try {
+            precompilers.forEach(precompiler -> precompiler.configure(configuration));
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        List<Path> templates;
+        try (Stream<Path> files = Files.walk(viewDirectory.toPath())) {
+            templates = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to list templates in " + viewDirectory, e);
+        }
+
+        int compiled = 0;
+        try (URLClassLoader classLoader = createClassLoader()) {
+            for (Path template : templates) {
+                String path = getViewPath(template);
+                for (TemplatePrecompiler precompiler : precompilers) {
+                    if (precompiler.supports(path)) {
+                        if (isStale(template.toFile(), precompiler.getArtifact(path, outputDirectory))) {
+                            getLog().debug("Compiling template " + path);
+                            precompiler.precompile(path, template.toFile(), outputDirectory, classLoader);
+                            compiled++;
+                        }
+                        break;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        getLog().info(String.format("Compiled %d template(s) to %s", compiled, outputDirectory));
+
+    }
+
+    /**
+     * The view path as resolved by the view engines, e.g. {@code /WEB-INF/views/index.tpl}.
+     */
+    private String getViewPath(Path template) {
+        Path relative = sourceDirectory.toPath().relativize(template);
+        StringBuilder sb = new StringBuilder();
+        for (Path segment : relative) {
+            sb.append('/').append(segment.toString());
+        }
+        return sb.toString();
+    }
+
+    private static boolean isStale(File source, File artifact) {
+        return !artifact.exists() || artifact.lastModified() < source.lastModified();
+    }
+
+    private URLClassLoader createClassLoader() throws MojoExecutionException {
+        List<URL> urls = new ArrayList<>();
+        for (String element : classpathElements) {
+            try {
+                urls.add(new File(element).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new MojoExecutionException("Invalid classpath element: " + element, e);
+            }
+        }
+        return new URLClassLoader(urls.toArray(new URL[0]), getClass().getClassLoader());
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * <p>SPI for compiling the templates of a specific view engine at build time. Implementations
+ * are discovered using the JDK's ServiceLoader mechanism and write an artifact into the output
+ * directory which the matching view engine loads instead of compiling the template at runtime.</p>
+ *
+ * <p>Only engines whose compiled representation can be persisted are able to provide an
+ * implementation. View engines always fall back to runtime compilation if no precompiled
+ * artifact exists for a view.</p>
+ */
+public interface TemplatePrecompiler {
+
+    /**
+     * Applies the {@code configuration} of the plugin before any template is compiled. Keys
+     * start with the name of the view engine, e.g. {@code groovy.autoEscape}, and keys of
+     * other engines are ignored.
+     *
+     * @param configuration the configured settings
+     * @throws IllegalArgumentException if a setting of this precompiler is unknown or invalid
+     */
+    default void configure(Map<String, String> configuration) {
+        // nothing to configure by default
+    }
+
+    /**
+     * @param path the view path relative to the web application root, e.g. {@code /WEB-INF/views/index.tpl}
+     * @return whether this precompiler handles the given template
+     */
+    boolean supports(String path);
+
+    /**
+     * @param path            the view path relative to the web application root
+     * @param outputDirectory the directory to write the artifact into
+     * @return the artifact written for the given template
+     */
+    File getArtifact(String path, File outputDirectory);
+
+    /**
+     * @param path            the view path relative to the web application root
+     * @param source          the template source file
+     * @param outputDirectory the directory to write the artifact into
+     * @param classLoader     class loader providing the application classes
+     * @throws IOException if reading the template or writing the artifact fails
+     */
+    void precompile(String path, File source, File outputDirectory, ClassLoader classLoader) throws IOException;
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 Ivar Grimstad (ivar.grimstad@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mvcspec.ozark.maven;
+
+import groovy.text.Template;
+import groovy.text.markup.BaseTemplate;
+import groovy.text.markup.MarkupTemplateEngine;
+import groovy.text.markup.TemplateConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mvcspec.ozark.ext.groovy.PrecompiledTemplates;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroovyMarkupPrecompilerTest {
+
+    private static final String PATH = "/WEB-INF/views/hello.tpl";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GroovyMarkupPrecompiler precompiler = new GroovyMarkupPrecompiler();
+
+    @Test
+    public void supports() {
+        assertTrue(precompiler.supports(PATH));
+        assertFalse(precompiler.supports("/WEB-INF/views/hello.jsp"));
+    }
+
+    @Test
+    public void precompiledTemplateRendersLikeRuntimeTemplate() throws Exception {
+
+        File source = folder.newFile("hello.tpl");
+        Files.write(source.toPath(), "p(\"Hello ${name}\")".getBytes(StandardCharsets.UTF_8));
+        File output = folder.newFolder("classes");
+
+        precompiler.precompile(PATH, source, output, getClass().getClassLoader());
+        assertTrue(precompiler.getArtifact(PATH, output).isFile());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()},
+                getClass().getClassLoader())) {
+
+            Optional<Class<? extends BaseTemplate>> templateClass =
+                    PrecompiledTemplates.findTemplateClass(PATH, classLoader);
+            assertTrue(templateClass.isPresent());
+            assertEquals(PrecompiledTemplates.PACKAGE_NAME, templateClass.get().getPackage().getName());
+
+            MarkupTemplateEngine engine = new MarkupTemplateEngine(classLoader, new TemplateConfiguration());
+            Template template = PrecompiledTemplates.createTemplate(engine, templateClass.get());
+            assertEquals("<p>Hello Ozark</p>",
+                    template.make(Collections.singletonMap("name", "Ozark")).toString());
+        }
+
+    }
+
+    @Test
+    public void configuredBaseTemplateClass() throws Exception {
+
+        File source = folder.newFile("hello.tpl");
+        Files.write(source.toPath(), "p(\"Hello\")".getBytes(StandardCharsets.UTF_8));
+        File output = folder.newFolder("classes");
+
+        precompiler.configure(Collections.singletonMap("groovy.baseTemplateClass", CustomTemplate.class.getName()));
+        precompiler.precompile(PATH, source, output, getClass().getClassLoader());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toURI().toURL()},
+                getClass().getClassLoader())) {
+            Optional<Class<? extends BaseTemplate>> templateClass =
+                    PrecompiledTemplates.findTemplateClass(PATH, classLoader);
+            assertTrue(templateClass.isPresent());
+            assertEquals(CustomTemplate.class, templateClass.get().getSuperclass());
+        }
+
+    }
+
+    @Test
+    public void otherEnginesAreIgnored() {
+        precompiler.configure(Collections.singletonMap("pebble.strictVariables", "true"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSetting() {
+        precompiler.configure(Collections.singletonMap("groovy.autoescape", "true"));
+    }
+
+    public abstract static class CustomTemplate extends BaseTemplate {
+
+        public CustomTemplate(MarkupTemplateEngine engine, Map model, Map<String, String> modelTypes,
+                              TemplateConfiguration configuration) {
+            super(engine, model, modelTypes, configuration);
+        }
+
+    }
+
+}